@@ -0,0 +1,73 @@
+-- Schema additions on top of the original Perfume_Website database.
+-- Run once against the database after restoring it; every statement can be re-run safely.
+-- Sessions are persisted to files (perfumeshop.session.dir) and need no table.
+
+USE [Perfume_Website]
+GO
+
+-- Daily revenue rollup (RevenueRollupDAO). Only CategoryID 0, the whole-shop total, is kept.
+IF OBJECT_ID(N'[dbo].[DailyRevenue]', N'U') IS NULL
+CREATE TABLE [dbo].[DailyRevenue] (
+    [Day] date NOT NULL,
+    [CategoryID] int NOT NULL,
+    [Revenue] money NOT NULL,
+    [OrderCount] int NOT NULL,
+    [ItemsSold] int NOT NULL,
+    [DeliveredOrders] int NOT NULL DEFAULT 0,
+    CONSTRAINT [PK_DailyRevenue] PRIMARY KEY ([Day], [CategoryID])
+)
+GO
+
+-- Orders and deliveries not yet folded into DailyRevenue (RevenueRollupDAO.applyJournal)
+IF OBJECT_ID(N'[dbo].[RevenueJournal]', N'U') IS NULL
+CREATE TABLE [dbo].[RevenueJournal] (
+    [EntryID] bigint IDENTITY(1,1) NOT NULL PRIMARY KEY,
+    [OrderID] int NOT NULL,
+    [Delivered] bit NOT NULL
+)
+GO
+
+-- Carts of signed-in users (CartDAO), written behind by CartPersistence
+IF OBJECT_ID(N'[dbo].[CartItems]', N'U') IS NULL
+CREATE TABLE [dbo].[CartItems] (
+    [UserName] nvarchar(50) NOT NULL,
+    [ProductID] int NOT NULL,
+    [Quantity] int NOT NULL,
+    [UnitPrice] money NOT NULL,
+    [ListPrice] money NOT NULL,
+    [Position] int NOT NULL,
+    CONSTRAINT [PK_CartItems] PRIMARY KEY ([UserName], [ProductID])
+)
+GO
+
+-- Wishlists of signed-in users (WishlistDAO)
+IF OBJECT_ID(N'[dbo].[WishlistItems]', N'U') IS NULL
+CREATE TABLE [dbo].[WishlistItems] (
+    [UserName] nvarchar(50) NOT NULL,
+    [ProductID] int NOT NULL,
+    [AddedAt] datetime NOT NULL,
+    CONSTRAINT [PK_WishlistItems] PRIMARY KEY ([UserName], [ProductID])
+)
+GO
+
+-- Products sold from in-memory stock during a flash sale (FlashSaleDAO)
+IF OBJECT_ID(N'[dbo].[FlashSaleProducts]', N'U') IS NULL
+CREATE TABLE [dbo].[FlashSaleProducts] (
+    [ProductID] int NOT NULL PRIMARY KEY
+)
+GO
+
+-- Flash-sale quantities committed by orders and not yet folded into Products.UnitsInStock
+IF OBJECT_ID(N'[dbo].[FlashSaleConsumption]', N'U') IS NULL
+CREATE TABLE [dbo].[FlashSaleConsumption] (
+    [EntryID] bigint IDENTITY(1,1) NOT NULL PRIMARY KEY,
+    [ProductID] int NOT NULL,
+    [OrderID] int NOT NULL,
+    [Quantity] int NOT NULL
+)
+GO
+
+-- Room for salted PBKDF2 password hashes (PasswordHashing), about 90 characters
+IF COL_LENGTH(N'[dbo].[Users]', N'Password') BETWEEN 1 AND 255
+ALTER TABLE [dbo].[Users] ALTER COLUMN [Password] nvarchar(128) NOT NULL
+GO
@@ -0,0 +1,206 @@
+package perfumeshop.controller.admin.management.order;
+
+import perfumeshop.dal.OrderDAO;
+import perfumeshop.exception.DaoException;
+import perfumeshop.model.OrderLine;
+import perfumeshop.utils.LoggingUtils;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Streams orders and their lines as CSV straight to the response.
+ * Optional parameters: from / to (yyyy-MM-dd, to exclusive) and gzip=true.
+ * <p>
+ * The first rows are held in the response buffer, so a query that fails early still gets
+ * an error status. If it fails after the download has started, the file ends with
+ * {@link #FAILURE_TRAILER} instead of stopping silently at a row boundary.
+ * @author PerfumeShop Team
+ */
+@WebServlet(name = "ExportInvoiceServlet", urlPatterns = {"/exportinvoice"})
+public class ExportInvoiceServlet extends HttpServlet {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(ExportInvoiceServlet.class);
+
+    private static final String CSV_HEADER =
+            "OrderID,Date,UserName,OrderTotal,Status,ProductID,Quantity,UnitPrice,Discount,LineTotal";
+
+    // Flush to the client every N rows so the download progresses in chunks
+    private static final int FLUSH_EVERY_ROWS = 1000;
+    private static final int WRITE_BUFFER_SIZE = 16 * 1024;
+    // Response bytes held back before the status is sent
+    private static final int FIRST_PAGE_BUFFER_SIZE = 256 * 1024;
+
+    /** Last line of an export that stopped part way */
+    static final String FAILURE_TRAILER = "#EXPORT FAILED - file is incomplete";
+
+    /**
+     * Processes requests for both HTTP <code>GET</code> and <code>POST</code>
+     * methods.
+     *
+     * @param request servlet request
+     * @param response servlet response
+     * @throws ServletException if a servlet-specific error occurs
+     * @throws IOException if an I/O error occurs
+     */
+    protected void processRequest(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        request.setCharacterEncoding("UTF-8");
+
+        LocalDate from;
+        LocalDate to;
+        try {
+            from = parseDate(request.getParameter("from"), LocalDate.of(2000, 1, 1));
+            to = parseDate(request.getParameter("to"), LocalDate.now().plusDays(1));
+        } catch (DateTimeParseException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Dates must use yyyy-MM-dd");
+            return;
+        }
+        if (!from.isBefore(to)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Start date must be before end date");
+            return;
+        }
+        boolean gzip = "true".equalsIgnoreCase(request.getParameter("gzip"));
+
+        String fileName = "invoices_" + from + "_" + to + (gzip ? ".csv.gz" : ".csv");
+        response.setContentType(gzip ? "application/gzip" : "text/csv;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+
+        response.setBufferSize(FIRST_PAGE_BUFFER_SIZE);
+        OutputStream out = response.getOutputStream();
+        if (gzip) {
+            // Sync flush so the periodic flushes below reach the client
+            out = new GZIPOutputStream(out, WRITE_BUFFER_SIZE, true);
+        }
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        long[] rows = {0};
+        try (OrderDAO dao = new OrderDAO()) {
+            writer.write(CSV_HEADER);
+            writer.write("\r\n");
+
+            dao.streamOrderLines(from, to, line -> {
+                writeRow(writer, line);
+                if (++rows[0] % FLUSH_EVERY_ROWS == 0) {
+                    writer.flush();
+                }
+            });
+        } catch (DaoException e) {
+            LOGGER.log(Level.SEVERE, "Invoice export failed after " + rows[0] + " rows", e);
+            if (!response.isCommitted()) {
+                // Nothing has reached the client yet: drop the buffered rows and report the error
+                response.reset();
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Export failed, please try again");
+                return;
+            }
+            writer.write(FAILURE_TRAILER);
+            writer.write("\r\n");
+        }
+        writer.close();
+    }
+
+    private LocalDate parseDate(String raw, LocalDate defaultValue) {
+        return (raw == null || raw.isEmpty()) ? defaultValue : LocalDate.parse(raw);
+    }
+
+    private void writeRow(Writer writer, OrderLine line) throws IOException {
+        writer.write(Integer.toString(line.getOrderId()));
+        writer.write(',');
+        writer.write(line.getDate().toString());
+        writer.write(',');
+        writeEscaped(writer, line.getUserName());
+        writer.write(',');
+        writer.write(String.format("%.2f", line.getOrderTotal()));
+        writer.write(',');
+        writer.write(line.isStatus() ? "Delivered" : "Not delivery");
+        writer.write(',');
+        if (line.hasProduct()) {
+            writer.write(Integer.toString(line.getProductId()));
+            writer.write(',');
+            writer.write(Integer.toString(line.getQuantity()));
+            writer.write(',');
+            writer.write(String.format("%.2f", line.getUnitPrice()));
+            writer.write(',');
+            writer.write(String.format("%.2f", line.getDiscount()));
+            writer.write(',');
+            writer.write(String.format("%.2f", line.getLineTotal()));
+        } else {
+            writer.write(",,,,");
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Write a CSV field, quoting it when it contains separators, quotes or line breaks
+     */
+    private void writeEscaped(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
+    /**
+     * Handles the HTTP <code>GET</code> method.
+     *
+     * @param request servlet request
+     * @param response servlet response
+     * @throws ServletException if a servlet-specific error occurs
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        processRequest(request, response);
+    }
+
+    /**
+     * Handles the HTTP <code>POST</code> method.
+     *
+     * @param request servlet request
+     * @param response servlet response
+     * @throws ServletException if a servlet-specific error occurs
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        processRequest(request, response);
+    }
+
+    /**
+     * Returns a short description of the servlet.
+     *
+     * @return a String containing servlet description
+     */
+    @Override
+    public String getServletInfo() {
+        return "Streams invoices as CSV";
+    }// </editor-fold>
+
+}
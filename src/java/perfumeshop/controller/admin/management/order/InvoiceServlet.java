@@ -6,6 +6,7 @@
 package perfumeshop.controller.admin.management.order;
 
 import perfumeshop.dal.OrderDAO;
+import perfumeshop.dal.RevenueRollupDAO;
 import perfumeshop.dal.UserDAO;
 import java.io.IOException;
 import java.util.List;
@@ -40,7 +41,7 @@ public class InvoiceServlet extends HttpServlet {
       
         
 
-        double sumAllInvoice = dao.getTotalSumAllOrders();
+        double sumAllInvoice = new RevenueRollupDAO().getTotalRevenue();
         
         List<Order> listAllInvoice = dao.getAllOrders();
         List<User> listAllAccount = dao2.getAllUsers();
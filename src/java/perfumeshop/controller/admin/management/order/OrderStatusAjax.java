@@ -33,7 +33,7 @@ public class OrderStatusAjax extends HttpServlet {
         response.setContentType("text/html;charset=UTF-8");
         OrderDAO od = new OrderDAO();
         String id_raw = request.getParameter("id");
-        od.updateStatus(Integer.parseInt(id_raw));
+        od.updateOrderStatus(Integer.parseInt(id_raw));
     } 
 
     // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
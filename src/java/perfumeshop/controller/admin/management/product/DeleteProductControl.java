@@ -13,9 +13,8 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
-import java.util.List;
 import perfumeshop.model.Cart;
-import perfumeshop.model.Item;
+import perfumeshop.service.CartPersistence;
 
 @WebServlet(name = "DeleteProductControl", urlPatterns = {"/deleteproduct"})
 public class DeleteProductControl extends HttpServlet {
@@ -48,10 +47,8 @@ public class DeleteProductControl extends HttpServlet {
 //        dao.deleteCartByProductID(pid);
         dao.deleteProduct(id);
         cart.removeItem(id);
-        List<Item> list = cart.getListItems();
         session.setAttribute("cart", cart);
-        session.setAttribute("listItemsInCart", list);
-        session.setAttribute("cartSize", list.size());
+        CartPersistence.getInstance().cartChanged(session);
         msg = "Product " + pid + " deleted successfully";
         request.setAttribute("mess", msg);
         request.getRequestDispatcher("manager").forward(request, response);
@@ -0,0 +1,94 @@
+package perfumeshop.controller.admin.management.product;
+
+import perfumeshop.exception.DaoException;
+import perfumeshop.exception.ValidationException;
+import perfumeshop.service.FlashSaleStock;
+import java.io.IOException;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Toggles flash-sale mode (in-memory stock) for a product from the product manager
+ * @author PerfumeShop Team
+ */
+@WebServlet(name = "FlashSaleControl", urlPatterns = {"/flashsale"})
+public class FlashSaleControl extends HttpServlet {
+
+    /**
+     * Processes requests for both HTTP <code>GET</code> and <code>POST</code>
+     * methods.
+     *
+     * @param request servlet request
+     * @param response servlet response
+     * @throws ServletException if a servlet-specific error occurs
+     * @throws IOException if an I/O error occurs
+     */
+    protected void processRequest(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("text/html;charset=UTF-8");
+        String pid = request.getParameter("pid");
+        String msg;
+        try {
+            int id = Integer.parseInt(pid);
+            FlashSaleStock flashSale = FlashSaleStock.getInstance();
+            if (flashSale.isEnabled(id)) {
+                flashSale.disable(id);
+                msg = "Flash sale disabled for product " + id;
+            } else {
+                flashSale.enable(id);
+                msg = "Flash sale enabled for product " + id + ": " + flashSale.getAvailable(id) + " in stock";
+            }
+        } catch (NumberFormatException e) {
+            msg = "Invalid product ID";
+        } catch (ValidationException e) {
+            msg = e.getMessage();
+        } catch (DaoException | IllegalStateException e) {
+            msg = "Flash sale update failed: " + e.getMessage();
+        }
+        request.setAttribute("mess", msg);
+        request.getRequestDispatcher("manager").forward(request, response);
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
+    /**
+     * Handles the HTTP <code>GET</code> method.
+     *
+     * @param request servlet request
+     * @param response servlet response
+     * @throws ServletException if a servlet-specific error occurs
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        processRequest(request, response);
+    }
+
+    /**
+     * Handles the HTTP <code>POST</code> method.
+     *
+     * @param request servlet request
+     * @param response servlet response
+     * @throws ServletException if a servlet-specific error occurs
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        processRequest(request, response);
+    }
+
+    /**
+     * Returns a short description of the servlet.
+     *
+     * @return a String containing servlet description
+     */
+    @Override
+    public String getServletInfo() {
+        return "Toggles flash-sale stock for a product";
+    }// </editor-fold>
+
+}
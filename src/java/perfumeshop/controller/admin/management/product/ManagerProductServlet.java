@@ -7,6 +7,7 @@ package perfumeshop.controller.admin.management.product;
 
 import perfumeshop.dal.CategoryDAO;
 import perfumeshop.dal.ProductDAO;
+import perfumeshop.service.FlashSaleStock;
 import perfumeshop.dal.SupplierDAO;
 import perfumeshop.model.Category;
 import perfumeshop.model.Product;
@@ -63,6 +64,7 @@ public class ManagerProductServlet extends HttpServlet {
         request.setAttribute("listCC", listC);
         request.setAttribute("listByPage", listByPage);
         request.setAttribute("list", listSup);
+        request.setAttribute("flashSale", FlashSaleStock.getInstance());
 
         request.getRequestDispatcher("dashboard/mnproduct.jsp").forward(request, response);
     }
@@ -5,7 +5,8 @@
  */
 package perfumeshop.controller.admin.revenue;
 
-import perfumeshop.dal.OrderDAO;
+import perfumeshop.dal.RevenueRollupDAO;
+import perfumeshop.exception.ValidationException;
 import java.io.IOException;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
@@ -30,33 +31,19 @@ public class MonthlyRevenueServlet extends HttpServlet {
         response.setContentType("text/html;charset=UTF-8");
         request.setCharacterEncoding("UTF-8");
         String year_raw = request.getParameter("year");
-        int year = (year_raw == null ? 2023 : Integer.parseInt(year_raw));
-        OrderDAO dao = new OrderDAO();
-        double totalMoneyMonth1 = dao.totalMoneyMonth(1, year);
-        double totalMoneyMonth2 = dao.totalMoneyMonth(2, year);
-        double totalMoneyMonth3 = dao.totalMoneyMonth(3, year);
-        double totalMoneyMonth4 = dao.totalMoneyMonth(4, year);
-        double totalMoneyMonth5 = dao.totalMoneyMonth(5, year);
-        double totalMoneyMonth6 = dao.totalMoneyMonth(6, year);
-        double totalMoneyMonth7 = dao.totalMoneyMonth(7, year);
-        double totalMoneyMonth8 = dao.totalMoneyMonth(8, year);
-        double totalMoneyMonth9 = dao.totalMoneyMonth(9, year);
-        double totalMoneyMonth10 = dao.totalMoneyMonth(10, year);
-        double totalMoneyMonth11 = dao.totalMoneyMonth(11, year);
-        double totalMoneyMonth12 = dao.totalMoneyMonth(12, year);
+        int year;
+        double[] totalMoneyMonth;
+        try (RevenueRollupDAO dao = new RevenueRollupDAO()) {
+            year = (year_raw == null ? 2023 : Integer.parseInt(year_raw));
+            totalMoneyMonth = dao.getMonthlyRevenue(year);
+        } catch (NumberFormatException | ValidationException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid year");
+            return;
+        }
 
-        request.setAttribute("totalMoneyMonth1", totalMoneyMonth1);
-        request.setAttribute("totalMoneyMonth2", totalMoneyMonth2);
-        request.setAttribute("totalMoneyMonth3", totalMoneyMonth3);
-        request.setAttribute("totalMoneyMonth4", totalMoneyMonth4);
-        request.setAttribute("totalMoneyMonth5", totalMoneyMonth5);
-        request.setAttribute("totalMoneyMonth6", totalMoneyMonth6);
-        request.setAttribute("totalMoneyMonth7", totalMoneyMonth7);
-        request.setAttribute("totalMoneyMonth8", totalMoneyMonth8);
-        request.setAttribute("totalMoneyMonth9", totalMoneyMonth9);
-        request.setAttribute("totalMoneyMonth10", totalMoneyMonth10);
-        request.setAttribute("totalMoneyMonth11", totalMoneyMonth11);
-        request.setAttribute("totalMoneyMonth12", totalMoneyMonth12);
+        for (int month = 1; month <= 12; month++) {
+            request.setAttribute("totalMoneyMonth" + month, totalMoneyMonth[month - 1]);
+        }
         request.setAttribute("year", year);
 
         request.getRequestDispatcher("dashboard/monthlyrevenue.jsp").forward(request, response);
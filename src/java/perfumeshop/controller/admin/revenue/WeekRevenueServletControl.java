@@ -5,13 +5,14 @@
  */
 package perfumeshop.controller.admin.revenue;
 
-import perfumeshop.dal.OrderDAO;
+import perfumeshop.dal.RevenueRollupDAO;
 import java.io.IOException;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import java.time.DateTimeException;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 
@@ -44,27 +45,41 @@ public class WeekRevenueServletControl extends HttpServlet {
         int endDay = endOfWeek.getDayOfMonth();
         int monthValue = startOfWeek.getMonthValue();
 
-        int year = (year_raw == null ? 2023 : Integer.parseInt(year_raw));
-        int month = (month_raw == null ? monthValue : Integer.parseInt(month_raw));
-        int from = (from_raw == null ? startDay : Integer.parseInt(from_raw));
-        int to = (to_raw == null ? endDay : Integer.parseInt(to_raw));
+        int year;
+        LocalDate weekStart;
+        LocalDate weekEnd;
+        try {
+            year = (year_raw == null ? 2023 : Integer.parseInt(year_raw));
+            int month = (month_raw == null ? monthValue : Integer.parseInt(month_raw));
+            int from = (from_raw == null ? startDay : Integer.parseInt(from_raw));
+            int to = (to_raw == null ? endDay : Integer.parseInt(to_raw));
 
-        OrderDAO dao = new OrderDAO();
-        double totalMoney1 = dao.totalMoneyWeek(1, from, to , year, month);
-        double totalMoney2 = dao.totalMoneyWeek(2, from, to , year, month);
-        double totalMoney3 = dao.totalMoneyWeek(3, from, to , year, month);
-        double totalMoney4 = dao.totalMoneyWeek(4, from, to , year, month);
-        double totalMoney5 = dao.totalMoneyWeek(5, from, to , year, month);
-        double totalMoney6 = dao.totalMoneyWeek(6, from, to , year, month);
-        double totalMoney7 = dao.totalMoneyWeek(7, from, to , year, month);
+            // The week may run into the next month (e.g. from 29 to 4)
+            weekStart = LocalDate.of(year, month, from);
+            weekEnd = (to >= from ? weekStart.withDayOfMonth(to) : weekStart.plusMonths(1).withDayOfMonth(to));
+        } catch (NumberFormatException | DateTimeException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid week parameters");
+            return;
+        }
+        if (weekEnd.isAfter(weekStart.plusDays(6))) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "A week spans at most 7 days");
+            return;
+        }
 
-        request.setAttribute("totalMoney1", totalMoney1);
-        request.setAttribute("totalMoney2", totalMoney2);
-        request.setAttribute("totalMoney3", totalMoney3);
-        request.setAttribute("totalMoney4", totalMoney4);
-        request.setAttribute("totalMoney5", totalMoney5);
-        request.setAttribute("totalMoney6", totalMoney6);
-        request.setAttribute("totalMoney7", totalMoney7);
+        double[] dailyRevenue;
+        try (RevenueRollupDAO dao = new RevenueRollupDAO()) {
+            dailyRevenue = dao.getDailyRevenue(weekStart, weekEnd);
+        }
+
+        // totalMoney1 = Sunday ... totalMoney7 = Saturday
+        double[] totalMoney = new double[7];
+        for (int i = 0; i < dailyRevenue.length; i++) {
+            DayOfWeek dayOfWeek = weekStart.plusDays(i).getDayOfWeek();
+            totalMoney[dayOfWeek.getValue() % 7] += dailyRevenue[i];
+        }
+        for (int day = 1; day <= 7; day++) {
+            request.setAttribute("totalMoney" + day, totalMoney[day - 1]);
+        }
         request.setAttribute("year", year);
 
         request.getRequestDispatcher("dashboard/weekrevenue.jsp").forward(request, response);
@@ -0,0 +1,152 @@
+package perfumeshop.controller.admin.statistic;
+
+import perfumeshop.exception.ValidationException;
+import perfumeshop.service.OrderAnalyticsStore;
+import perfumeshop.service.OrderAnalyticsStore.GroupBy;
+import perfumeshop.service.OrderAnalyticsStore.Report;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Ad hoc revenue report over any date range, answered from the in-memory order analytics store.
+ * Parameters: from, to (yyyy-MM-dd, to exclusive) and groupBy (none, day, month, user, status).
+ * @author PerfumeShop Team
+ */
+@WebServlet(name = "AnalyticsReportServlet", urlPatterns = {"/analyticsreport"})
+public class AnalyticsReportServlet extends HttpServlet {
+
+    /**
+     * Processes requests for both HTTP <code>GET</code> and <code>POST</code>
+     * methods.
+     *
+     * @param request servlet request
+     * @param response servlet response
+     * @throws ServletException if a servlet-specific error occurs
+     * @throws IOException if an I/O error occurs
+     */
+    protected void processRequest(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        request.setCharacterEncoding("UTF-8");
+
+        OrderAnalyticsStore store = OrderAnalyticsStore.getInstance();
+        if (!store.isLoaded()) {
+            response.setHeader("Retry-After", "5");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Analytics store is still loading");
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        LocalDate from;
+        LocalDate to;
+        GroupBy groupBy;
+        try {
+            String from_raw = request.getParameter("from");
+            String to_raw = request.getParameter("to");
+            String groupBy_raw = request.getParameter("groupBy");
+            from = (from_raw == null || from_raw.isEmpty() ? today.withDayOfMonth(1) : LocalDate.parse(from_raw));
+            to = (to_raw == null || to_raw.isEmpty() ? today.plusDays(1) : LocalDate.parse(to_raw));
+            groupBy = (groupBy_raw == null || groupBy_raw.isEmpty() ? GroupBy.DAY : GroupBy.valueOf(groupBy_raw.toUpperCase()));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid report parameters");
+            return;
+        }
+        if (!from.isBefore(to)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Start date must be before end date");
+            return;
+        }
+
+        Report report;
+        try {
+            report = store.report(from, to, groupBy);
+        } catch (ValidationException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        }
+
+        response.setContentType("application/json;charset=UTF-8");
+        try (PrintWriter out = response.getWriter()) {
+            out.print("{\"from\":\"" + from + "\",\"to\":\"" + to + "\",\"groupBy\":\"" + groupBy.name().toLowerCase() + "\"");
+            out.print(String.format(",\"totalRevenue\":%.2f,\"totalOrders\":%d,\"buckets\":[",
+                                    report.getTotalRevenue(), report.getTotalOrders()));
+            boolean first = true;
+            for (int b = 0; b < report.getBucketCount(); b++) {
+                // Users without orders in the range carry no information
+                if (groupBy == GroupBy.USER && report.getOrderCount(b) == 0) {
+                    continue;
+                }
+                if (!first) {
+                    out.print(',');
+                }
+                first = false;
+                out.print("{\"key\":\"" + escapeJson(report.getBucketKey(b)) + "\"");
+                out.print(String.format(",\"revenue\":%.2f,\"orders\":%d}", report.getRevenue(b), report.getOrderCount(b)));
+            }
+            out.print("]}");
+        }
+    }
+
+    private String escapeJson(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // <editor-fold defaultstate="collapsed" desc="HttpServlet methods. Click on the + sign on the left to edit the code.">
+    /**
+     * Handles the HTTP <code>GET</code> method.
+     *
+     * @param request servlet request
+     * @param response servlet response
+     * @throws ServletException if a servlet-specific error occurs
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        processRequest(request, response);
+    }
+
+    /**
+     * Handles the HTTP <code>POST</code> method.
+     *
+     * @param request servlet request
+     * @param response servlet response
+     * @throws ServletException if a servlet-specific error occurs
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        processRequest(request, response);
+    }
+
+    /**
+     * Returns a short description of the servlet.
+     *
+     * @return a String containing servlet description
+     */
+    @Override
+    public String getServletInfo() {
+        return "Ad hoc revenue report";
+    }// </editor-fold>
+
+}
@@ -0,0 +1,119 @@
+package perfumeshop.controller.admin.statistic;
+
+import perfumeshop.utils.CacheRegion;
+import perfumeshop.utils.CacheStats;
+import perfumeshop.utils.CacheUtils;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Cache statistics per region as JSON: hit rate, loads and their latency histogram,
+ * evictions, expirations and estimated memory. Optional parameter: region (name).
+ * @author PerfumeShop Team
+ */
+@WebServlet(name = "CacheStatsServlet", urlPatterns = {"/cachestats"})
+public class CacheStatsServlet extends HttpServlet {
+
+    /**
+     * Handles the HTTP <code>GET</code> method.
+     *
+     * @param request servlet request
+     * @param response servlet response
+     * @throws ServletException if a servlet-specific error occurs
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        String region_raw = request.getParameter("region");
+        List<CacheStats> stats;
+        if (region_raw == null || region_raw.isEmpty()) {
+            stats = CacheUtils.getRegionStats();
+        } else {
+            CacheRegion region = CacheUtils.region(region_raw);
+            if (region == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND, "Unknown cache region");
+                return;
+            }
+            stats = List.of(region.stats());
+        }
+
+        response.setContentType("application/json;charset=UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        try (PrintWriter out = response.getWriter()) {
+            out.print("{\"regions\":[");
+            for (int r = 0; r < stats.size(); r++) {
+                if (r > 0) {
+                    out.print(',');
+                }
+                print(out, stats.get(r));
+            }
+            out.print("]}");
+        }
+    }
+
+    private void print(PrintWriter out, CacheStats s) {
+        out.print("{\"name\":\"" + escapeJson(s.getRegionName()) + "\"");
+        out.print(String.format(",\"size\":%d,\"weightedSize\":%d,\"maximumWeight\":%d,\"estimatedBytes\":%d",
+                                s.getSize(), s.getWeightedSize(), s.getMaximumWeight(), s.getEstimatedBytes()));
+        out.print(String.format(",\"hits\":%d,\"misses\":%d,\"hitRate\":%.4f",
+                                s.getHitCount(), s.getMissCount(), s.getHitRate()));
+        out.print(String.format(",\"loadSuccesses\":%d,\"loadFailures\":%d,\"staleServed\":%d",
+                                s.getLoadSuccessCount(), s.getLoadFailureCount(), s.getStaleServedCount()));
+        out.print(String.format(",\"averageLoadMillis\":%.3f,\"p50LoadMillis\":%.3f,\"p95LoadMillis\":%.3f,\"p99LoadMillis\":%.3f",
+                                s.getAverageLoadMillis(), s.getLoadLatencyPercentileMillis(50),
+                                s.getLoadLatencyPercentileMillis(95), s.getLoadLatencyPercentileMillis(99)));
+        out.print(String.format(",\"evictions\":%d,\"evictionWeight\":%d,\"expirations\":%d",
+                                s.getEvictionCount(), s.getEvictionWeight(), s.getExpirationCount()));
+        out.print(",\"loadLatency\":[");
+        boolean first = true;
+        for (int b = 0; b < s.getLoadLatencyBucketCount(); b++) {
+            // Empty buckets carry no information
+            if (s.getLoadLatencyCount(b) == 0) {
+                continue;
+            }
+            if (!first) {
+                out.print(',');
+            }
+            first = false;
+            long limit = s.getLoadLatencyBucketLimitMicros(b);
+            out.print("{\"ltMicros\":" + (limit == Long.MAX_VALUE ? "null" : String.valueOf(limit))
+                      + ",\"count\":" + s.getLoadLatencyCount(b) + "}");
+        }
+        out.print("]}");
+    }
+
+    private String escapeJson(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns a short description of the servlet.
+     *
+     * @return a String containing servlet description
+     */
+    @Override
+    public String getServletInfo() {
+        return "Cache statistics";
+    }
+}
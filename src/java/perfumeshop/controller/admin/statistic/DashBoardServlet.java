@@ -5,10 +5,8 @@
  */
 package perfumeshop.controller.admin.statistic;
 
-import perfumeshop.dal.ProductDAO;
-import perfumeshop.dal.OrderDAO;
-import perfumeshop.dal.SupplierDAO;
-import perfumeshop.dal.UserDAO;
+import perfumeshop.model.DashboardSnapshot;
+import perfumeshop.service.DashboardService;
 import java.io.IOException;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
@@ -47,22 +45,13 @@ public class DashBoardServlet extends HttpServlet {
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {        
-        ProductDAO dao = new ProductDAO();
-        UserDAO udao = new UserDAO();
-        OrderDAO odao = new OrderDAO();
-       SupplierDAO sdao = new SupplierDAO();
-        int count = dao.countAllProduct();
-        int countS = dao.countAllTypeProduct();
-        int countu = udao.countAllUser();
-        int countSupplier = sdao.countAllSupplier();
-        int sumquantitySold = dao.getSumQuantitySold();
-        double totalmoneyAll = odao.sumAllMoneyOrder();
-        request.setAttribute("countProduct", count);
-        request.setAttribute("countSupplier", countSupplier);
-        request.setAttribute("countTypeProduct", countS);
-        request.setAttribute("sumquantitySold", sumquantitySold);
-        request.setAttribute("countUser", countu);
-        request.setAttribute("totalmoneyAll", totalmoneyAll);
+        DashboardSnapshot snapshot = DashboardService.getInstance().getSnapshot();
+        request.setAttribute("countProduct", snapshot.getCountProduct());
+        request.setAttribute("countSupplier", snapshot.getCountSupplier());
+        request.setAttribute("countTypeProduct", snapshot.getCountTypeProduct());
+        request.setAttribute("sumquantitySold", snapshot.getSumQuantitySold());
+        request.setAttribute("countUser", snapshot.getCountUser());
+        request.setAttribute("totalmoneyAll", snapshot.getTotalMoneyAll());
         request.getRequestDispatcher("dashboard/dashboard.jsp").forward(request, response);
     }
 
@@ -0,0 +1,51 @@
+package perfumeshop.controller.admin.statistic;
+
+import perfumeshop.service.DashboardFeed;
+import java.io.IOException;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Server-Sent Events stream of order activity for the admin dashboard
+ * @author PerfumeShop Team
+ */
+@WebServlet(name = "DashboardFeedServlet", urlPatterns = {"/dashboardfeed"}, asyncSupported = true)
+public class DashboardFeedServlet extends HttpServlet {
+
+    /**
+     * Handles the HTTP <code>GET</code> method.
+     *
+     * @param request servlet request
+     * @param response servlet response
+     * @throws ServletException if a servlet-specific error occurs
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("text/event-stream;charset=UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        // Disable proxy buffering (nginx) so events are delivered immediately
+        response.setHeader("X-Accel-Buffering", "no");
+        response.getWriter().write("retry: 5000\n\n");
+        response.flushBuffer();
+
+        AsyncContext context = request.startAsync();
+        context.setTimeout(DashboardFeed.CONNECTION_TIMEOUT_MILLIS);
+        DashboardFeed.getInstance().subscribe(context);
+    }
+
+    /**
+     * Returns a short description of the servlet.
+     *
+     * @return a String containing servlet description
+     */
+    @Override
+    public String getServletInfo() {
+        return "Admin dashboard event stream";
+    }
+}
@@ -6,12 +6,14 @@
  */
 package perfumeshop.controller.admin.statistic;
 
-import perfumeshop.dal.UserDAO;
-import perfumeshop.model.User;
-import perfumeshop.model.Order;
+import perfumeshop.exception.DaoException;
+import perfumeshop.exception.ValidationException;
+import perfumeshop.service.CustomerSpendLeaderboard;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
@@ -38,14 +40,43 @@ public class Top5Customer extends HttpServlet {
             throws ServletException, IOException {
         response.setContentType("text/html;charset=UTF-8");
       
-        UserDAO dao = new UserDAO();
+        CustomerSpendLeaderboard leaderboard = CustomerSpendLeaderboard.getInstance();
+        int n = 5;
+        LocalDate from = null;
+        LocalDate to = null;
+        try {
+            String n_raw = request.getParameter("n");
+            String from_raw = request.getParameter("from");
+            String to_raw = request.getParameter("to");
+            if (n_raw != null && !n_raw.isEmpty()) {
+                n = Math.min(Math.max(Integer.parseInt(n_raw), 1), CustomerSpendLeaderboard.MAX_TOP);
+            }
+            from = (from_raw == null || from_raw.isEmpty() ? null : LocalDate.parse(from_raw));
+            to = (to_raw == null || to_raw.isEmpty() ? null : LocalDate.parse(to_raw));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            request.setAttribute("mess", "Invalid filter, showing all-time top 5");
+            n = 5;
+            from = null;
+            to = null;
+        }
 
-        List<User> listAllAccount = dao.getAllUsers();
-        List<Spending> listTop5CustomerSpending = dao.getTop5Customers();
+        List<Spending> listTopSpending = new ArrayList<>();
+        if (!leaderboard.isLoaded()) {
+            request.setAttribute("mess", "Customer spending is still loading, please retry in a moment");
+        } else {
+            try {
+                listTopSpending = leaderboard.getTopCustomers(n, from, to);
+            } catch (ValidationException e) {
+                request.setAttribute("mess", e.getMessage());
+            } catch (DaoException e) {
+                request.setAttribute("mess", "Customer accounts could not be loaded, please retry in a moment");
+            }
+        }
 
-
-        request.setAttribute("listAllAccount", listAllAccount);
-        request.setAttribute("listTop5Spending", listTop5CustomerSpending);
+        request.setAttribute("n", n);
+        request.setAttribute("from", from);
+        request.setAttribute("to", to);
+        request.setAttribute("listTop5Spending", listTopSpending);
 //        request.getRequestDispatcher("ManagerAccount.jsp").forward(request, response);
         request.getRequestDispatcher("dashboard/top5customer.jsp").forward(request, response);
     }
@@ -4,7 +4,6 @@
  */
 package perfumeshop.controller.web.cart_wishlist;
 
-import perfumeshop.dal.ProductDAO;
 import java.io.IOException;
 import java.io.PrintWriter;
 import jakarta.servlet.ServletException;
@@ -15,10 +14,16 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import java.util.List;
 import perfumeshop.model.Cart;
+import perfumeshop.model.CartChange;
 import perfumeshop.model.Item;
 import perfumeshop.model.Product;
 import perfumeshop.model.User;
 import perfumeshop.dal.OrderDAO;
+import perfumeshop.exception.CheckoutBusyException;
+import perfumeshop.service.CartPersistence;
+import perfumeshop.service.ProductCatalog;
+import perfumeshop.service.CartService;
+import perfumeshop.service.CheckoutAdmission;
 
 /**
  *
@@ -77,8 +82,6 @@ public class CartServlet extends HttpServlet {
             cart = new Cart();
         }
 
-        ProductDAO pd = new ProductDAO();
-
         String role = request.getParameter("role");
         switch (role) {
             case "add": {
@@ -88,15 +91,13 @@ public class CartServlet extends HttpServlet {
                 try {
                     num = Integer.parseInt(tnum);
                     id = Integer.parseInt(tid);
-                    Product p = pd.getProductByID(id);
+                    Product p = ProductCatalog.getInstance().getProduct(id);
                     Item t = new Item(p, num);
                     cart.addItem(t);
                 } catch (Exception e) {
                 }
-                List<Item> list = cart.getListItems();
                 session.setAttribute("cart", cart);
-                session.setAttribute("listItemsInCart", list);
-                session.setAttribute("cartSize", list.size());
+                CartPersistence.getInstance().cartChanged(session);
                 request.getRequestDispatcher("ajax/header_right_ajax.jsp").forward(request, response);
                 break;
             }
@@ -108,10 +109,8 @@ public class CartServlet extends HttpServlet {
                     cart.removeItem(rid);
                 } catch (Exception e) {
                 }
-                List<Item> list = cart.getListItems();
                 session.setAttribute("cart", cart);
-                session.setAttribute("listItemsInCart", list);
-                session.setAttribute("cartSize", list.size());
+                CartPersistence.getInstance().cartChanged(session);
                 request.getRequestDispatcher("ajax/header_right_ajax.jsp").forward(request, response);
                 break;
             }
@@ -146,12 +145,30 @@ public class CartServlet extends HttpServlet {
         }
 
         try {
+            List<CartChange> changes = new CartService().revalidateForCheckout(cart);
+            if (!changes.isEmpty()) {
+                CartPersistence.getInstance().cartChanged(session);
+                request.setAttribute("cartChanges", changes);
+                request.setAttribute("message1", "Order Fail");
+                request.setAttribute("message2", "Some items in your cart have changed. Please review your cart and place the order again.");
+                request.getRequestDispatcher("viewcart.jsp").forward(request, response);
+                return;
+            }
+
             OrderDAO orderDAO = new OrderDAO();
-            orderDAO.addOrder(account, cart);
+            CheckoutAdmission.getInstance().submit(account.getUserName(), cart.getProductIds(), () -> {
+                orderDAO.addOrder(account, cart);
+                return null;
+            });
             session.removeAttribute("cart");
-            session.removeAttribute("listItemsInCart");
-            session.removeAttribute("cartSize");
             request.setAttribute("message1", "Order Success");
+        } catch (CheckoutBusyException e) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+            request.setAttribute("queuePosition", e.getPosition());
+            request.setAttribute("retryAfter", e.getRetryAfterSeconds());
+            request.setAttribute("message1", "Order Fail");
+            request.setAttribute("message2", "Checkout is busy right now. Please try again in " + e.getRetryAfterSeconds() + " seconds.");
         } catch (Exception e) {
             request.setAttribute("message1", "Order Fail");
             request.setAttribute("message2", "There was an error processing your order. Please try again.");
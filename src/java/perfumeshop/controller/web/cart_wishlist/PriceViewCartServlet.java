@@ -13,9 +13,8 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
-import java.util.List;
 import perfumeshop.model.Cart;
-import perfumeshop.model.Item;
+import perfumeshop.service.CartPersistence;
 
 /**
  *
@@ -77,10 +76,8 @@ public class PriceViewCartServlet extends HttpServlet {
             cart.removeItem(rid);
         } catch (Exception e) {
         }
-        List<Item> list = cart.getListItems();
         session.setAttribute("cart", cart);
-        session.setAttribute("listItemsInCart", list);
-        session.setAttribute("cartSize", list.size());
+        CartPersistence.getInstance().cartChanged(session);
 
         //
         request.getRequestDispatcher("viewcart_ajax.jsp").forward(request, response);
@@ -3,9 +3,14 @@ package perfumeshop.controller.web.cart_wishlist;
 import perfumeshop.dal.OrderDAO;
 import perfumeshop.dal.ProductDAO;
 import perfumeshop.dal.WalletDAO;
+import perfumeshop.exception.CheckoutBusyException;
 import perfumeshop.exception.PaymentException;
 import perfumeshop.exception.ValidationException;
 import perfumeshop.exception.DaoException;
+import perfumeshop.service.CartPersistence;
+import perfumeshop.service.CartService;
+import perfumeshop.service.CheckoutAdmission;
+import perfumeshop.service.UserProfile;
 import java.io.IOException;
 import java.io.PrintWriter;
 import jakarta.servlet.ServletException;
@@ -19,8 +24,8 @@ import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import perfumeshop.model.Cart;
+import perfumeshop.model.CartChange;
 import perfumeshop.model.Email;
-import perfumeshop.model.Item;
 import perfumeshop.model.Order;
 import perfumeshop.model.User;
 import perfumeshop.model.Wallet;
@@ -38,15 +43,21 @@ public class ViewCartServlet extends HttpServlet {
     private static final String ATTR_MESSAGE1 = "message1";
     private static final String ATTR_MESSAGE2 = "message2";
     private static final String ATTR_CART = "cart";
-    private static final String ATTR_LIST_ITEMS = "listItemsInCart";
-    private static final String ATTR_CART_SIZE = "cartSize";
-    private static final String ATTR_WALLET = "wallet";
+    private static final String ATTR_CART_CHANGES = "cartChanges";
+    private static final String ATTR_QUEUE_POSITION = "queuePosition";
+    private static final String ATTR_RETRY_AFTER = "retryAfter";
 
     // Constants for error messages
     private static final String MSG_ORDER_SUCCESS = "Order Success";
     private static final String MSG_ORDER_FAIL = "Order Fail";
     private static final String MSG_INSUFFICIENT_BALANCE = "The balance in the account is not enough to make this transaction";
     private static final String MSG_NETWORK_ERROR = "Check your network status again";
+    private static final String MSG_CART_CHANGED = "Some items in your cart have changed. Please review your cart and place the order again";
+    private static final String MSG_CART_EMPTIED = "The items in your cart are no longer available";
+    private static final String MSG_CHECKOUT_BUSY_QUEUE = "Many customers are checking out right now (you were #%d in line). Please try again in %d seconds";
+    private static final String MSG_CHECKOUT_BUSY = "%s. Please try again in %d seconds";
+
+    private final CartService cartService = new CartService();
 
     /**
      * Processes requests for both HTTP <code>GET</code> and <code>POST</code>
@@ -145,6 +156,7 @@ public class ViewCartServlet extends HttpServlet {
 
             boolean removed = cart.removeItem(productId);
             if (removed) {
+                CartPersistence.getInstance().cartChanged(session);
                 LOGGER.log(Level.INFO, "Removed product ID {0} from cart", productId);
             } else {
                 LOGGER.log(Level.WARNING, "Product ID {0} not found in cart", productId);
@@ -159,12 +171,10 @@ public class ViewCartServlet extends HttpServlet {
      * Update cart session attributes
      */
     private void updateCartSessionAttributes(HttpSession session, Cart cart) {
-        List<Item> list = cart.getListItems();
         session.setAttribute(ATTR_CART, cart);
-        session.setAttribute(ATTR_LIST_ITEMS, list);
-        session.setAttribute(ATTR_CART_SIZE, list.size());
 
-        LOGGER.log(Level.INFO, "Updated cart session attributes - size: {0}", list.size());
+        LOGGER.log(Level.INFO, "Updated cart session attributes - size: {0}, footprint: {1} bytes",
+                  new Object[]{cart.getProductCount(), cart.estimateSizeBytes()});
     }
 
     /**
@@ -192,6 +202,9 @@ public class ViewCartServlet extends HttpServlet {
             // Validate cart contents
             validateCartForCheckout(cart);
 
+            // Reject stale prices or stock before any lock is taken
+            revalidateCart(cart, session, request);
+
             // Check balance
             double totalAmount = cart.getFinalTotal();
             checkSufficientBalance(wallet, totalAmount, user);
@@ -199,6 +212,14 @@ public class ViewCartServlet extends HttpServlet {
             // Process order
             processOrder(cart, user, wallet, session, request, response);
 
+        } catch (CheckoutBusyException e) {
+            LOGGER.log(Level.INFO, "Checkout not admitted for IP {0}: {1}", new Object[]{clientIP, e.getMessage()});
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+            request.setAttribute(ATTR_QUEUE_POSITION, e.getPosition());
+            request.setAttribute(ATTR_RETRY_AFTER, e.getRetryAfterSeconds());
+            setErrorAttributes(request, MSG_ORDER_FAIL, busyMessage(e));
+            request.getRequestDispatcher("viewcart.jsp").forward(request, response);
         } catch (ValidationException e) {
             LOGGER.log(Level.WARNING, "Validation error during checkout: {0}", e.getMessage());
             setErrorAttributes(request, MSG_ORDER_FAIL, e.getMessage());
@@ -241,10 +262,11 @@ public class ViewCartServlet extends HttpServlet {
     }
 
     /**
-     * Validate and get wallet from session
+     * Validate and get wallet through the session's profile handle
      */
     private Wallet validateAndGetWallet(HttpSession session) {
-        Wallet wallet = (Wallet) session.getAttribute(ATTR_WALLET);
+        UserProfile profile = UserProfile.of(session);
+        Wallet wallet = profile != null ? profile.getWallet() : null;
         if (wallet == null) {
             throw new ValidationException("Wallet not found", "wallet");
         }
@@ -262,6 +284,30 @@ public class ViewCartServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Revalidate the cart against current prices and stock; on any change the corrected
+     * cart is kept and the differences are exposed to the page as "cartChanges"
+     */
+    private void revalidateCart(Cart cart, HttpSession session, HttpServletRequest request) {
+        List<CartChange> changes = cartService.revalidateForCheckout(cart);
+        if (changes.isEmpty()) {
+            return;
+        }
+        CartPersistence.getInstance().cartChanged(session);
+        request.setAttribute(ATTR_CART_CHANGES, changes);
+        throw new ValidationException(cart.isEmpty() ? MSG_CART_EMPTIED : MSG_CART_CHANGED, "cart");
+    }
+
+    /**
+     * Message shown when a checkout is turned away by admission control
+     */
+    private String busyMessage(CheckoutBusyException e) {
+        if (e.getPosition() > 0) {
+            return String.format(MSG_CHECKOUT_BUSY_QUEUE, e.getPosition(), e.getRetryAfterSeconds());
+        }
+        return String.format(MSG_CHECKOUT_BUSY, e.getMessage(), e.getRetryAfterSeconds());
+    }
+
     /**
      * Check if user has sufficient balance
      */
@@ -290,31 +336,41 @@ public class ViewCartServlet extends HttpServlet {
         LOGGER.log(Level.INFO, "Processing order for user {0}, amount: {1}",
                   new Object[]{user.getUserName(), totalAmount});
 
-        // Use synchronized block to prevent race conditions
-        synchronized (this) {
-            try {
+        // Queued per product instead of one lock for every checkout; one attempt per user at a time
+        Wallet currentWallet;
+        try {
+            currentWallet = CheckoutAdmission.getInstance().submit(user.getUserName(), cart.getProductIds(), () -> {
                 // Double-check balance before processing
-                Wallet currentWallet = walletDAO.getWalletByUserName(user.getUserName());
-                if (currentWallet == null) {
+                Wallet latest = walletDAO.getWalletByUserName(user.getUserName());
+                if (latest == null) {
                     throw new PaymentException("Wallet not found during order processing",
                                              PaymentException.PaymentErrorCode.GATEWAY_ERROR);
                 }
 
-                if (currentWallet.getBalance() < totalAmount) {
+                if (latest.getBalance() < totalAmount) {
                     throw new PaymentException("Insufficient balance during order processing",
                                              PaymentException.PaymentErrorCode.INSUFFICIENT_BALANCE);
                 }
 
-                // Create order
+                // Create order and charge the wallet before the user's next attempt is admitted
                 orderDAO.addOrder(user, cart);
+                walletDAO.deductionMoney(user.getUserName(), totalAmount);
+                Wallet charged = walletDAO.getWalletByUserName(user.getUserName());
+                return charged != null ? charged : latest;
+            });
+        } catch (CheckoutBusyException e) {
+            throw e;
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Order processing failed for user: " + user.getUserName(), e);
+            throw new DaoException("Order creation failed: " + e.getMessage(), "create", "order", e);
+        }
 
-                // Order successful - proceed with post-processing
-                handleSuccessfulOrder(cart, user, currentWallet, walletDAO, totalAmount, session, request, response);
-
-            } catch (Exception e) {
-                LOGGER.log(Level.SEVERE, "Order processing failed for user: " + user.getUserName(), e);
-                throw new DaoException("Order creation failed: " + e.getMessage(), "create", "order", e);
-            }
+        // Order successful - proceed with post-processing
+        try {
+            handleSuccessfulOrder(cart, user, currentWallet, walletDAO, totalAmount, session, request, response);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Order processing failed for user: " + user.getUserName(), e);
+            throw new DaoException("Order creation failed: " + e.getMessage(), "create", "order", e);
         }
     }
 
@@ -340,19 +396,14 @@ public class ViewCartServlet extends HttpServlet {
                 // Don't fail the whole operation for email issues
             }
 
-            // Update wallet balance (critical operation)
-            walletDAO.deductionMoney(user.getUserName(), totalAmount);
-            wallet = walletDAO.getWalletByUserName(user.getUserName());
+            // Wallet was charged with the order; the profile handle reloads the balance on next use
             if (wallet != null) {
-                session.setAttribute(ATTR_WALLET, wallet);
                 walletUpdated = true;
                 LOGGER.log(Level.INFO, "Wallet updated successfully for user: {0}", user.getUserName());
             }
 
             // Clear cart (critical operation)
             session.removeAttribute(ATTR_CART);
-            session.removeAttribute(ATTR_LIST_ITEMS);
-            session.setAttribute(ATTR_CART_SIZE, 0);
 
             LOGGER.log(Level.INFO, "Order completed successfully for user: {0}", user.getUserName());
 
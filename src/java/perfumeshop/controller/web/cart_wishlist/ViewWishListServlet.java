@@ -4,7 +4,6 @@
  */
 package perfumeshop.controller.web.cart_wishlist;
 
-import perfumeshop.dal.ProductDAO;
 import java.io.IOException;
 import java.io.PrintWriter;
 import jakarta.servlet.ServletException;
@@ -13,10 +12,12 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
-import java.util.List;
 import perfumeshop.model.Cart;
 import perfumeshop.model.Item;
 import perfumeshop.model.Product;
+import perfumeshop.service.CartPersistence;
+import perfumeshop.service.ProductCatalog;
+import perfumeshop.service.WishlistService;
 
 /**
  *
@@ -65,26 +66,15 @@ public class ViewWishListServlet extends HttpServlet {
             throws ServletException, IOException {
         HttpSession session = request.getSession();
         // Phan wishlist
-        Cart wishList = null;
-        ProductDAO pd = new ProductDAO();
-        Object w = session.getAttribute("wishList");
-        // Check
-        if (w != null) {
-            wishList = (Cart) w;
-        } else {
-            wishList = new Cart();
-        }
+        WishlistService wishlistService = WishlistService.getInstance();
+        wishlistService.getWishlist(session);
         String tRid = request.getParameter("rid");
         int rid;
         try {
             rid = Integer.parseInt(tRid);
-            wishList.removeItem(rid);
+            wishlistService.remove(session, rid);
         } catch (Exception e) {
         }
-        List<Item> listItemsInWishList = wishList.getListItems();
-        session.setAttribute("wishList", wishList);
-        session.setAttribute("listItemsInWishList", listItemsInWishList);
-        session.setAttribute("wishListSize", listItemsInWishList.size());
 
         request.getRequestDispatcher("viewwishlist.jsp").forward(request, response);
     }
@@ -112,7 +102,6 @@ public class ViewWishListServlet extends HttpServlet {
             cart = new Cart();
         }
 
-        ProductDAO pd = new ProductDAO();
         String role = request.getParameter("role");
         switch (role) {
             case "add": {
@@ -122,35 +111,21 @@ public class ViewWishListServlet extends HttpServlet {
                 try {
                     num = Integer.parseInt(tnum);
                     id = Integer.parseInt(tid);
-                    Product p = pd.getProductByID(id);
+                    Product p = ProductCatalog.getInstance().getProduct(id);
                     Item t = new Item(p, num);
                     cart.addItem(t);
                 } catch (Exception e) {
                 }
-                List<Item> list = cart.getListItems();
                 session.setAttribute("cart", cart);
-                session.setAttribute("listItemsInCart", list);
-                session.setAttribute("cartSize", list.size());
-                //
-                Cart wishList = null;
-                Object w = session.getAttribute("wishList");
-                // Check
-                if (w != null) {
-                    wishList = (Cart) w;
-                } else {
-                    wishList = new Cart();
-                }
+                CartPersistence.getInstance().cartChanged(session);
+                // Moved to the cart: drop it from the wishlist
                 String tRid = request.getParameter("id");
                 int rid;
                 try {
                     rid = Integer.parseInt(tRid);
-                    wishList.removeItem(rid);
+                    WishlistService.getInstance().remove(session, rid);
                 } catch (Exception e) {
                 }
-                List<Item> listItemsInWishList = wishList.getListItems();
-                session.setAttribute("wishList", wishList);
-                session.setAttribute("listItemsInWishList", listItemsInWishList);
-                session.setAttribute("wishListSize", listItemsInWishList.size());
 
                 request.getRequestDispatcher("viewwishlist.jsp").forward(request, response);
                 break;
@@ -163,10 +138,8 @@ public class ViewWishListServlet extends HttpServlet {
                     cart.removeItem(rid);
                 } catch (Exception e) {
                 }
-                List<Item> list = cart.getListItems();
                 session.setAttribute("cart", cart);
-                session.setAttribute("listItemsInCart", list);
-                session.setAttribute("cartSize", list.size());
+                CartPersistence.getInstance().cartChanged(session);
                 request.getRequestDispatcher("viewwishlist.jsp").forward(request, response);
             }
         }
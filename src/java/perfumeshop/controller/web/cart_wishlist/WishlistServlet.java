@@ -7,10 +7,8 @@ import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
-import perfumeshop.dal.ProductDAO;
-import perfumeshop.model.Item;
-import perfumeshop.model.Product;
-import perfumeshop.model.Wishlist;
+import perfumeshop.service.ProductCatalog;
+import perfumeshop.service.WishlistService;
 
 @WebServlet(name = "WishlistServlet", urlPatterns = {"/wishlist"})
 public class WishlistServlet extends HttpServlet {
@@ -18,44 +16,41 @@ public class WishlistServlet extends HttpServlet {
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
         HttpSession session = request.getSession();
-        Wishlist wishlist = null;
-        Object o = session.getAttribute("wishlist");
-
-        if (o != null) {
-            wishlist = (Wishlist) o;
-        } else {
-            wishlist = new Wishlist();
-        }
-
-        ProductDAO pd = new ProductDAO();
+        WishlistService wishlistService = WishlistService.getInstance();
 
         String role = request.getParameter("role");
         switch (role) {
             case "add": {
                 String tid = request.getParameter("id");
-                int id;
                 try {
-                    id = Integer.parseInt(tid);
-                    Product p = pd.getProductByID(id);
-                    Item t = new Item(p, 1); // Quantity is always 1 for wishlist
-                    wishlist.addItem(t);
+                    int id = Integer.parseInt(tid);
+                    if (ProductCatalog.getInstance().getProduct(id) != null) {
+                        wishlistService.add(session, id);
+                    }
+                } catch (Exception e) {
+                }
+                request.getRequestDispatcher("ajax/header_right_ajax.jsp").forward(request, response);
+                break;
+            }
+            case "toggle": {
+                String tid = request.getParameter("id");
+                try {
+                    int id = Integer.parseInt(tid);
+                    if (wishlistService.getWishlist(session).contains(id)
+                            || ProductCatalog.getInstance().getProduct(id) != null) {
+                        wishlistService.toggle(session, id);
+                    }
                 } catch (Exception e) {
                 }
-                session.setAttribute("wishlist", wishlist);
-                session.setAttribute("wishlistSize", wishlist.countItems());
                 request.getRequestDispatcher("ajax/header_right_ajax.jsp").forward(request, response);
                 break;
             }
             case "remove": {
                 String tRid = request.getParameter("rid");
-                int rid;
                 try {
-                    rid = Integer.parseInt(tRid);
-                    wishlist.removeItem(rid);
+                    wishlistService.remove(session, Integer.parseInt(tRid));
                 } catch (Exception e) {
                 }
-                session.setAttribute("wishlist", wishlist);
-                session.setAttribute("wishlistSize", wishlist.countItems());
                 request.getRequestDispatcher("ajax/header_right_ajax.jsp").forward(request, response);
                 break;
             }
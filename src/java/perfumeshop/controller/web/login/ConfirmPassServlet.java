@@ -5,6 +5,7 @@
 package perfumeshop.controller.web.login;
 
 import perfumeshop.dal.UserDAO;
+import perfumeshop.exception.PasswordHashingBusyException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import jakarta.servlet.ServletException;
@@ -81,7 +82,17 @@ public class ConfirmPassServlet extends HttpServlet {
         UserDAO dao = new UserDAO();
         User a = dao.getUserByUserName(username);
         if (cfnewpass.equals(newpass)) {
-            dao.updatePassByUserName(newpass, username);
+            try {
+                dao.updatePassByUserName(newpass, username);
+            } catch (PasswordHashingBusyException e) {
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.setHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+                request.setAttribute("error", "Too many requests right now, please try again in a few seconds.");
+                request.setAttribute("uName", username);
+                request.setAttribute("check", "true");
+                request.getRequestDispatcher("newpassword.jsp").forward(request, response);
+                return;
+            }
             msg = "Change password successfully!";
             request.setAttribute("successfully", msg);
             request.getRequestDispatcher("login.jsp").forward(request, response);
@@ -6,7 +6,6 @@ import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 import com.google.api.client.auth.oauth2.AuthorizationCodeFlow;
 import com.google.api.client.auth.oauth2.AuthorizationCodeTokenRequest;
 import com.google.api.client.auth.oauth2.Credential;
@@ -22,11 +21,8 @@ import com.google.api.services.oauth2.model.Userinfo;
 import java.io.InputStreamReader;
 import java.util.Arrays;
 import perfumeshop.dal.UserDAO;
-import perfumeshop.dal.WalletDAO;
-import perfumeshop.model.Cart;
+import perfumeshop.service.UserSession;
 import perfumeshop.model.User;
-import perfumeshop.model.Wallet;
-import perfumeshop.model.Wishlist;
 
 @WebServlet(name = "GoogleOAuth2CallbackServlet", urlPatterns = {"/google-oauth2-callback"})
 public class GoogleOAuth2CallbackServlet extends HttpServlet {
@@ -88,33 +84,8 @@ public class GoogleOAuth2CallbackServlet extends HttpServlet {
                 user = userDAO.getUserByEmail(googleEmail); // Retrieve the newly created user
             }
 
-            // Invalidate old session and create a new one
-            HttpSession session = request.getSession(false);
-            if (session != null) {
-                session.invalidate();
-            }
-            session = request.getSession(true);
-
-            session.setAttribute("account", user);
-            // Also set other user attributes as needed, similar to LoginServlet
-            WalletDAO wd = new WalletDAO();
-            Wallet wallet = wd.getWalletByUserName(user.getUserName());
-            session.setAttribute("wallet", wallet);
-            session.setAttribute("imageUser", user.getImage());
-            session.setAttribute("address", user.getAddress());
-            session.setAttribute("name", user.getFullName());
-            session.setAttribute("phone", user.getPhone());
-            session.setAttribute("email", user.getEmail());
-            session.setAttribute("birthdate", user.getBirthdate());
-            
-            // Initialize empty cart and wishlist for the new session
-            Cart cart = new Cart();
-            session.setAttribute("cart", cart);
-            session.setAttribute("listItemsInCart", cart.getListItems());
-            session.setAttribute("cartSize", cart.getListItems().size());
-            Wishlist wishlist = new Wishlist();
-            session.setAttribute("wishlist", wishlist);
-            session.setAttribute("wishlistSize", wishlist.countItems());
+            // New session with the saved cart and wishlist, plus the signed identity cookie
+            UserSession.signIn(request, response, user, false);
 
             response.sendRedirect(request.getContextPath() + "/home");
 
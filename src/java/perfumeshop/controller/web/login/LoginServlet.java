@@ -6,7 +6,8 @@
 package perfumeshop.controller.web.login;
 
 import perfumeshop.dal.UserDAO;
-import perfumeshop.dal.WalletDAO;
+import perfumeshop.exception.PasswordHashingBusyException;
+import perfumeshop.service.UserSession;
 import java.io.IOException;
 import java.io.PrintWriter;
 import jakarta.servlet.ServletException;
@@ -15,11 +16,7 @@ import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 import perfumeshop.model.User;
-import perfumeshop.model.Wallet;
-import perfumeshop.model.Cart;
-import perfumeshop.model.Wishlist;
 
 /**
  *
@@ -72,9 +69,6 @@ public class LoginServlet extends HttpServlet {
                 if (arr[i].getName().equals("cUName")) {
                     request.setAttribute("uName", arr[i].getValue());
                 }
-                if (arr[i].getName().equals("pUName")) {
-                    request.setAttribute("uPass", arr[i].getValue());
-                }
                 if (arr[i].getName().equals("reMem")) {
                     request.setAttribute("reMem", arr[i].getValue());
                 }
@@ -99,60 +93,39 @@ public class LoginServlet extends HttpServlet {
         String uPass = request.getParameter("password");
         String remember = request.getParameter("remember");
         UserDAO ud = new UserDAO();
-        WalletDAO wd = new WalletDAO();
-
-        User user = ud.check(uName, uPass);
-        HttpSession session = request.getSession(false); // Get existing session, don't create a new one yet
 
+        User user;
+        try {
+            user = ud.check(uName, uPass);
+        } catch (PasswordHashingBusyException e) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+            request.setAttribute("error", "Too many sign-ins right now, please try again in a few seconds.");
+            request.getRequestDispatcher("login.jsp").forward(request, response);
+            return;
+        }
         if (user == null) {
             request.setAttribute("error", "Username or password invalid!");
             request.getRequestDispatcher("login.jsp").forward(request, response);
         } else {
-            // Invalidate the old session if it exists
-            if (session != null) {
-                session.invalidate();
-            }
-            // Create a new session for the new user
-            session = request.getSession(true);
-
-            Wallet wallet = wd.getWalletByUserName(uName);
-            session.setAttribute("wallet", wallet);
-            session.setAttribute("account", user);
-
-            // Initialize a new empty cart for the new user
-            Cart cart = new Cart();
-            session.setAttribute("cart", cart);
-            session.setAttribute("listItemsInCart", cart.getListItems());
-            session.setAttribute("cartSize", cart.getListItems().size());
-
-            // Initialize a new empty wishlist for the new user
-            Wishlist wishlist = new Wishlist();
-            session.setAttribute("wishlist", wishlist);
-            session.setAttribute("wishlistSize", wishlist.countItems());
+            // New session with the saved cart and wishlist, plus the signed identity cookie
+            UserSession.signIn(request, response, user, remember != null);
 
+            // Only the user name is remembered for the form; the password cookie of older versions is dropped
             Cookie u = new Cookie("cUName", uName);
-            Cookie p = new Cookie("pUName", uPass);
+            Cookie p = new Cookie("pUName", "");
             Cookie r = new Cookie("reMem", remember);
             u.setMaxAge(60 * 60 * 24 * 30 * 3);
+            p.setMaxAge(0);
             if (remember != null) {
-                p.setMaxAge(60 * 60 * 24 * 30 * 3);
                 r.setMaxAge(60 * 60 * 24 * 30 * 3);
             } else {
-                p.setMaxAge(0);
                 r.setMaxAge(0);
             }
 
             response.addCookie(u);
             response.addCookie(r);
             response.addCookie(p);
-            String image = user.getImage();
-
-            session.setAttribute("imageUser", image);
-            session.setAttribute("address", user.getAddress());
-            session.setAttribute("name", user.getFullName());
-            session.setAttribute("phone", user.getPhone());
-            session.setAttribute("email", user.getEmail());
-            session.setAttribute("birthdate", user.getBirthdate());
             response.sendRedirect("home");
         }
     }
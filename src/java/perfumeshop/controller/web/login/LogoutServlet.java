@@ -12,7 +12,7 @@ import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
+import perfumeshop.service.UserSession;
 
 /**
  *
@@ -59,10 +59,8 @@ public class LogoutServlet extends HttpServlet {
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        HttpSession session = request.getSession(false); // Get existing session, don't create a new one
-        if (session != null) {
-            session.invalidate(); // Invalidate the session
-        }
+        // Save pending cart and wishlist changes, drop the session and the identity cookie
+        UserSession.signOut(request, response);
         response.sendRedirect("home");
     }
 
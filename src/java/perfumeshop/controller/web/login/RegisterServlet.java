@@ -7,6 +7,7 @@ package perfumeshop.controller.web.login;
 
 import perfumeshop.dal.UserDAO;
 import perfumeshop.dal.WalletDAO;
+import perfumeshop.exception.PasswordHashingBusyException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import jakarta.servlet.ServletException;
@@ -98,7 +99,15 @@ public class RegisterServlet extends HttpServlet {
         } else {
             System.out.println(birthDate.toString());
             user = new User(uName, fName, uPass, "", uPho, uEmail, "", birthDate, 2);
-            ud.insert(user);
+            try {
+                ud.insert(user);
+            } catch (PasswordHashingBusyException e) {
+                response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                response.setHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+                request.setAttribute("error", "Too many registrations right now, please try again in a few seconds.");
+                request.getRequestDispatcher("register.jsp").forward(request, response);
+                return;
+            }
             wallet = new Wallet(uName, 0);
             wd.addWallet(wallet);
             int slUAfter = ud.getNumberUsers();
@@ -7,6 +7,7 @@ package perfumeshop.controller.web.payment;
 import perfumeshop.dal.OrderDAO;
 import perfumeshop.dal.ProductDAO;
 import perfumeshop.dal.WalletDAO;
+import perfumeshop.exception.CheckoutBusyException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import jakarta.servlet.ServletException;
@@ -21,11 +22,15 @@ import java.text.SimpleDateFormat;
 import java.time.LocalDateTime;
 import java.util.*;
 import perfumeshop.model.Cart;
+import perfumeshop.model.CartChange;
 import perfumeshop.model.Email;
 import perfumeshop.model.Item;
 import perfumeshop.model.Order;
 import perfumeshop.model.User;
 import perfumeshop.model.Wallet;
+import perfumeshop.service.CartPersistence;
+import perfumeshop.service.CartService;
+import perfumeshop.service.CheckoutAdmission;
 import perfumeshop.utils.VNPayDemoUtils;
 
 /**
@@ -227,6 +232,20 @@ public class VNPayPaymentServlet extends HttpServlet {
                 return;
             }
 
+            // Revalidate prices and stock before charging; the forward happens in finally
+            List<CartChange> changes = new CartService().revalidateForCheckout(cart);
+            if (!changes.isEmpty()) {
+                CartPersistence.getInstance().cartChanged(session);
+                StringBuilder detail = new StringBuilder();
+                for (CartChange change : changes) {
+                    detail.append(detail.length() == 0 ? "" : "; ").append(change.getMessage());
+                }
+                request.setAttribute("cartChanges", changes);
+                request.setAttribute("payment_status", "failed");
+                request.setAttribute("error_message", "Giỏ hàng đã thay đổi, vui lòng kiểm tra lại: " + detail);
+                return;
+            }
+
             // Simulate VNPay payment processing with more realistic logic
             Map<String, String> vnpayResponse = VNPayDemoUtils.simulatePaymentResult(0.85); // 85% success rate
 
@@ -255,6 +274,12 @@ public class VNPayPaymentServlet extends HttpServlet {
                 request.setAttribute("vnp_response_code", responseCode);
             }
 
+        } catch (CheckoutBusyException e) {
+            response.setHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+            request.setAttribute("payment_status", "failed");
+            request.setAttribute("retryAfter", e.getRetryAfterSeconds());
+            request.setAttribute("error_message", "Hệ thống đang xử lý nhiều đơn hàng, vui lòng thử lại sau "
+                    + e.getRetryAfterSeconds() + " giây");
         } catch (Exception e) {
             // Log the error for debugging
             System.err.println("Payment processing error: " + e.getMessage());
@@ -278,8 +303,8 @@ public class VNPayPaymentServlet extends HttpServlet {
 
         LocalDateTime currentDateTime = LocalDateTime.now();
 
-        // Use synchronized block to prevent race conditions in order creation
-        synchronized (this) {
+        // Admitted through the per-product checkout queue instead of one lock for every order
+        CheckoutAdmission.getInstance().submit(user.getUserName(), cart.getProductIds(), () -> {
             int ordersBefore = od.getNumberOrders();
             od.addOrder(user, cart);
             int ordersAfter = od.getNumberOrders();
@@ -287,7 +312,8 @@ public class VNPayPaymentServlet extends HttpServlet {
             if (ordersBefore >= ordersAfter) {
                 throw new RuntimeException("Không thể tạo đơn hàng do lỗi hệ thống");
             }
-        }
+            return null;
+        });
 
         try {
             // Send confirmation email
@@ -296,15 +322,11 @@ public class VNPayPaymentServlet extends HttpServlet {
             String message = handleEmail.messageOrder(currentDateTime, totalAmount, user.getAddress());
             handleEmail.sendEmail(subject, message, user.getEmail());
 
-            // Update wallet balance
+            // Update wallet balance; the session's profile handle reloads it on next use
             wd.deductionMoney(user.getUserName(), totalAmount);
-            wallet = wd.getWalletByUserName(user.getUserName());
-            session.setAttribute("wallet", wallet);
 
             // Clear cart
             session.removeAttribute("cart");
-            session.removeAttribute("listItemsInCart");
-            session.setAttribute("cartSize", 0);
 
         } catch (Exception e) {
             // If email or wallet update fails, we should still consider the payment successful
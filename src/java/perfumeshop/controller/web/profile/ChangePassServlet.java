@@ -5,6 +5,8 @@
 package perfumeshop.controller.web.profile;
 
 import perfumeshop.dal.UserDAO;
+import perfumeshop.exception.PasswordHashingBusyException;
+import perfumeshop.service.UserSession;
 import java.io.IOException;
 import java.io.PrintWriter;
 import jakarta.servlet.ServletException;
@@ -12,7 +14,6 @@ import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
 import perfumeshop.model.User;
 
 /**
@@ -79,26 +80,33 @@ public class ChangePassServlet extends HttpServlet {
         String cfnewpass = request.getParameter("cfnewpass");
         String username = request.getParameter("username");
         String msg = "";
-        UserDAO dao = new UserDAO();
-        User a = dao.check(username, oldpass);
-        if (a == null) {
-            msg = "Old password is incorrect";
-            request.setAttribute("error", msg);
-            request.getRequestDispatcher("changepassword.jsp").forward(request, response);
-        } else {
-            if (cfnewpass.equals(newpass)) {
-                User newUser = new User(a.getUserName(), a.getFullName(), newpass, a.getAddress(), a.getPhone(), a.getEmail(), a.getImage(), a.getBirthdate(), a.getRoleID());
-                dao.changePassword(newUser);
-                msg = "Change password successfully!";
-                HttpSession session = request.getSession();
-                session.setAttribute("account", newUser);
-                request.setAttribute("msg", msg);
-                request.getRequestDispatcher("changepassword.jsp").forward(request, response);
-            } else {
-                msg = "New password does not match.";
+        try {
+            UserDAO dao = new UserDAO();
+            User a = dao.check(username, oldpass);
+            if (a == null) {
+                msg = "Old password is incorrect";
                 request.setAttribute("error", msg);
                 request.getRequestDispatcher("changepassword.jsp").forward(request, response);
+            } else {
+                if (cfnewpass.equals(newpass)) {
+                    User newUser = new User(a.getUserName(), a.getFullName(), newpass, a.getAddress(), a.getPhone(), a.getEmail(), a.getImage(), a.getBirthdate(), a.getRoleID());
+                    dao.changePassword(newUser);
+                    msg = "Change password successfully!";
+                    // Other browsers are signed out; this one gets a cookie for the new password
+                    UserSession.passwordChanged(request, response, a.getUserName());
+                    request.setAttribute("msg", msg);
+                    request.getRequestDispatcher("changepassword.jsp").forward(request, response);
+                } else {
+                    msg = "New password does not match.";
+                    request.setAttribute("error", msg);
+                    request.getRequestDispatcher("changepassword.jsp").forward(request, response);
+                }
             }
+        } catch (PasswordHashingBusyException e) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+            request.setAttribute("error", "Too many requests right now, please try again in a few seconds.");
+            request.getRequestDispatcher("changepassword.jsp").forward(request, response);
         }
     }
 
@@ -12,8 +12,6 @@ import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
-import perfumeshop.model.User;
 
 /**
  *
@@ -65,7 +63,6 @@ public class ProfileServlet extends HttpServlet {
         String userId = request.getParameter("uid");
         String link = "";
         String[] arr = null;
-        HttpSession session = request.getSession();
 
         if (imageUpdate != null) {
             arr = imageUpdate.split("_");
@@ -77,16 +74,8 @@ public class ProfileServlet extends HttpServlet {
             link = link.substring(0, link.length() - 1);
         }
 
+        // The session account picks up the change through the profile handle
         ud.updateImage(link, userId);
-        User account = null;
-
-        if (userId != null) {
-            account = ud.getUserByUserName(userId);
-        }
-
-        if (account != null) {
-            session.setAttribute("imageUser", account.getImage());
-        }
 
         request.setAttribute("acceptUpdate", 0);
         request.setAttribute("link", link);
@@ -111,18 +100,10 @@ public class ProfileServlet extends HttpServlet {
         String phone = request.getParameter("phone");
         String email = request.getParameter("email");
         String birthdate = request.getParameter("birthday");
-        HttpSession session = request.getSession();
 
         u.update(name, address, phone, email, birthdate, username);
 
-        User account = u.getUserByUserName(username);
-
         request.setAttribute("acceptUpdate", 1);
-        session.setAttribute("name", account.getFullName());
-        session.setAttribute("address", account.getAddress());
-        session.setAttribute("phone", account.getPhone());
-        session.setAttribute("email", account.getEmail());
-        session.setAttribute("birthdate", account.getBirthdate());
         response.sendRedirect("profile");
     }
 
@@ -13,8 +13,6 @@ import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import jakarta.servlet.http.HttpSession;
-import perfumeshop.model.Wallet;
 
 /**
  *
@@ -58,7 +56,6 @@ public class WalletServlet extends HttpServlet {
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
     throws ServletException, IOException {
-        HttpSession session = request.getSession();
         String userName = request.getParameter("userN");
         String valueStr =  request.getParameter("add");
         double value = 0;
@@ -67,10 +64,8 @@ public class WalletServlet extends HttpServlet {
         } catch (Exception e) {
         }
         WalletDAO wd = new WalletDAO();
-        // udate amount
+        // udate amount; the profile page reloads the balance through the session's profile handle
         wd.inputMoney(userName, value);
-        Wallet wallet = wd.getWalletByUserName(userName);
-        session.setAttribute("wallet", wallet);
         
         request.getRequestDispatcher("profile").forward(request, response);
     } 
@@ -7,6 +7,7 @@ package perfumeshop.controller.web.shop;
 
 import perfumeshop.dal.CategoryDAO;
 import perfumeshop.dal.ProductDAO;
+import perfumeshop.exception.DaoException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.List;
@@ -16,6 +17,9 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import perfumeshop.model.Category;
 import perfumeshop.model.Product;
+import perfumeshop.utils.CacheRegion;
+import perfumeshop.utils.CacheUtils;
+import perfumeshop.utils.CatalogEvents;
 
 /**
  *
@@ -23,6 +27,22 @@ import perfumeshop.model.Product;
  */
 public class HomeServlet extends HttpServlet {
 
+    // The lists every home page shows, shared between requests; featured products stay
+    // per request since they are picked at random
+    private static final CacheRegion HOME_LISTS = CacheUtils.defineRegion("home", 16, 60_000, 0, 5 * 60_000);
+
+    private final CatalogEvents.Listener catalogListener = productId -> HOME_LISTS.clear();
+
+    @Override
+    public void init() throws ServletException {
+        CatalogEvents.register(catalogListener);
+    }
+
+    @Override
+    public void destroy() {
+        CatalogEvents.unregister(catalogListener);
+    }
+
     /**
      * Processes requests for both HTTP <code>GET</code> and <code>POST</code>
      * methods.
@@ -61,15 +81,27 @@ public class HomeServlet extends HttpServlet {
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
-        CategoryDAO d = new CategoryDAO();
-        ProductDAO p = new ProductDAO();
-        List<Category> categories = d.getAll();
-        List<Product> productsYear = p.getAll();
-        List<Product> productsTop5Sellers = p.getTopBestSellers("5");
-        List<Product> giftSets = p.getGiflSets();
-        List<Product> listAll = p.getAll();
-        List<Product> productFooter1 = p.getFeaturedProducts();
-        List<Product> productFooter2 = p.getFeaturedProducts();
+        List<Category> categories = homeList("categories", key -> {
+            try (CategoryDAO dao = new CategoryDAO()) {
+                return dao.getAll();
+            }
+        }, List.of());
+        List<Product> listAll = homeList("products", key -> {
+            try (ProductDAO dao = new ProductDAO()) {
+                return dao.getAll();
+            }
+        }, List.of());
+        List<Product> productsYear = listAll;
+        List<Product> productsTop5Sellers = homeList("topSellers", key -> {
+            try (ProductDAO dao = new ProductDAO()) {
+                return dao.getTopBestSellers("5");
+            }
+        }, List.of());
+        List<Product> giftSets = homeList("giftSets", key -> {
+            try (ProductDAO dao = new ProductDAO()) {
+                return dao.getGiflSets();
+            }
+        }, List.of());
 
         //phan trang
         int page = 1, numPerPage = 9;
@@ -86,11 +118,22 @@ public class HomeServlet extends HttpServlet {
         end = Math.min(page * numPerPage, size);
 
         //Hot product
-        Product spHot = p.getHotDeal();
+        Product spHot = homeList("hotDeal", key -> {
+            try (ProductDAO dao = new ProductDAO()) {
+                return dao.getHotDeal();
+            }
+        }, null);
         Boolean[] chid = new Boolean[categories.size() + 1];
         chid[0] = true;
 
-        List<Product> listByPage = p.getListByPage(listAll, start, end);
+        List<Product> productFooter1;
+        List<Product> productFooter2;
+        List<Product> listByPage;
+        try (ProductDAO p = new ProductDAO()) {
+            productFooter1 = p.getFeaturedProducts();
+            productFooter2 = p.getFeaturedProducts();
+            listByPage = p.getListByPage(listAll, start, end);
+        }
 
         request.setAttribute("chid", chid);
         request.setAttribute("listAll", listAll);
@@ -107,6 +150,25 @@ public class HomeServlet extends HttpServlet {
         request.getRequestDispatcher("home.jsp").forward(request, response);
     }
 
+    /**
+     * Read a home list through the cache. These DAO methods log SQL errors and return an
+     * empty list or null, so such a result is treated as a failed load: the region then
+     * serves its stale copy, and with none the page shows the empty value.
+     */
+    private static <T> T homeList(String key, CacheRegion.Loader<T> loader, T empty) {
+        try {
+            return HOME_LISTS.get(key, k -> {
+                T value = loader.load(k);
+                if (value == null || (value instanceof List && ((List<?>) value).isEmpty())) {
+                    throw new DaoException("Home list " + k + " came back empty", "retrieve", "home");
+                }
+                return value;
+            });
+        } catch (DaoException e) {
+            return empty;
+        }
+    }
+
     /**
      * Handles the HTTP <code>POST</code> method.
      *
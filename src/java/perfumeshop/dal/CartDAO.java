@@ -0,0 +1,172 @@
+package perfumeshop.dal;
+
+import perfumeshop.model.Cart;
+import perfumeshop.model.Item;
+import perfumeshop.model.Product;
+import perfumeshop.utils.DBContext;
+import perfumeshop.exception.DaoException;
+import perfumeshop.exception.ValidationException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Data Access Object for carts persisted per user.
+ * The table is created by database/schema_updates.sql.
+ * @author PerfumeShop Team
+ */
+public class CartDAO extends DBContext {
+
+    private static final Logger LOGGER = Logger.getLogger(CartDAO.class.getName());
+
+    private static final String SELECT_CART_SQL =
+        "SELECT [ProductID], [Quantity], [UnitPrice], [ListPrice] FROM [dbo].[CartItems] "
+        + "WHERE [UserName] = ? ORDER BY [Position]";
+    private static final String DELETE_CART_SQL =
+        "DELETE FROM [dbo].[CartItems] WHERE [UserName] = ?";
+    private static final String INSERT_LINE_SQL =
+        "INSERT INTO [dbo].[CartItems] ([UserName], [ProductID], [Quantity], [UnitPrice], [ListPrice], [Position]) "
+        + "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_CHECKOUT_PRODUCTS_SQL =
+        "SELECT [ProductID], [ProductName], [UnitPrice], [Discount], [UnitsInStock] FROM [dbo].[Products]";
+
+    /**
+     * Load a user's saved cart
+     * @param userName User name
+     * @return Saved cart (empty if none)
+     * @throws ValidationException if userName is empty
+     * @throws DaoException if database operation fails
+     */
+    public Cart getCart(String userName) {
+        validateUserName(userName);
+
+        Cart cart = new Cart();
+        try (PreparedStatement st = connection.prepareStatement(SELECT_CART_SQL)) {
+            st.setString(1, userName);
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    // Only the ID and list price are kept by the cart; display data comes from the catalog
+                    Product product = new Product();
+                    product.setId(rs.getInt("ProductID"));
+                    product.setPrice(rs.getDouble("ListPrice"));
+                    Item item = new Item();
+                    item.setProduct(product);
+                    item.setQuantity(rs.getInt("Quantity"));
+                    item.setPrice(rs.getDouble("UnitPrice"));
+                    cart.addItem(item);
+                }
+            }
+            return cart;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error loading cart for user: " + userName, e);
+            throw new DaoException("Failed to load cart", "retrieve", "cart", e);
+        }
+    }
+
+    /**
+     * Replace a user's saved cart with the given contents in one transaction
+     * @param userName User name
+     * @param cart Cart to save; an empty cart deletes the saved one
+     * @throws ValidationException if parameters are invalid
+     * @throws DaoException if database operation fails
+     */
+    public void saveCart(String userName, Cart cart) {
+        validateUserName(userName);
+        if (cart == null) {
+            throw new ValidationException("Cart cannot be null", "cart");
+        }
+
+        try {
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement st = connection.prepareStatement(DELETE_CART_SQL)) {
+                st.setString(1, userName);
+                st.executeUpdate();
+            }
+
+            if (!cart.isEmpty()) {
+                int[] productIds = cart.getProductIds();
+                try (PreparedStatement st = connection.prepareStatement(INSERT_LINE_SQL)) {
+                    for (int i = 0; i < productIds.length; i++) {
+                        st.setString(1, userName);
+                        st.setInt(2, productIds[i]);
+                        st.setInt(3, cart.getQuantityByID(productIds[i]));
+                        st.setDouble(4, cart.getUnitPriceByID(productIds[i]));
+                        st.setDouble(5, cart.getListPriceByID(productIds[i]));
+                        st.setInt(6, i);
+                        st.addBatch();
+                    }
+                    st.executeBatch();
+                }
+            }
+
+            connection.commit();
+            LOGGER.log(Level.FINE, "Saved cart of {0} with {1} lines", new Object[]{userName, cart.getProductCount()});
+
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackEx) {
+                LOGGER.log(Level.SEVERE, "Error rolling back cart save", rollbackEx);
+            }
+            LOGGER.log(Level.SEVERE, "Error saving cart for user: " + userName, e);
+            throw new DaoException("Failed to save cart", "update", "cart", e);
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Error resetting auto-commit", e);
+            }
+        }
+    }
+
+    /**
+     * Read current name, price, discount and stock of several products with one query
+     * @param productIds Product IDs
+     * @return Products by ID (quantity holds UnitsInStock); missing IDs are absent
+     * @throws DaoException if database operation fails
+     */
+    public Map<Integer, Product> getCheckoutProducts(int[] productIds) {
+        Map<Integer, Product> products = new HashMap<>();
+        if (productIds == null || productIds.length == 0) {
+            return products;
+        }
+
+        StringBuilder sql = new StringBuilder(SELECT_CHECKOUT_PRODUCTS_SQL).append(" WHERE [ProductID] IN (");
+        for (int i = 0; i < productIds.length; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+
+        try (PreparedStatement st = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < productIds.length; i++) {
+                st.setInt(i + 1, productIds[i]);
+            }
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    Product product = new Product();
+                    product.setId(rs.getInt("ProductID"));
+                    product.setName(rs.getString("ProductName"));
+                    product.setPrice(rs.getDouble("UnitPrice"));
+                    product.setDiscount(rs.getDouble("Discount"));
+                    product.setQuantity(rs.getInt("UnitsInStock"));
+                    products.put(product.getId(), product);
+                }
+            }
+            return products;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error reading products for checkout", e);
+            throw new DaoException("Failed to read products for checkout", "retrieve", "products", e);
+        }
+    }
+
+    private void validateUserName(String userName) {
+        if (userName == null || userName.trim().isEmpty()) {
+            throw new ValidationException("User name cannot be empty", "userName");
+        }
+    }
+}
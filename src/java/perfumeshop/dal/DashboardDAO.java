@@ -0,0 +1,47 @@
+package perfumeshop.dal;
+
+import perfumeshop.model.DashboardSnapshot;
+import perfumeshop.utils.DBContext;
+import perfumeshop.exception.DaoException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Data Access Object for the admin dashboard counters
+ * @author PerfumeShop Team
+ */
+public class DashboardDAO extends DBContext {
+
+    private static final Logger LOGGER = Logger.getLogger(DashboardDAO.class.getName());
+
+    // All dashboard counters in one round trip; revenue comes from the daily rollup
+    private static final String SNAPSHOT_SQL =
+        "SELECT (SELECT ISNULL(SUM([UnitsInStock]), 0) FROM [dbo].[Products]), "
+        + "(SELECT COUNT(*) FROM [dbo].[Products]), "
+        + "(SELECT COUNT(*) FROM [dbo].[Users] WHERE [status] = 1), "
+        + "(SELECT COUNT(*) FROM [dbo].[Suppliers]), "
+        + "(SELECT ISNULL(SUM([QuantitySold]), 0) FROM [dbo].[Products]), "
+        + "(SELECT ISNULL(SUM([Revenue]), 0) FROM [dbo].[DailyRevenue] WHERE [CategoryID] = "
+        + RevenueRollupDAO.ALL_CATEGORIES + ")";
+
+    /**
+     * Compute all dashboard counters with a single query
+     * @return Fresh snapshot
+     * @throws DaoException if database operation fails
+     */
+    public DashboardSnapshot getSnapshot() {
+        try (PreparedStatement st = connection.prepareStatement(SNAPSHOT_SQL);
+             ResultSet rs = st.executeQuery()) {
+            rs.next();
+            return new DashboardSnapshot(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4),
+                                         rs.getInt(5), rs.getDouble(6), LocalDateTime.now());
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error computing dashboard snapshot", e);
+            throw new DaoException("Failed to compute dashboard snapshot", "read", "dashboard", e);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package perfumeshop.dal;
+
+import perfumeshop.utils.DBContext;
+import perfumeshop.exception.DaoException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Data Access Object for flash-sale stock.
+ * <p>
+ * Products in flash-sale mode are listed in FlashSaleProducts. Orders for them do not
+ * update the product row; they append their quantities to FlashSaleConsumption inside the
+ * order transaction, and {@link #applyConsumption()} folds the journal into
+ * Products.UnitsInStock in one short transaction. UnitsInStock minus the journal is
+ * therefore always the true stock, including after a crash.
+ * The tables are created by database/schema_updates.sql.
+ * @author PerfumeShop Team
+ */
+public class FlashSaleDAO extends DBContext {
+
+    private static final Logger LOGGER = Logger.getLogger(FlashSaleDAO.class.getName());
+
+    private static final String SELECT_PRODUCTS_SQL =
+        "SELECT [ProductID] FROM [dbo].[FlashSaleProducts]";
+    private static final String INSERT_PRODUCT_SQL =
+        "INSERT INTO [dbo].[FlashSaleProducts] ([ProductID]) "
+        + "SELECT ? WHERE EXISTS (SELECT 1 FROM [dbo].[Products] WHERE [ProductID] = ?) "
+        + "AND NOT EXISTS (SELECT 1 FROM [dbo].[FlashSaleProducts] WHERE [ProductID] = ?)";
+    private static final String DELETE_PRODUCT_SQL =
+        "DELETE FROM [dbo].[FlashSaleProducts] WHERE [ProductID] = ?";
+    // Locking read, so an order still updating the row is waited for even under snapshot isolation
+    private static final String SELECT_STOCK_SQL =
+        "SELECT p.[ProductID], p.[UnitsInStock] - ISNULL("
+        + "(SELECT SUM(c.[Quantity]) FROM [dbo].[FlashSaleConsumption] c WHERE c.[ProductID] = p.[ProductID]), 0) AS Available "
+        + "FROM [dbo].[Products] p WITH (READCOMMITTEDLOCK) WHERE p.[ProductID] = ?";
+    private static final String INSERT_CONSUMPTION_SQL =
+        "INSERT INTO [dbo].[FlashSaleConsumption] ([ProductID], [OrderID], [Quantity]) VALUES (?, ?, ?)";
+    // Applies exactly the rows it deletes, so entries committed meanwhile wait for the next round
+    private static final String APPLY_CONSUMPTION_SQL =
+        "SET NOCOUNT ON; "
+        + "DECLARE @applied TABLE ([ProductID] int, [Quantity] int); "
+        + "DELETE FROM [dbo].[FlashSaleConsumption] OUTPUT deleted.[ProductID], deleted.[Quantity] INTO @applied; "
+        + "UPDATE p SET p.[UnitsInStock] = p.[UnitsInStock] - c.Quantity, p.[QuantitySold] = p.[QuantitySold] + c.Quantity "
+        + "FROM [dbo].[Products] p JOIN (SELECT [ProductID], SUM([Quantity]) AS Quantity FROM @applied GROUP BY [ProductID]) c "
+        + "ON c.[ProductID] = p.[ProductID]; "
+        + "SELECT COUNT(*) FROM @applied;";
+
+    /**
+     * Get the products in flash-sale mode
+     * @return Product IDs
+     * @throws DaoException if database operation fails
+     */
+    public int[] getProductIds() {
+        int[] ids = new int[8];
+        int count = 0;
+        try (PreparedStatement st = connection.prepareStatement(SELECT_PRODUCTS_SQL);
+             ResultSet rs = st.executeQuery()) {
+            while (rs.next()) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = rs.getInt(1);
+            }
+            return Arrays.copyOf(ids, count);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error loading flash-sale products", e);
+            throw new DaoException("Failed to load flash-sale products", "retrieve", "flash sale", e);
+        }
+    }
+
+    /**
+     * Put a product in or out of flash-sale mode
+     * @param productId Product ID
+     * @param enabled true to enable
+     * @throws DaoException if database operation fails
+     */
+    public void setEnabled(int productId, boolean enabled) {
+        try (PreparedStatement st = connection.prepareStatement(enabled ? INSERT_PRODUCT_SQL : DELETE_PRODUCT_SQL)) {
+            st.setInt(1, productId);
+            if (enabled) {
+                st.setInt(2, productId);
+                st.setInt(3, productId);
+            }
+            st.executeUpdate();
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error updating flash-sale mode for product: " + productId, e);
+            throw new DaoException("Failed to update flash-sale mode", "update", "flash sale", e);
+        }
+    }
+
+    /**
+     * Get the true available stock of products: UnitsInStock minus unapplied consumption
+     * @param productIds Product IDs
+     * @return Available stock by product ID; missing products are absent
+     * @throws DaoException if database operation fails
+     */
+    public Map<Integer, Integer> getAvailableStock(int[] productIds) {
+        Map<Integer, Integer> stock = new HashMap<>();
+        try (PreparedStatement st = connection.prepareStatement(SELECT_STOCK_SQL)) {
+            for (int productId : productIds) {
+                st.setInt(1, productId);
+                try (ResultSet rs = st.executeQuery()) {
+                    if (rs.next()) {
+                        stock.put(rs.getInt("ProductID"), Math.max(0, rs.getInt("Available")));
+                    }
+                }
+            }
+            return stock;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error reading flash-sale stock", e);
+            throw new DaoException("Failed to read flash-sale stock", "retrieve", "flash sale", e);
+        }
+    }
+
+    /**
+     * Record quantities taken by an order from flash-sale stock.
+     * Must run on the order transaction's connection.
+     * @param conn Transaction connection
+     * @param orderId Order ID
+     * @param productIds Product IDs
+     * @param quantities Quantity per product
+     * @param count Number of entries to record
+     * @throws SQLException if the insert fails
+     */
+    static void recordConsumption(Connection conn, int orderId, int[] productIds, int[] quantities, int count)
+            throws SQLException {
+        try (PreparedStatement st = conn.prepareStatement(INSERT_CONSUMPTION_SQL)) {
+            for (int i = 0; i < count; i++) {
+                st.setInt(1, productIds[i]);
+                st.setInt(2, orderId);
+                st.setInt(3, quantities[i]);
+                st.addBatch();
+            }
+            st.executeBatch();
+        }
+    }
+
+    /**
+     * Fold the consumption journal into product stock and sold counts
+     * @return Number of journal entries applied
+     * @throws DaoException if database operation fails
+     */
+    public int applyConsumption() {
+        try {
+            connection.setAutoCommit(false);
+            int applied;
+            try (PreparedStatement st = connection.prepareStatement(APPLY_CONSUMPTION_SQL);
+                 ResultSet rs = st.executeQuery()) {
+                applied = rs.next() ? rs.getInt(1) : 0;
+            }
+            connection.commit();
+            return applied;
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackEx) {
+                LOGGER.log(Level.SEVERE, "Error during rollback", rollbackEx);
+            }
+            LOGGER.log(Level.SEVERE, "Error applying flash-sale consumption", e);
+            throw new DaoException("Failed to apply flash-sale consumption", "update", "flash sale", e);
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Error restoring auto-commit", e);
+            }
+        }
+    }
+}
@@ -1,19 +1,24 @@
 package perfumeshop.dal;
 
 import perfumeshop.utils.DBContext;
+import perfumeshop.utils.OrderEvents;
 import perfumeshop.exception.DaoException;
 import perfumeshop.exception.ValidationException;
+import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import perfumeshop.model.Cart;
-import perfumeshop.model.Item;
 import perfumeshop.model.Order;
+import perfumeshop.model.OrderLine;
 import perfumeshop.model.User;
+import perfumeshop.service.FlashSaleStock;
+import perfumeshop.service.ProductCatalog;
 
 /**
  * Data Access Object for Order entity with improved transaction management and error handling
@@ -31,14 +36,39 @@ public class OrderDAO extends DBContext {
     private static final String INSERT_ORDER_DETAIL_SQL =
         "INSERT INTO [dbo].[OrderDetails] ([OrderID], [ProductID], [Quantity], [UnitPrice], [Discount]) VALUES (?, ?, ?, ?, ?)";
     private static final String UPDATE_PRODUCT_QUANTITY_SQL =
-        "UPDATE Products SET quantity = quantity - ? WHERE id = ? AND quantity >= ?";
+        "UPDATE [dbo].[Products] SET [UnitsInStock] = [UnitsInStock] - ?, [QuantitySold] = [QuantitySold] + ? "
+        + "WHERE [ProductID] = ? AND [UnitsInStock] >= ?";
     private static final String TOTAL_MONEY_MONTH_SQL =
-        "SELECT SUM([TotalMoney]) FROM [Orders] WHERE MONTH([Date]) = ? AND YEAR([Date]) = ?";
+        "SELECT SUM([TotalMoney]) FROM [Orders] WHERE [Date] >= ? AND [Date] < ?";
     private static final String TOTAL_MONEY_WEEK_SQL =
         "SELECT SUM(TotalMoney) FROM Orders WHERE DAY([Date]) BETWEEN ? AND ? AND MONTH([Date]) = ? AND YEAR([Date]) = ? AND DATEPART(dw, [Date]) = ?";
     private static final String TOTAL_ALL_MONEY_SQL = "SELECT SUM([TotalMoney]) FROM Orders";
     private static final String SELECT_ALL_ORDERS_SQL = "SELECT * FROM Orders ORDER BY status ASC";
-    private static final String UPDATE_STATUS_SQL = "UPDATE [dbo].[Orders] SET [status] = ? WHERE [OrderID] = ?";
+    private static final String SELECT_ORDERS_BY_ID_SQL =
+        "SELECT [OrderID], [Date], [UserName], [TotalMoney], [status] FROM [dbo].[Orders] ORDER BY [OrderID]";
+    private static final String UPDATE_STATUS_SQL =
+        "UPDATE [dbo].[Orders] SET [status] = 1 WHERE [OrderID] = ? AND [status] = 0";
+    private static final String SELECT_ORDER_LINES_SQL =
+        "SELECT o.[OrderID], o.[Date], o.[UserName], o.[TotalMoney], o.[status], "
+        + "d.[ProductID], d.[Quantity], d.[UnitPrice], d.[Discount] "
+        + "FROM [dbo].[Orders] o LEFT JOIN [dbo].[OrderDetails] d ON d.[OrderID] = o.[OrderID] "
+        + "WHERE o.[Date] >= ? AND o.[Date] < ? ORDER BY o.[OrderID]";
+
+    // Rows fetched per round trip when streaming exports
+    private static final int EXPORT_FETCH_SIZE = 500;
+
+    /**
+     * Callback receiving order lines one at a time while an export is streaming
+     */
+    public interface OrderLineHandler {
+        /**
+         * Handle one row. The same OrderLine instance is reused for every row,
+         * so copy it if it must outlive the call.
+         * @param line Current order line
+         * @throws IOException if writing the row fails
+         */
+        void handle(OrderLine line) throws IOException;
+    }
 
     /**
      * Get total number of orders in the system
@@ -86,6 +116,9 @@ public class OrderDAO extends DBContext {
         LOGGER.log(Level.INFO, "Creating order for user: {0}, cart items: {1}",
                   new Object[]{user.getUserName(), cart.getProductCount()});
 
+        // Flash-sale products are taken from in-memory stock before any row lock
+        FlashSaleStock.Reservation reservation = FlashSaleStock.getInstance().reserve(cart);
+
         Connection conn = null;
         try {
             conn = connection;
@@ -99,18 +132,42 @@ public class OrderDAO extends DBContext {
             // Insert order details
             insertOrderDetails(conn, orderId, cart);
 
-            // Update product quantities
-            updateProductQuantities(conn, cart);
+            // Update product quantities; flash-sale lines are journaled instead
+            updateProductQuantities(conn, cart, reservation);
+            if (!reservation.isEmpty()) {
+                int[] reserved = reservation.getProductIds();
+                FlashSaleDAO.recordConsumption(conn, orderId, reserved, reservation.getQuantities(), reserved.length);
+            }
+
+            // Journal the order for the daily revenue rollup; folded in after commit
+            RevenueRollupDAO.recordNewOrder(conn, orderId);
 
             conn.commit(); // Commit transaction
+            reservation.commit();
+            // Cached products carry UnitsInStock, which this order just lowered
+            int[] sold = cart.getProductIds();
+            int[] quantities = new int[sold.length];
+            for (int i = 0; i < sold.length; i++) {
+                quantities[i] = cart.getQuantityByID(sold[i]);
+            }
+            ProductCatalog.getInstance().stockSold(sold, quantities);
             LOGGER.log(Level.INFO, "Order created successfully with ID: {0}", orderId);
 
+            OrderEvents.fireOrderCreated(new Order(orderId, orderDate, user.getUserName(), cart.getTotalMoney(), false),
+                                         cart.getTotalQuantity());
+
+        } catch (ValidationException e) {
+            rollbackTransaction(conn);
+            reservation.cancel();
+            throw e;
         } catch (SQLException e) {
             rollbackTransaction(conn);
+            reservation.cancel();
             LOGGER.log(Level.SEVERE, "Database error while creating order", e);
             throw new DaoException("Failed to create order due to database error", "create", "order", e);
         } catch (Exception e) {
             rollbackTransaction(conn);
+            reservation.cancel();
             LOGGER.log(Level.SEVERE, "Unexpected error while creating order", e);
             throw new DaoException("Unexpected error while creating order", "create", "order", e);
         } finally {
@@ -148,12 +205,15 @@ public class OrderDAO extends DBContext {
      */
     private void insertOrderDetails(Connection conn, int orderId, Cart cart) throws SQLException {
         try (PreparedStatement st = conn.prepareStatement(INSERT_ORDER_DETAIL_SQL)) {
-            for (Item item : cart.getListItems()) {
+            // Prices captured in the cart, the same ones TotalMoney is computed from
+            for (int productId : cart.getProductIds()) {
+                double listPrice = cart.getListPriceByID(productId);
+                double unitPrice = cart.getUnitPriceByID(productId);
                 st.setInt(1, orderId);
-                st.setInt(2, item.getProduct().getId());
-                st.setInt(3, item.getQuantity());
-                st.setDouble(4, item.getProduct().getPrice());
-                st.setDouble(5, item.getProduct().getDiscount());
+                st.setInt(2, productId);
+                st.setInt(3, cart.getQuantityByID(productId));
+                st.setDouble(4, listPrice);
+                st.setDouble(5, listPrice > 0 ? 1 - unitPrice / listPrice : 0);
 
                 st.executeUpdate();
             }
@@ -161,21 +221,49 @@ public class OrderDAO extends DBContext {
     }
 
     /**
-     * Update product quantities after order
+     * Update product stock and sold counts after order, in one batch, skipping flash-sale lines.
+     * A product whose flash-sale stock was loaded while this ran fails the order: the load may
+     * have read the row before this update, and its counter would then sell the same units again.
      */
-    private void updateProductQuantities(Connection conn, Cart cart) throws SQLException {
+    private void updateProductQuantities(Connection conn, Cart cart, FlashSaleStock.Reservation reservation)
+            throws SQLException {
+        int[] productIds = cart.getProductIds();
+        int count = 0;
+        for (int productId : productIds) {
+            if (!reservation.contains(productId)) {
+                productIds[count++] = productId;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        productIds = Arrays.copyOf(productIds, count);
+
         try (PreparedStatement st = conn.prepareStatement(UPDATE_PRODUCT_QUANTITY_SQL)) {
-            for (Item item : cart.getListItems()) {
-                st.setInt(1, item.getQuantity());
-                st.setInt(2, item.getProduct().getId());
-                st.setInt(3, item.getQuantity()); // Ensure sufficient quantity
-
-                int affectedRows = st.executeUpdate();
-                if (affectedRows == 0) {
-                    throw new SQLException("Insufficient quantity for product: " + item.getProduct().getName());
+            for (int productId : productIds) {
+                int quantity = cart.getQuantityByID(productId);
+                st.setInt(1, quantity);
+                st.setInt(2, quantity);
+                st.setInt(3, productId);
+                st.setInt(4, quantity); // Ensure sufficient quantity
+                st.addBatch();
+            }
+
+            int[] affectedRows = st.executeBatch();
+            for (int i = 0; i < affectedRows.length; i++) {
+                if (affectedRows[i] == 0) {
+                    throw new SQLException("Insufficient quantity for product: " + productIds[i]);
                 }
             }
         }
+        // The row locks are held now, so a load that has not read them yet will see this order
+        FlashSaleStock flashSale = FlashSaleStock.getInstance();
+        for (int productId : productIds) {
+            if (flashSale.isEnabled(productId)) {
+                throw new ValidationException("Flash sale product " + productId
+                                              + " is being updated, please try again in a moment", "cart");
+            }
+        }
     }
 
     /**
@@ -223,9 +311,10 @@ public class OrderDAO extends DBContext {
 
         LOGGER.log(Level.INFO, "Getting total money for {0}/{1}", new Object[]{month, year});
 
+        LocalDate start = LocalDate.of(year, month, 1);
         try (PreparedStatement st = connection.prepareStatement(TOTAL_MONEY_MONTH_SQL)) {
-            st.setInt(1, month);
-            st.setInt(2, year);
+            st.setTimestamp(1, Timestamp.valueOf(start.atStartOfDay()));
+            st.setTimestamp(2, Timestamp.valueOf(start.plusMonths(1).atStartOfDay()));
 
             try (ResultSet rs = st.executeQuery()) {
                 if (rs.next()) {
@@ -352,7 +441,7 @@ public class OrderDAO extends DBContext {
     }
 
     /**
-     * Update order status
+     * Mark an order as delivered and count it in the revenue rollup
      * @param orderId Order ID to update
      * @throws ValidationException if orderId is invalid
      * @throws DaoException if database operation fails
@@ -364,19 +453,143 @@ public class OrderDAO extends DBContext {
 
         LOGGER.log(Level.INFO, "Updating status for order ID: {0}", orderId);
 
-        try (PreparedStatement st = connection.prepareStatement(UPDATE_STATUS_SQL)) {
-            st.setInt(1, orderId);
+        Connection conn = connection;
+        try {
+            conn.setAutoCommit(false);
 
-            int affectedRows = st.executeUpdate();
+            int affectedRows;
+            try (PreparedStatement st = conn.prepareStatement(UPDATE_STATUS_SQL)) {
+                st.setInt(1, orderId);
+                affectedRows = st.executeUpdate();
+            }
             if (affectedRows == 0) {
-                throw new DaoException("Order not found with ID: " + orderId, "update", "order");
+                conn.rollback();
+                throw new DaoException("Order not found or already delivered, ID: " + orderId, "update", "order");
             }
 
+            RevenueRollupDAO.recordDelivered(conn, orderId);
+
+            conn.commit();
             LOGGER.log(Level.INFO, "Order status updated successfully for ID: {0}", orderId);
 
+            OrderEvents.fireOrderDelivered(orderId);
+
         } catch (SQLException e) {
+            rollbackTransaction(conn);
             LOGGER.log(Level.SEVERE, "Error updating order status", e);
             throw new DaoException("Failed to update order status", "update", "order_status", e);
+        } finally {
+            restoreAutoCommit(conn);
+        }
+    }
+
+    /**
+     * Stream order lines (orders joined with their details) in order ID order without
+     * materializing them. Uses a forward-only, read-only cursor with a bounded fetch size
+     * so heap usage stays constant regardless of how many rows are exported.
+     * @param from Inclusive start date
+     * @param to Exclusive end date
+     * @param handler Callback invoked for every row
+     * @return Number of rows streamed
+     * @throws ValidationException if the date range is invalid
+     * @throws DaoException if database operation fails
+     * @throws IOException if the handler fails to write a row
+     */
+    public long streamOrderLines(LocalDate from, LocalDate to, OrderLineHandler handler) throws IOException {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new ValidationException("Export range must have a start date before its end date", "range");
         }
+        if (handler == null) {
+            throw new ValidationException("Order line handler cannot be null", "handler");
+        }
+
+        LOGGER.log(Level.INFO, "Streaming order lines from {0} to {1}", new Object[]{from, to});
+
+        long rows = 0;
+        try (PreparedStatement st = connection.prepareStatement(SELECT_ORDER_LINES_SQL,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            st.setFetchSize(EXPORT_FETCH_SIZE);
+            st.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+            st.setTimestamp(2, Timestamp.valueOf(to.atStartOfDay()));
+
+            try (ResultSet rs = st.executeQuery()) {
+                rs.setFetchSize(EXPORT_FETCH_SIZE);
+                OrderLine line = new OrderLine();
+                while (rs.next()) {
+                    line.setOrderId(rs.getInt(1));
+                    line.setDate(rs.getTimestamp(2).toLocalDateTime());
+                    line.setUserName(rs.getString(3));
+                    line.setOrderTotal(rs.getDouble(4));
+                    line.setStatus(rs.getBoolean(5));
+                    line.setProductId(rs.getInt(6));
+                    line.setQuantity(rs.getInt(7));
+                    line.setUnitPrice(rs.getDouble(8));
+                    line.setDiscount(rs.getDouble(9));
+
+                    handler.handle(line);
+                    rows++;
+                }
+            }
+
+            LOGGER.log(Level.INFO, "Streamed {0} order lines", rows);
+
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error streaming order lines", e);
+            throw new DaoException("Failed to stream order lines", "export", "order_lines", e);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Callback receiving orders one at a time while they are streaming
+     */
+    public interface OrderHandler {
+        /**
+         * Handle one order. The same Order instance is reused for every row,
+         * so copy what must outlive the call.
+         * @param order Current order
+         */
+        void handle(Order order);
+    }
+
+    /**
+     * Stream every order header in order ID order through a forward-only cursor
+     * @param handler Callback invoked for every order
+     * @return Number of orders streamed
+     * @throws DaoException if database operation fails
+     */
+    public long streamOrders(OrderHandler handler) {
+        if (handler == null) {
+            throw new ValidationException("Order handler cannot be null", "handler");
+        }
+
+        long rows = 0;
+        try (PreparedStatement st = connection.prepareStatement(SELECT_ORDERS_BY_ID_SQL,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            st.setFetchSize(EXPORT_FETCH_SIZE);
+
+            try (ResultSet rs = st.executeQuery()) {
+                Order order = new Order();
+                while (rs.next()) {
+                    order.setOrderId(rs.getInt("OrderID"));
+                    order.setDate(rs.getTimestamp("Date").toLocalDateTime());
+                    order.setUserName(rs.getString("UserName"));
+                    order.setTotal(rs.getDouble("TotalMoney"));
+                    order.setStatus(rs.getBoolean("status"));
+
+                    handler.handle(order);
+                    rows++;
+                }
+            }
+
+            LOGGER.log(Level.INFO, "Streamed {0} orders", rows);
+
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error streaming orders", e);
+            throw new DaoException("Failed to stream orders", "retrieve", "orders", e);
+        }
+
+        return rows;
     }
 }
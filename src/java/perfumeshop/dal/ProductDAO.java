@@ -5,6 +5,7 @@
  */
 package perfumeshop.dal;
 
+import perfumeshop.utils.CatalogEvents;
 import perfumeshop.utils.DBContext;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -659,6 +660,7 @@ public class ProductDAO extends DBContext {
             PreparedStatement st = connection.prepareStatement(sql);
             st.setInt(1, pid);
             st.executeUpdate();
+            CatalogEvents.fireProductChanged(pid);
         } catch (Exception e) {
         }
     }
@@ -697,6 +699,7 @@ public class ProductDAO extends DBContext {
         try {
             PreparedStatement st = connection.prepareStatement(sql);
             st.executeUpdate();
+            CatalogEvents.fireProductChanged(CatalogEvents.UNKNOWN_PRODUCT);
 
         } catch (Exception e) {
 
@@ -736,6 +739,7 @@ public class ProductDAO extends DBContext {
                 st.setDouble(10, discount);
                 st.setInt(11, productID);
                 st.executeUpdate();
+                CatalogEvents.fireProductChanged(productID);
                 return;
             } else {
                 st.setString(7, describe);
@@ -743,6 +747,7 @@ public class ProductDAO extends DBContext {
                 st.setDouble(9, discount);
                 st.setInt(10, productID);
                 st.executeUpdate();
+                CatalogEvents.fireProductChanged(productID);
             }
 
         } catch (Exception e) {
@@ -0,0 +1,321 @@
+package perfumeshop.dal;
+
+import perfumeshop.utils.DBContext;
+import perfumeshop.exception.DaoException;
+import perfumeshop.exception.ValidationException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Data Access Object for the daily revenue rollup.
+ * <p>
+ * One row per day holds revenue (order TotalMoney), order count, items sold and delivered
+ * orders, under CategoryID {@link #ALL_CATEGORIES}; no report reads per-category figures, so
+ * none are kept, and a rebuild drops any left from earlier versions.
+ * Order transactions only append to RevenueJournal ({@link OrderDAO}), so checkouts never
+ * queue on the day's row lock; {@link #applyJournal()} folds the journal into the rollup
+ * in one short transaction, and {@link #rebuild} recomputes days from Orders/OrderDetails.
+ * The tables are created by database/schema_updates.sql.
+ * @author PerfumeShop Team
+ */
+public class RevenueRollupDAO extends DBContext {
+
+    private static final Logger LOGGER = Logger.getLogger(RevenueRollupDAO.class.getName());
+
+    /** Category ID of the whole-shop row */
+    public static final int ALL_CATEGORIES = 0;
+
+    // Journal (appended on the order transaction's connection)
+    private static final String INSERT_JOURNAL_SQL =
+        "INSERT INTO [dbo].[RevenueJournal] ([OrderID], [Delivered]) VALUES (?, ?)";
+    // Applies exactly the rows it deletes, so entries committed meanwhile wait for the next round
+    private static final String APPLY_JOURNAL_SQL =
+        "SET NOCOUNT ON; "
+        + "DECLARE @applied TABLE ([OrderID] int, [Delivered] bit); "
+        + "DELETE FROM [dbo].[RevenueJournal] OUTPUT deleted.[OrderID], deleted.[Delivered] INTO @applied; "
+        + "MERGE [dbo].[DailyRevenue] WITH (HOLDLOCK) AS t "
+        + "USING (SELECT CAST(o.[Date] AS date) AS [Day], SUM(o.[TotalMoney]) AS Revenue, COUNT(*) AS Orders, "
+        + "  ISNULL(SUM(q.ItemsSold), 0) AS ItemsSold "
+        + "  FROM @applied a JOIN [dbo].[Orders] o ON o.[OrderID] = a.[OrderID] "
+        + "  LEFT JOIN (SELECT [OrderID], SUM([Quantity]) AS ItemsSold FROM [dbo].[OrderDetails] GROUP BY [OrderID]) q "
+        + "    ON q.[OrderID] = o.[OrderID] "
+        + "  WHERE a.[Delivered] = 0 GROUP BY CAST(o.[Date] AS date)) AS s "
+        + "ON t.[Day] = s.[Day] AND t.[CategoryID] = 0 "
+        + "WHEN MATCHED THEN UPDATE SET t.[Revenue] = t.[Revenue] + s.Revenue, "
+        + "  t.[OrderCount] = t.[OrderCount] + s.Orders, t.[ItemsSold] = t.[ItemsSold] + s.ItemsSold "
+        + "WHEN NOT MATCHED THEN INSERT ([Day], [CategoryID], [Revenue], [OrderCount], [ItemsSold], [DeliveredOrders]) "
+        + "  VALUES (s.[Day], 0, s.Revenue, s.Orders, s.ItemsSold, 0); "
+        + "UPDATE t SET t.[DeliveredOrders] = t.[DeliveredOrders] + s.Delivered "
+        + "FROM [dbo].[DailyRevenue] t JOIN (SELECT CAST(o.[Date] AS date) AS [Day], COUNT(*) AS Delivered "
+        + "  FROM @applied a JOIN [dbo].[Orders] o ON o.[OrderID] = a.[OrderID] "
+        + "  WHERE a.[Delivered] = 1 GROUP BY CAST(o.[Date] AS date)) s "
+        + "ON t.[Day] = s.[Day] AND t.[CategoryID] = 0; "
+        + "SELECT COUNT(*) FROM @applied;";
+
+    // Rebuild. The journal is locked first and kept locked until commit: its entries for the
+    // range are covered by the recomputation, and new ones wait for it instead of being lost
+    private static final String DELETE_RANGE_JOURNAL_SQL =
+        "DELETE j FROM [dbo].[RevenueJournal] j WITH (TABLOCKX) "
+        + "JOIN [dbo].[Orders] o ON o.[OrderID] = j.[OrderID] WHERE o.[Date] >= ? AND o.[Date] < ?";
+    private static final String DELETE_RANGE_SQL =
+        "DELETE FROM [dbo].[DailyRevenue] WHERE [Day] >= ? AND [Day] < ?";
+    private static final String REBUILD_TOTALS_SQL =
+        "INSERT INTO [dbo].[DailyRevenue] ([Day], [CategoryID], [Revenue], [OrderCount], [ItemsSold], [DeliveredOrders]) "
+        + "SELECT CAST(o.[Date] AS date), 0, SUM(o.[TotalMoney]), COUNT(*), "
+        + "  ISNULL(SUM(q.ItemsSold), 0), SUM(CASE WHEN o.[status] = 1 THEN 1 ELSE 0 END) "
+        + "FROM [dbo].[Orders] o "
+        + "LEFT JOIN (SELECT [OrderID], SUM([Quantity]) AS ItemsSold FROM [dbo].[OrderDetails] GROUP BY [OrderID]) q "
+        + "  ON q.[OrderID] = o.[OrderID] "
+        + "WHERE o.[Date] >= ? AND o.[Date] < ? GROUP BY CAST(o.[Date] AS date)";
+
+    // Reads
+    private static final String COUNT_ROWS_SQL = "SELECT COUNT(*) FROM [dbo].[DailyRevenue]";
+    private static final String FIRST_ORDER_DATE_SQL = "SELECT MIN([Date]) FROM [dbo].[Orders]";
+    private static final String MONTHLY_REVENUE_SQL =
+        "SELECT MONTH([Day]), SUM([Revenue]) FROM [dbo].[DailyRevenue] "
+        + "WHERE [CategoryID] = 0 AND [Day] >= ? AND [Day] < ? GROUP BY MONTH([Day])";
+    private static final String DAILY_REVENUE_SQL =
+        "SELECT [Day], [Revenue] FROM [dbo].[DailyRevenue] WHERE [CategoryID] = 0 AND [Day] >= ? AND [Day] < ?";
+    private static final String TOTAL_REVENUE_SQL =
+        "SELECT SUM([Revenue]) FROM [dbo].[DailyRevenue] WHERE [CategoryID] = 0";
+
+    /**
+     * Journal a freshly inserted order (and its details) for the rollup.
+     * Must run on the connection and transaction that inserted the order.
+     * @param conn Transaction connection
+     * @param orderId Order ID
+     * @throws SQLException if the insert fails
+     */
+    static void recordNewOrder(Connection conn, int orderId) throws SQLException {
+        recordJournal(conn, orderId, false);
+    }
+
+    /**
+     * Journal an order that just moved to delivered.
+     * Must run on the connection and transaction that changed the status.
+     * @param conn Transaction connection
+     * @param orderId Order ID
+     * @throws SQLException if the insert fails
+     */
+    static void recordDelivered(Connection conn, int orderId) throws SQLException {
+        recordJournal(conn, orderId, true);
+    }
+
+    private static void recordJournal(Connection conn, int orderId, boolean delivered) throws SQLException {
+        try (PreparedStatement st = conn.prepareStatement(INSERT_JOURNAL_SQL)) {
+            st.setInt(1, orderId);
+            st.setBoolean(2, delivered);
+            st.executeUpdate();
+        }
+    }
+
+    /**
+     * Fold the journal into the rollup
+     * @return Number of journal entries applied
+     * @throws DaoException if database operation fails
+     */
+    public int applyJournal() {
+        try {
+            connection.setAutoCommit(false);
+            int applied;
+            try (PreparedStatement st = connection.prepareStatement(APPLY_JOURNAL_SQL);
+                 ResultSet rs = st.executeQuery()) {
+                applied = rs.next() ? rs.getInt(1) : 0;
+            }
+            connection.commit();
+            return applied;
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException ex) {
+                LOGGER.log(Level.SEVERE, "Error during rollback", ex);
+            }
+            LOGGER.log(Level.SEVERE, "Error applying revenue journal", e);
+            throw new DaoException("Failed to apply revenue journal", "update", "daily_revenue", e);
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Error restoring auto-commit", e);
+            }
+        }
+    }
+
+    /**
+     * Recompute the rollup for a date range from Orders/OrderDetails in one transaction
+     * @param from Inclusive start date
+     * @param to Exclusive end date
+     * @throws ValidationException if the range is invalid
+     * @throws DaoException if database operation fails
+     */
+    public void rebuild(LocalDate from, LocalDate to) {
+        validateRange(from, to);
+
+        LOGGER.log(Level.INFO, "Rebuilding revenue rollup from {0} to {1}", new Object[]{from, to});
+
+        try {
+            connection.setAutoCommit(false);
+
+            executeRangeUpdate(DELETE_RANGE_JOURNAL_SQL, from, to);
+            executeRangeUpdate(DELETE_RANGE_SQL, from, to);
+            int days = executeRangeUpdate(REBUILD_TOTALS_SQL, from, to);
+
+            connection.commit();
+            LOGGER.log(Level.INFO, "Revenue rollup rebuilt, {0} days with orders", days);
+
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException ex) {
+                LOGGER.log(Level.SEVERE, "Error during rollback", ex);
+            }
+            LOGGER.log(Level.SEVERE, "Error rebuilding revenue rollup", e);
+            throw new DaoException("Failed to rebuild revenue rollup", "rebuild", "daily_revenue", e);
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Error restoring auto-commit", e);
+            }
+        }
+    }
+
+    /**
+     * Rebuild every day since the first order
+     * @throws DaoException if database operation fails
+     */
+    public void rebuildAll() {
+        LocalDate first = getFirstOrderDate();
+        if (first == null) {
+            LOGGER.log(Level.INFO, "No orders yet, nothing to roll up");
+            return;
+        }
+        rebuild(first, LocalDate.now().plusDays(1));
+    }
+
+    /**
+     * Check whether the rollup holds any row
+     * @return true if the table is empty
+     * @throws DaoException if database operation fails
+     */
+    public boolean isEmpty() {
+        try (PreparedStatement st = connection.prepareStatement(COUNT_ROWS_SQL);
+             ResultSet rs = st.executeQuery()) {
+            return !rs.next() || rs.getInt(1) == 0;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error counting rollup rows", e);
+            throw new DaoException("Failed to count rollup rows", "count", "daily_revenue", e);
+        }
+    }
+
+    /**
+     * Get revenue of every month of a year from the rollup (at most 366 rows read)
+     * @param year Year
+     * @return Array of 12 totals, index 0 = January
+     * @throws ValidationException if year is invalid
+     * @throws DaoException if database operation fails
+     */
+    public double[] getMonthlyRevenue(int year) {
+        if (year < 2000 || year > 2100) {
+            throw new ValidationException("Year must be reasonable", "year");
+        }
+
+        LocalDate start = LocalDate.of(year, 1, 1);
+        double[] totals = new double[12];
+        try (PreparedStatement st = connection.prepareStatement(MONTHLY_REVENUE_SQL)) {
+            st.setDate(1, Date.valueOf(start));
+            st.setDate(2, Date.valueOf(start.plusYears(1)));
+
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    totals[rs.getInt(1) - 1] = rs.getDouble(2);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error reading monthly revenue rollup", e);
+            throw new DaoException("Failed to read monthly revenue", "read", "daily_revenue", e);
+        }
+
+        return totals;
+    }
+
+    /**
+     * Get revenue of every day in a range from the rollup
+     * @param from Inclusive start date
+     * @param to Inclusive end date
+     * @return One total per day, index 0 = from
+     * @throws ValidationException if the range is invalid
+     * @throws DaoException if database operation fails
+     */
+    public double[] getDailyRevenue(LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new ValidationException("Revenue range must have a start date on or before its end date", "range");
+        }
+
+        double[] totals = new double[(int) ChronoUnit.DAYS.between(from, to) + 1];
+        try (PreparedStatement st = connection.prepareStatement(DAILY_REVENUE_SQL)) {
+            st.setDate(1, Date.valueOf(from));
+            st.setDate(2, Date.valueOf(to.plusDays(1)));
+
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    totals[(int) ChronoUnit.DAYS.between(from, rs.getDate(1).toLocalDate())] = rs.getDouble(2);
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error reading daily revenue rollup", e);
+            throw new DaoException("Failed to read daily revenue", "read", "daily_revenue", e);
+        }
+
+        return totals;
+    }
+
+    /**
+     * Get lifetime revenue from the rollup
+     * @return Sum of all order totals
+     * @throws DaoException if database operation fails
+     */
+    public double getTotalRevenue() {
+        try (PreparedStatement st = connection.prepareStatement(TOTAL_REVENUE_SQL);
+             ResultSet rs = st.executeQuery()) {
+            return rs.next() ? rs.getDouble(1) : 0.0;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error reading total revenue rollup", e);
+            throw new DaoException("Failed to read total revenue", "read", "daily_revenue", e);
+        }
+    }
+
+    private LocalDate getFirstOrderDate() {
+        try (PreparedStatement st = connection.prepareStatement(FIRST_ORDER_DATE_SQL);
+             ResultSet rs = st.executeQuery()) {
+            if (rs.next() && rs.getTimestamp(1) != null) {
+                return rs.getTimestamp(1).toLocalDateTime().toLocalDate();
+            }
+            return null;
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error getting first order date", e);
+            throw new DaoException("Failed to get first order date", "retrieve", "orders", e);
+        }
+    }
+
+    private int executeRangeUpdate(String sql, LocalDate from, LocalDate to) throws SQLException {
+        try (PreparedStatement st = connection.prepareStatement(sql)) {
+            st.setDate(1, Date.valueOf(from));
+            st.setDate(2, Date.valueOf(to));
+            return st.executeUpdate();
+        }
+    }
+
+    private void validateRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new ValidationException("Range must have a start date before its end date", "range");
+        }
+    }
+}
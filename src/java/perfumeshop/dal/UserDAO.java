@@ -5,14 +5,21 @@
  */
 package perfumeshop.dal;
 
+import perfumeshop.exception.DaoException;
 import perfumeshop.utils.DBContext;
+import perfumeshop.utils.LoggingUtils;
+import perfumeshop.utils.ProfileVersions;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import perfumeshop.model.Spending;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import perfumeshop.model.User;
+import perfumeshop.service.PasswordHashing;
 
 /**
  *
@@ -20,22 +27,58 @@ import perfumeshop.model.User;
  */
 public class UserDAO extends DBContext {
 
+    private static final Logger LOGGER = LoggingUtils.getLogger(UserDAO.class);
+
+    // Names per IN list; SQL Server accepts at most 2100 parameters per statement
+    private static final int MAX_IN_PARAMETERS = 1000;
+
     public User check(String username, String password) {
-        String sql = "SELECT * FROM Users WHERE userName = ? and password = ? and [status] = 1";
+        String sql = "SELECT * FROM Users WHERE userName = ? and [status] = 1";
+        User u = null;
         try {
             PreparedStatement st = connection.prepareStatement(sql);
             st.setString(1, username);
-            st.setString(2, password);
             ResultSet rs = st.executeQuery();
             if (rs.next()) {
-                User u = new User(rs.getString("userName"), rs.getString("fullName"), rs.getString("password"),
+                u = new User(rs.getString("userName"), rs.getString("fullName"), rs.getString("password"),
                         rs.getString("address"), rs.getString("phone"), rs.getString("email"), rs.getString("Image"), rs.getString("BirthDay"), rs.getInt("roleID"));
-                return u;
             }
         } catch (SQLException e) {
             System.out.println(e);
+            return null;
+        }
+        // Verified off the database, on the hashing pool; unknown users cost the same as wrong passwords
+        PasswordHashing hashing = PasswordHashing.getInstance();
+        String stored = u != null ? u.getPassword() : null;
+        if (!hashing.verify(password, stored)) {
+            return null;
+        }
+        if (hashing.needsRehash(stored)) {
+            // The returned user carries what the row now holds; identity tokens are bound to it
+            u.setPassword(rehash(u.getUserName(), stored, password));
+        }
+        return u;
+    }
+
+    /**
+     * Replace a legacy or outdated stored password after a successful login.
+     * Only applies if the row still holds the value that was verified.
+     * @return Stored value after the attempt
+     */
+    private String rehash(String userName, String stored, String password) {
+        String sql = "update Users set Password = ? where UserName = ? and Password = ?";
+        try {
+            String hash = PasswordHashing.getInstance().hash(password);
+            PreparedStatement st = connection.prepareStatement(sql);
+            st.setString(1, hash);
+            st.setString(2, userName);
+            st.setString(3, stored);
+            return st.executeUpdate() > 0 ? hash : stored;
+        } catch (SQLException | RuntimeException e) {
+            // Login still succeeds; the upgrade is retried next time
+            LOGGER.log(Level.WARNING, "Password rehash failed for user: " + userName, e);
+            return stored;
         }
-        return null;
     }
 
     public int checkAccountAdmin(String userName) {
@@ -96,6 +139,7 @@ public class UserDAO extends DBContext {
             st.setString(2, userName);
 
             st.executeUpdate();
+            ProfileVersions.userChanged(userName);
         } catch (SQLException e) {
             System.out.println(e);
         }
@@ -123,11 +167,36 @@ public class UserDAO extends DBContext {
             st.setString(6, userName);
 
             st.executeUpdate();
+            ProfileVersions.userChanged(userName);
         } catch (SQLException e) {
             System.out.println(e);
         }
     }
 
+    /**
+     * Get an active user, telling a missing account apart from a failed query
+     * @param userName User name
+     * @return User, or null if no active account has this name
+     * @throws DaoException if database operation fails
+     */
+    public User findActiveUser(String userName) {
+        String sql = "SELECT * FROM [dbo].[Users] WHERE [UserName] = ? AND [status] = 1";
+        try (PreparedStatement st = connection.prepareStatement(sql)) {
+            st.setString(1, userName);
+            try (ResultSet rs = st.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new User(rs.getString("userName"), rs.getString("fullName"), rs.getString("password"),
+                        rs.getString("address"), rs.getString("phone"), rs.getString("email"), rs.getString("Image"),
+                        rs.getString("BirthDay"), rs.getInt("roleID"));
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error loading user: " + userName, e);
+            throw new DaoException("Failed to load user", "retrieve", "user", e);
+        }
+    }
+
     public User getUserByUserName(String userName) {
         String sql = "SELECT * FROM [dbo].[Users] where UserName=? and [status] = 1";
         try {
@@ -174,12 +243,13 @@ public class UserDAO extends DBContext {
 "           ,[Phone]\n" +
 "           ,[status])\n" +
 "     VALUES (?,?,?,?,?,?,?,?,?,?)";
+        String hash = PasswordHashing.getInstance().hash(c.getPassword());
         try {
             PreparedStatement st = connection.prepareStatement(sql);
 
             st.setString(1, c.getUserName());
             st.setString(2, c.getFullName());
-            st.setString(3, c.getPassword());
+            st.setString(3, hash);
             st.setInt(4, c.getRoleID());
             st.setString(5, "images/users/user.png");
             st.setString(6, c.getEmail());
@@ -220,11 +290,13 @@ public class UserDAO extends DBContext {
                 + "           ,[status])\n"
                 + "     VALUES\n"
                 + "           (?,?,?,?,?,?,?,?,?)";
+        // Outside the try, which swallows errors: a busy hashing pool must reach the caller
+        String hash = PasswordHashing.getInstance().hash(Password);
         try {
             PreparedStatement st = connection.prepareStatement(sql);
             st.setString(1, UserName);
             st.setString(2, FullName);
-            st.setString(3, Password);
+            st.setString(3, hash);
             st.setString(4, "images/users/user.png");
             st.setInt(5, RoleID);
             st.setString(6, Email);
@@ -242,6 +314,7 @@ public class UserDAO extends DBContext {
             PreparedStatement st = connection.prepareStatement(sql);
             st.setString(1, username);
             st.executeUpdate();
+            ProfileVersions.userChanged(username);
         } catch (Exception e) {
         }
     }
@@ -256,22 +329,42 @@ public class UserDAO extends DBContext {
         }
     }
 
-    public List<Spending> getTop5Customers() {
-        List<Spending> list = new ArrayList<>();
-        String sql = "select top(5) u.*, sum(TotalMoney) as TotalMoney from Orders o inner join Users u on o.UserName = u.UserName and u.status = 1 group by u.Address, "
-                + "u.BirthDay, u.Email, u.FullName, u.UserName, u.Password, u.Image, u.RoleID, u.UserID, u.Phone, u.status\n" + " order by TotalMoney desc";
-        try {
-            PreparedStatement st = connection.prepareStatement(sql);
-            ResultSet rs = st.executeQuery();
-            while (rs.next()) {
-                User user = new User(rs.getString("userName"), rs.getString("fullName"), rs.getString("password"),
-                        rs.getString("address"), rs.getString("phone"), rs.getString("email"), rs.getString("Image"),
-                        rs.getString("BirthDay"), rs.getInt("roleID"));
-                list.add(new Spending(user, rs.getDouble("TotalMoney")));
+    /**
+     * Active users among the given names, looked up in chunks of {@link #MAX_IN_PARAMETERS}
+     * @param userNames User names
+     * @return Users by user name; inactive and unknown names are absent
+     * @throws DaoException if database operation fails
+     */
+    public Map<String, User> getActiveUsersByUserNames(List<String> userNames) {
+        Map<String, User> map = new HashMap<>();
+        if (userNames == null || userNames.isEmpty()) {
+            return map;
+        }
+        for (int from = 0; from < userNames.size(); from += MAX_IN_PARAMETERS) {
+            List<String> chunk = userNames.subList(from, Math.min(from + MAX_IN_PARAMETERS, userNames.size()));
+            StringBuilder sql = new StringBuilder("SELECT * FROM [dbo].[Users] WHERE [status] = 1 AND [UserName] IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(")");
+            try (PreparedStatement st = connection.prepareStatement(sql.toString())) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    st.setString(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = st.executeQuery()) {
+                    while (rs.next()) {
+                        User user = new User(rs.getString("userName"), rs.getString("fullName"), rs.getString("password"),
+                                rs.getString("address"), rs.getString("phone"), rs.getString("email"), rs.getString("Image"),
+                                rs.getString("BirthDay"), rs.getInt("roleID"));
+                        map.put(user.getUserName(), user);
+                    }
+                }
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "Error loading active users by name", e);
+                throw new DaoException("Failed to load active users", "retrieve", "users", e);
             }
-        } catch (Exception e) {
         }
-        return list;
+        return map;
     }
 
     public List<User> getUsersBySearchName(String txtSearch) {
@@ -293,11 +386,13 @@ public class UserDAO extends DBContext {
 
     public void changePassword(User s) {
         String sql = "Update Users set password = ? where username = ? and [status] = 1";
+        String hash = PasswordHashing.getInstance().hash(s.getPassword());
         try {
             PreparedStatement st = connection.prepareStatement(sql);
-            st.setString(1, s.getPassword());
+            st.setString(1, hash);
             st.setString(2, s.getUserName());
             st.executeUpdate();
+            ProfileVersions.userChanged(s.getUserName());
         } catch (SQLException e) {
             System.out.println(e);
         }
@@ -338,11 +433,14 @@ public class UserDAO extends DBContext {
     //
     public void updatePassByUserName(String pass, String username) {
         String sql = "update Users set Password = ? where UserName= ?";
+        // Outside the try, which swallows errors: a busy hashing pool must reach the caller
+        String hash = PasswordHashing.getInstance().hash(pass);
         try {
             PreparedStatement st = connection.prepareStatement(sql);
-            st.setString(1, pass);
+            st.setString(1, hash);
             st.setString(2, username);
             st.executeUpdate();
+            ProfileVersions.userChanged(username);
         } catch (Exception e) {
         }
     }
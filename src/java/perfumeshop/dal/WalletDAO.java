@@ -5,6 +5,7 @@
 package perfumeshop.dal;
 
 import perfumeshop.utils.DBContext;
+import perfumeshop.utils.ProfileVersions;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.util.ArrayList;
@@ -90,6 +91,7 @@ public class WalletDAO extends DBContext {
             st.setDouble(1, value);
             st.setString(2, userName);
             st.executeUpdate();
+            ProfileVersions.walletChanged(userName);
         } catch (Exception e) {
         }
     }
@@ -102,6 +104,7 @@ public class WalletDAO extends DBContext {
             st.setDouble(1, value);
             st.setString(2, userName);
             st.executeUpdate();
+            ProfileVersions.walletChanged(userName);
         } catch (Exception e) {
         }
     }
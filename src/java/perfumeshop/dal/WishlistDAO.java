@@ -0,0 +1,147 @@
+package perfumeshop.dal;
+
+import perfumeshop.utils.DBContext;
+import perfumeshop.exception.DaoException;
+import perfumeshop.exception.ValidationException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Data Access Object for wishlists persisted per user.
+ * The table is created by database/schema_updates.sql.
+ * @author PerfumeShop Team
+ */
+public class WishlistDAO extends DBContext {
+
+    private static final Logger LOGGER = Logger.getLogger(WishlistDAO.class.getName());
+
+    private static final String SELECT_WISHLIST_SQL =
+        "SELECT [ProductID] FROM [dbo].[WishlistItems] WHERE [UserName] = ? ORDER BY [AddedAt], [ProductID]";
+    // Insert is idempotent so a batch can be retried after a partial failure
+    private static final String INSERT_ITEM_SQL =
+        "INSERT INTO [dbo].[WishlistItems] ([UserName], [ProductID], [AddedAt]) "
+        + "SELECT ?, ?, ? WHERE NOT EXISTS "
+        + "(SELECT 1 FROM [dbo].[WishlistItems] WHERE [UserName] = ? AND [ProductID] = ?)";
+    private static final String DELETE_ITEM_SQL =
+        "DELETE FROM [dbo].[WishlistItems] WHERE [UserName] = ? AND [ProductID] = ?";
+
+    /**
+     * One pending add or remove of a product in a user's wishlist
+     */
+    public static final class Change {
+        private final String userName;
+        private final int productId;
+        private final boolean added;
+        private final long changedAt;
+
+        public Change(String userName, int productId, boolean added, long changedAt) {
+            this.userName = userName;
+            this.productId = productId;
+            this.added = added;
+            this.changedAt = changedAt;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public int getProductId() {
+            return productId;
+        }
+
+        public boolean isAdded() {
+            return added;
+        }
+
+        public long getChangedAt() {
+            return changedAt;
+        }
+    }
+
+    /**
+     * Load the product IDs of a user's wishlist in the order they were added
+     * @param userName User name
+     * @return Product IDs (empty if none)
+     * @throws ValidationException if userName is empty
+     * @throws DaoException if database operation fails
+     */
+    public int[] getProductIds(String userName) {
+        if (userName == null || userName.trim().isEmpty()) {
+            throw new ValidationException("User name cannot be empty", "userName");
+        }
+
+        int[] ids = new int[8];
+        int count = 0;
+        try (PreparedStatement st = connection.prepareStatement(SELECT_WISHLIST_SQL)) {
+            st.setString(1, userName);
+            try (ResultSet rs = st.executeQuery()) {
+                while (rs.next()) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                    }
+                    ids[count++] = rs.getInt("ProductID");
+                }
+            }
+            return Arrays.copyOf(ids, count);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error loading wishlist for user: " + userName, e);
+            throw new DaoException("Failed to load wishlist", "retrieve", "wishlist", e);
+        }
+    }
+
+    /**
+     * Apply adds and removes for any number of users in one transaction, one batch each
+     * @param changes Changes, at most one per user and product
+     * @throws DaoException if database operation fails
+     */
+    public void applyChanges(List<Change> changes) {
+        if (changes == null || changes.isEmpty()) {
+            return;
+        }
+
+        try {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_ITEM_SQL);
+                 PreparedStatement delete = connection.prepareStatement(DELETE_ITEM_SQL)) {
+                for (Change change : changes) {
+                    if (change.isAdded()) {
+                        insert.setString(1, change.getUserName());
+                        insert.setInt(2, change.getProductId());
+                        insert.setTimestamp(3, new Timestamp(change.getChangedAt()));
+                        insert.setString(4, change.getUserName());
+                        insert.setInt(5, change.getProductId());
+                        insert.addBatch();
+                    } else {
+                        delete.setString(1, change.getUserName());
+                        delete.setInt(2, change.getProductId());
+                        delete.addBatch();
+                    }
+                }
+                delete.executeBatch();
+                insert.executeBatch();
+            }
+            connection.commit();
+            LOGGER.log(Level.FINE, "Applied {0} wishlist changes", changes.size());
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackEx) {
+                LOGGER.log(Level.SEVERE, "Error during rollback", rollbackEx);
+            }
+            LOGGER.log(Level.SEVERE, "Error applying wishlist changes", e);
+            throw new DaoException("Failed to save wishlist changes", "update", "wishlist", e);
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Error restoring auto-commit", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package perfumeshop.exception;
+
+/**
+ * Exception thrown when a checkout cannot be admitted right now
+ * @author PerfumeShop Team
+ */
+public class CheckoutBusyException extends BusinessException {
+
+    public static final String ERROR_CODE = "CHECKOUT_BUSY";
+
+    private final int position;
+    private final int retryAfterSeconds;
+
+    public CheckoutBusyException(String message, int position, int retryAfterSeconds) {
+        super(message, ERROR_CODE);
+        this.position = position;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Place in line when the attempt was turned away
+     * @return Position (1 = next), or 0 if not applicable
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Suggested wait before retrying
+     * @return Seconds, at least 1
+     */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,25 @@
+package perfumeshop.exception;
+
+/**
+ * Exception thrown when password hashing is saturated and a login or registration must be retried
+ * @author PerfumeShop Team
+ */
+public class PasswordHashingBusyException extends BusinessException {
+
+    public static final String ERROR_CODE = "AUTH_BUSY";
+
+    private final int retryAfterSeconds;
+
+    public PasswordHashingBusyException(String message, int retryAfterSeconds) {
+        super(message, ERROR_CODE);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Suggested wait before retrying
+     * @return Seconds, at least 1
+     */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
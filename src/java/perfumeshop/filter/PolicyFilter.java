@@ -0,0 +1,194 @@
+package perfumeshop.filter;
+
+import perfumeshop.model.User;
+import perfumeshop.service.SessionPersistence;
+import perfumeshop.service.UserSession;
+import perfumeshop.utils.LoggingUtils;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Access policy filter: resolves each path once against a fixed table and applies the
+ * security headers, login and admin checks and the direct-JSP redirect in a single step.
+ * Replaces HomeFilter, LoginFilter and AdminFilter. Anonymous requests never get a session
+ * created here, and a redirected request does not continue down the chain. Requests with a
+ * valid identity cookie but no account in the session are signed back in through
+ * {@link UserSession#restore}, and the session is handed to {@link SessionPersistence}
+ * once the request is done.
+ * @author PerfumeShop Team
+ */
+public class PolicyFilter implements Filter {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(PolicyFilter.class);
+
+    private static final int ADMIN_ROLE_ID = 1;
+
+    /**
+     * What a path requires
+     */
+    enum Policy {
+        PUBLIC,
+        STATIC,
+        JSP,
+        LOGIN_REQUIRED,
+        ADMIN
+    }
+
+    private static final String[] LOGIN_REQUIRED_PATHS = {
+        "/profile", "/changepass"
+    };
+
+    private static final String[] ADMIN_PATHS = {
+        "/admin", "/manager", "/top10", "/top5khachhang", "/invoice", "/exportinvoice", "/orderstatus",
+        "/analyticsreport", "/dashboardfeed", "/cachestats", "/weekrevenue", "/mothlyrevenue",
+        "/managerAccount", "/searchAccount", "/addaccount", "/deleteaccount",
+        "/managersupplier", "/searchSupplier", "/addsupplier", "/editsupplier", "/updatesupplier", "/deletesupplier",
+        "/walletmanager", "/searchWallet", "/addbalance",
+        "/searchProduct", "/addproduct", "/editproduct", "/updateproduct", "/deleteproduct", "/flashsale"
+    };
+
+    private static final Set<String> STATIC_EXTENSIONS = Set.of(
+        "css", "js", "map", "png", "jpg", "jpeg", "gif", "svg", "ico", "webp", "woff", "woff2", "ttf", "eot", "html"
+    );
+
+    private static final Map<String, Policy> POLICIES = new HashMap<>();
+
+    static {
+        for (String path : LOGIN_REQUIRED_PATHS) {
+            POLICIES.put(path, Policy.LOGIN_REQUIRED);
+        }
+        for (String path : ADMIN_PATHS) {
+            POLICIES.put(path, Policy.ADMIN);
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        LOGGER.log(Level.INFO, "PolicyFilter initialized with {0} protected paths", POLICIES.size());
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        Policy policy = resolve(httpRequest.getServletPath());
+        addSecurityHeaders(httpResponse, policy);
+        if (policy == Policy.STATIC) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (policy == Policy.JSP) {
+            // Pages are reached through their servlets only
+            redirect(httpRequest, httpResponse, "/home");
+            return;
+        }
+
+        // Signed-in users served by this node for the first time get their session rebuilt here
+        User account = UserSession.restore(httpRequest, httpResponse);
+
+        switch (policy) {
+            case LOGIN_REQUIRED:
+                if (account == null) {
+                    redirect(httpRequest, httpResponse, "/login");
+                    return;
+                }
+                break;
+            case ADMIN:
+                if (account == null) {
+                    redirect(httpRequest, httpResponse, "/login");
+                    return;
+                }
+                if (account.getRoleID() != ADMIN_ROLE_ID) {
+                    LOGGER.log(Level.WARNING, "Non-admin user {0} denied {1}",
+                              new Object[]{account.getUserName(), httpRequest.getServletPath()});
+                    redirect(httpRequest, httpResponse, "/home");
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SessionPersistence.getInstance().capture(httpRequest.getSession(false));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        LOGGER.log(Level.INFO, "PolicyFilter destroyed");
+    }
+
+    /**
+     * Policy for a servlet path: exact table entry, else by extension, else public
+     */
+    static Policy resolve(String servletPath) {
+        Policy policy = POLICIES.get(servletPath);
+        if (policy != null) {
+            return policy;
+        }
+        int dot = servletPath.lastIndexOf('.');
+        if (dot < 0 || dot < servletPath.lastIndexOf('/')) {
+            return Policy.PUBLIC;
+        }
+        String extension = servletPath.substring(dot + 1).toLowerCase();
+        if (extension.equals("jsp")) {
+            return Policy.JSP;
+        }
+        return STATIC_EXTENSIONS.contains(extension) ? Policy.STATIC : Policy.PUBLIC;
+    }
+
+    private void redirect(HttpServletRequest request, HttpServletResponse response, String path)
+            throws IOException {
+        response.sendRedirect(request.getContextPath() + path);
+    }
+
+    /**
+     * Add security headers to response
+     */
+    private void addSecurityHeaders(HttpServletResponse response, Policy policy) {
+        // Prevent MIME type sniffing
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        if (policy == Policy.STATIC) {
+            return;
+        }
+
+        // Prevent XSS attacks
+        response.setHeader("X-XSS-Protection", "1; mode=block");
+
+        // Prevent clickjacking
+        response.setHeader("X-Frame-Options", "DENY");
+
+        // Referrer Policy
+        response.setHeader("Referrer-Policy", "strict-origin-when-cross-origin");
+
+        // Content Security Policy (basic)
+        response.setHeader("Content-Security-Policy",
+                          "default-src 'self'; script-src 'self' 'unsafe-inline'; style-src 'self' 'unsafe-inline'");
+
+        // Account and admin pages must not be kept by shared caches or the back button
+        if (policy == Policy.LOGIN_REQUIRED || policy == Policy.ADMIN) {
+            response.setHeader("Cache-Control", "no-store");
+        }
+
+        // HSTS (HTTP Strict Transport Security) - only for HTTPS
+        // response.setHeader("Strict-Transport-Security", "max-age=31536000; includeSubDomains");
+    }
+}
@@ -1,9 +1,13 @@
 package perfumeshop.filter;
 
+import perfumeshop.model.User;
+import perfumeshop.service.RateLimiter;
 import perfumeshop.utils.LoggingUtils;
+import perfumeshop.utils.RequestScanner;
 import perfumeshop.utils.SecurityUtils;
 import perfumeshop.utils.MonitoringUtils;
 import java.io.IOException;
+import java.util.Set;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 import jakarta.servlet.Filter;
@@ -15,16 +19,24 @@ import jakarta.servlet.ServletResponse;
 import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
 
 /**
  * Security filter to protect against common web vulnerabilities
  * @author PerfumeShop Team
  */
-@WebFilter("/*")
+@WebFilter(urlPatterns = "/*", asyncSupported = true)
 public class SecurityFilter implements Filter {
 
     private static final Logger LOGGER = LoggingUtils.getLogger(SecurityFilter.class);
 
+    // Not defined on HttpServletResponse
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    private static final Set<String> STATIC_EXTENSIONS = Set.of(
+        "css", "js", "map", "png", "jpg", "jpeg", "gif", "svg", "ico", "webp", "woff", "woff2", "ttf", "eot"
+    );
+
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
         LOGGER.log(Level.INFO, "SecurityFilter initialized");
@@ -49,28 +61,33 @@ public class SecurityFilter implements Filter {
                 return;
             }
 
-            // Rate limiting for sensitive endpoints
+            // Rate limiting for sensitive endpoints, keyed by address so no session is needed
             String requestURI = httpRequest.getRequestURI();
-            if (isSensitiveEndpoint(requestURI)) {
-                if (!SecurityUtils.checkRateLimit(httpRequest.getSession(), requestURI, 10, 60000)) {
-                    LOGGER.log(Level.WARNING, "Rate limit exceeded for: {0}", requestURI);
-                    httpResponse.sendError(HttpServletResponse.SC_TOO_MANY_REQUESTS, "Rate limit exceeded");
+            RateLimiter.Policy policy = RateLimiter.policyFor(httpRequest.getServletPath(), httpRequest.getMethod());
+            if (policy != null) {
+                long waitMillis = RateLimiter.getInstance().tryAcquire(policy, getRateLimitKey(httpRequest, policy));
+                if (waitMillis > 0) {
+                    LOGGER.log(Level.WARNING, "Rate limit exceeded for {0} from {1}",
+                              new Object[]{requestURI, httpRequest.getRemoteAddr()});
+                    httpResponse.setHeader("Retry-After", String.valueOf((waitMillis + 999) / 1000));
+                    httpResponse.sendError(SC_TOO_MANY_REQUESTS, "Rate limit exceeded");
                     MonitoringUtils.recordFailedRequest();
                     return;
                 }
             }
 
-            // Validate request parameters for SQL injection
-            if (!SecurityUtils.validateRequestParameters(httpRequest, getParameterNames(httpRequest))) {
-                LOGGER.log(Level.SEVERE, "SQL injection attempt blocked from: {0}", httpRequest.getRemoteAddr());
-                httpResponse.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid request parameters");
-                MonitoringUtils.recordFailedRequest();
-                return;
+            // Validate request parameters for SQL injection (static files take no parameters)
+            if (!isStaticResource(requestURI)) {
+                RequestScanner.Match match = SecurityUtils.scanRequestParameters(httpRequest);
+                if (match != null) {
+                    LOGGER.log(Level.SEVERE, "SQL injection attempt blocked from {0}: {1}",
+                              new Object[]{httpRequest.getRemoteAddr(), match});
+                    httpResponse.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid request parameters");
+                    MonitoringUtils.recordFailedRequest();
+                    return;
+                }
             }
 
-            // Add security headers
-            addSecurityHeaders(httpResponse);
-
             // Continue with the request
             chain.doFilter(request, response);
 
@@ -90,43 +107,29 @@ public class SecurityFilter implements Filter {
     }
 
     /**
-     * Check if the endpoint is sensitive and requires rate limiting
-     */
-    private boolean isSensitiveEndpoint(String requestURI) {
-        return requestURI.contains("/login") ||
-               requestURI.contains("/register") ||
-               requestURI.contains("/checkout") ||
-               requestURI.contains("/admin");
-    }
-
-    /**
-     * Get parameter names from request (for validation)
+     * Key for rate limiting: the user for per-user policies when logged in, else the address.
+     * The peer address is used rather than X-Forwarded-For, which a client can rotate freely.
      */
-    private String[] getParameterNames(HttpServletRequest request) {
-        return request.getParameterMap().keySet().toArray(new String[0]);
+    private String getRateLimitKey(HttpServletRequest request, RateLimiter.Policy policy) {
+        if (policy.isByUser()) {
+            HttpSession session = request.getSession(false);
+            Object account = session != null ? session.getAttribute("account") : null;
+            if (account instanceof User) {
+                return "user:" + ((User) account).getUserName();
+            }
+        }
+        return request.getRemoteAddr();
     }
 
     /**
-     * Add security headers to response
+     * Check if the request is for a static file (stylesheet, script, image, font)
      */
-    private void addSecurityHeaders(HttpServletResponse response) {
-        // Prevent XSS attacks
-        response.setHeader("X-XSS-Protection", "1; mode=block");
-
-        // Prevent clickjacking
-        response.setHeader("X-Frame-Options", "DENY");
-
-        // Prevent MIME type sniffing
-        response.setHeader("X-Content-Type-Options", "nosniff");
-
-        // Referrer Policy
-        response.setHeader("Referrer-Policy", "strict-origin-when-cross-origin");
-
-        // Content Security Policy (basic)
-        response.setHeader("Content-Security-Policy",
-                          "default-src 'self'; script-src 'self' 'unsafe-inline'; style-src 'self' 'unsafe-inline'");
-
-        // HSTS (HTTP Strict Transport Security) - only for HTTPS
-        // response.setHeader("Strict-Transport-Security", "max-age=31536000; includeSubDomains");
+    private boolean isStaticResource(String requestURI) {
+        int dot = requestURI.lastIndexOf('.');
+        if (dot < 0 || dot < requestURI.lastIndexOf('/')) {
+            return false;
+        }
+        String extension = requestURI.substring(dot + 1).toLowerCase();
+        return STATIC_EXTENSIONS.contains(extension);
     }
 }
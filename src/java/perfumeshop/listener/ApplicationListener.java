@@ -0,0 +1,66 @@
+package perfumeshop.listener;
+
+import perfumeshop.service.CartPersistence;
+import perfumeshop.service.CheckoutAdmission;
+import perfumeshop.service.CustomerSpendLeaderboard;
+import perfumeshop.service.DashboardFeed;
+import perfumeshop.service.DashboardService;
+import perfumeshop.service.FlashSaleStock;
+import perfumeshop.service.OrderAnalyticsStore;
+import perfumeshop.service.PasswordHashing;
+import perfumeshop.service.ProductCatalog;
+import perfumeshop.service.RateLimiter;
+import perfumeshop.service.SessionPersistence;
+import perfumeshop.service.WishlistService;
+import perfumeshop.service.RevenueRollupJob;
+import perfumeshop.utils.CacheUtils;
+import perfumeshop.utils.LoggingUtils;
+import java.util.logging.Logger;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+/**
+ * Starts and stops application-wide background services
+ * @author PerfumeShop Team
+ */
+@WebListener
+public class ApplicationListener implements ServletContextListener {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(ApplicationListener.class);
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        LoggingUtils.logApplicationStart(LOGGER);
+        RevenueRollupJob.start();
+        OrderAnalyticsStore.getInstance().loadInBackground();
+        ProductCatalog.getInstance().loadInBackground();
+        DashboardService.getInstance().start();
+        CustomerSpendLeaderboard.getInstance().start();
+        DashboardFeed.getInstance().start();
+        CartPersistence.getInstance().start();
+        WishlistService.getInstance().start();
+        FlashSaleStock.getInstance().start();
+        CheckoutAdmission.getInstance().start();
+        RateLimiter.getInstance().start();
+        PasswordHashing.getInstance().start();
+        SessionPersistence.getInstance().start();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        SessionPersistence.getInstance().shutdown();
+        PasswordHashing.getInstance().shutdown();
+        RateLimiter.getInstance().shutdown();
+        CheckoutAdmission.getInstance().shutdown();
+        FlashSaleStock.getInstance().shutdown();
+        WishlistService.getInstance().shutdown();
+        CartPersistence.getInstance().shutdown();
+        DashboardFeed.getInstance().shutdown();
+        CustomerSpendLeaderboard.getInstance().shutdown();
+        DashboardService.getInstance().shutdown();
+        RevenueRollupJob.shutdown();
+        CacheUtils.shutdown();
+        LoggingUtils.logApplicationShutdown(LOGGER);
+    }
+}
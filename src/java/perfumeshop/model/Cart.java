@@ -1,49 +1,105 @@
 package perfumeshop.model;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import perfumeshop.service.ProductCatalog;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
- * Shopping cart entity managing items and calculations
+ * Shopping cart entity managing items and calculations.
+ * <p>
+ * Only product IDs, quantities and the prices captured when each product was added are
+ * stored, in parallel primitive arrays in insertion order; product display data is resolved
+ * from the shared {@link ProductCatalog} when items are listed. This keeps the session copy
+ * small ({@link #estimateSizeBytes()}) and cheap to serialize.
  * @author PerfumeShop Team
  */
-public class Cart {
+public class Cart implements Serializable {
 
-    private List<Item> listItems;
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    // Line i: product, quantity, sale price and list price at the time it was added
+    private int[] productIds = new int[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private double[] unitPrices = new double[INITIAL_CAPACITY];
+    private double[] listPrices = new double[INITIAL_CAPACITY];
+    private int size;
+
+    // Totals maintained on every change instead of recomputed on each read
+    private int totalQuantity;
+    private double totalMoney;
+    private double totalPriceWithoutDiscount;
+
+    // Resolved items, rebuilt lazily after a change; never serialized
+    private transient List<Item> itemsView;
 
     // Constructors
     public Cart() {
-        this.listItems = new ArrayList<>();
     }
 
     public Cart(List<Item> listItems) {
-        this.listItems = listItems != null ? new ArrayList<>(listItems) : new ArrayList<>();
+        setListItems(listItems);
     }
 
     // Getters and Setters
+    /**
+     * Get the items in insertion order, with products resolved from the catalog cache
+     * @return Read-only list, valid until the next change to the cart
+     */
     public List<Item> getListItems() {
-        return new ArrayList<>(listItems); // Return defensive copy
+        if (itemsView == null) {
+            ProductCatalog catalog = ProductCatalog.getInstance();
+            List<Item> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                Product product = catalog.getProduct(productIds[i]);
+                if (product == null) {
+                    // Deleted since it was added: keep the line so totals and checkout stay consistent
+                    product = new Product();
+                    product.setId(productIds[i]);
+                    product.setPrice(listPrices[i]);
+                }
+                Item item = new Item();
+                item.setProduct(product);
+                item.setQuantity(quantities[i]);
+                item.setPrice(unitPrices[i]);
+                list.add(item);
+            }
+            itemsView = Collections.unmodifiableList(list);
+        }
+        return itemsView;
     }
 
     public void setListItems(List<Item> listItems) {
-        this.listItems = listItems != null ? new ArrayList<>(listItems) : new ArrayList<>();
+        clear();
+        if (listItems != null) {
+            for (Item item : listItems) {
+                addItem(item);
+            }
+        }
     }
 
     // Core business methods
     /**
-     * Find item by product ID
+     * Find the line of a product
      * @param productId Product ID to search
-     * @return Item if found, null otherwise
+     * @return Line index, or -1 if not found
      */
-    private Item getItemByID(int productId) {
+    private int indexOf(int productId) {
         if (productId <= 0) {
             throw new IllegalArgumentException("Product ID must be positive");
         }
 
-        return listItems.stream()
-                       .filter(item -> item.getProduct().getId() == productId)
-                       .findFirst()
-                       .orElse(null);
+        // Carts hold a handful of lines: a scan over an int[] beats hashing boxed keys
+        for (int i = 0; i < size; i++) {
+            if (productIds[i] == productId) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     /**
@@ -52,12 +108,73 @@ public class Cart {
      * @return Quantity or 0 if not found
      */
     public int getQuantityByID(int productId) {
-        Item item = getItemByID(productId);
-        return item != null ? item.getQuantity() : 0;
+        int index = indexOf(productId);
+        return index >= 0 ? quantities[index] : 0;
     }
 
     /**
-     * Add item to cart
+     * Get the sale price captured when a product was added
+     * @param productId Product ID
+     * @return Unit price or 0 if not found
+     */
+    public double getUnitPriceByID(int productId) {
+        int index = indexOf(productId);
+        return index >= 0 ? unitPrices[index] : 0;
+    }
+
+    /**
+     * Get the list (undiscounted) price captured when a product was added
+     * @param productId Product ID
+     * @return List price or 0 if not found
+     */
+    public double getListPriceByID(int productId) {
+        int index = indexOf(productId);
+        return index >= 0 ? listPrices[index] : 0;
+    }
+
+    /**
+     * Replace the prices captured for a product, e.g. after revalidation at checkout
+     * @param productId Product ID
+     * @param unitPrice New sale price
+     * @param listPrice New list price
+     * @return true if updated, false if product not found
+     */
+    public boolean updatePrice(int productId, double unitPrice, double listPrice) {
+        if (unitPrice < 0 || listPrice < 0) {
+            throw new IllegalArgumentException("Price cannot be negative");
+        }
+
+        int index = indexOf(productId);
+        if (index < 0) {
+            return false;
+        }
+        addToTotals(index, -1);
+        unitPrices[index] = unitPrice;
+        listPrices[index] = listPrice;
+        addToTotals(index, 1);
+        itemsView = null;
+        return true;
+    }
+
+    /**
+     * Copy this cart's lines and totals without resolving any product
+     * @return Independent copy
+     */
+    public Cart copy() {
+        Cart copy = new Cart();
+        copy.productIds = Arrays.copyOf(productIds, Math.max(size, INITIAL_CAPACITY));
+        copy.quantities = Arrays.copyOf(quantities, copy.productIds.length);
+        copy.unitPrices = Arrays.copyOf(unitPrices, copy.productIds.length);
+        copy.listPrices = Arrays.copyOf(listPrices, copy.productIds.length);
+        copy.size = size;
+        copy.totalQuantity = totalQuantity;
+        copy.totalMoney = totalMoney;
+        copy.totalPriceWithoutDiscount = totalPriceWithoutDiscount;
+        return copy;
+    }
+
+    /**
+     * Add item to cart; only its product ID, quantity and prices are kept
      * @param item Item to add
      * @throws IllegalArgumentException if item is null or invalid
      */
@@ -72,12 +189,26 @@ public class Cart {
             throw new IllegalArgumentException("Item quantity must be positive");
         }
 
-        Item existingItem = getItemByID(item.getProduct().getId());
-        if (existingItem != null) {
-            existingItem.setQuantity(existingItem.getQuantity() + item.getQuantity());
-        } else {
-            listItems.add(item);
+        int index = indexOf(item.getProduct().getId());
+        if (index >= 0) {
+            changeQuantity(index, quantities[index] + item.getQuantity());
+            return;
+        }
+
+        if (size == productIds.length) {
+            int capacity = size * 2;
+            productIds = Arrays.copyOf(productIds, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            unitPrices = Arrays.copyOf(unitPrices, capacity);
+            listPrices = Arrays.copyOf(listPrices, capacity);
         }
+        productIds[size] = item.getProduct().getId();
+        quantities[size] = item.getQuantity();
+        unitPrices[size] = item.getPrice();
+        listPrices[size] = item.getProduct().getPrice();
+        size++;
+        addToTotals(size - 1, 1);
+        itemsView = null;
     }
 
     /**
@@ -86,7 +217,23 @@ public class Cart {
      * @return true if item was removed, false if not found
      */
     public boolean removeItem(int productId) {
-        return listItems.removeIf(item -> item.getProduct().getId() == productId);
+        int index = productId > 0 ? indexOf(productId) : -1;
+        if (index < 0) {
+            return false;
+        }
+        addToTotals(index, -1);
+        int tail = size - index - 1;
+        System.arraycopy(productIds, index + 1, productIds, index, tail);
+        System.arraycopy(quantities, index + 1, quantities, index, tail);
+        System.arraycopy(unitPrices, index + 1, unitPrices, index, tail);
+        System.arraycopy(listPrices, index + 1, listPrices, index, tail);
+        size--;
+        if (size == 0) {
+            // Reset rather than subtract so rounding errors never outlive an empty cart
+            resetTotals();
+        }
+        itemsView = null;
+        return true;
     }
 
     /**
@@ -100,12 +247,12 @@ public class Cart {
             throw new IllegalArgumentException("Quantity cannot be negative");
         }
 
-        Item item = getItemByID(productId);
-        if (item != null) {
+        int index = indexOf(productId);
+        if (index >= 0) {
             if (newQuantity == 0) {
                 return removeItem(productId);
             } else {
-                item.setQuantity(newQuantity);
+                changeQuantity(index, newQuantity);
                 return true;
             }
         }
@@ -116,7 +263,31 @@ public class Cart {
      * Clear all items from cart
      */
     public void clear() {
-        listItems.clear();
+        size = 0;
+        resetTotals();
+        itemsView = null;
+    }
+
+    private void changeQuantity(int index, int newQuantity) {
+        addToTotals(index, -1);
+        quantities[index] = newQuantity;
+        addToTotals(index, 1);
+        itemsView = null;
+    }
+
+    /**
+     * Add (sign 1) or subtract (sign -1) a line's share of the cached totals
+     */
+    private void addToTotals(int index, int sign) {
+        totalQuantity += sign * quantities[index];
+        totalMoney += sign * quantities[index] * unitPrices[index];
+        totalPriceWithoutDiscount += sign * quantities[index] * listPrices[index];
+    }
+
+    private void resetTotals() {
+        totalQuantity = 0;
+        totalMoney = 0;
+        totalPriceWithoutDiscount = 0;
     }
 
     // Price calculation methods
@@ -125,9 +296,7 @@ public class Cart {
      * @return Total price
      */
     public double getTotalPriceWithoutDiscount() {
-        return listItems.stream()
-                       .mapToDouble(item -> item.getQuantity() * item.getProduct().getPrice())
-                       .sum();
+        return totalPriceWithoutDiscount;
     }
 
     /**
@@ -135,9 +304,7 @@ public class Cart {
      * @return Total money after discount
      */
     public double getTotalMoney() {
-        return listItems.stream()
-                       .mapToDouble(item -> item.getQuantity() * item.getPrice())
-                       .sum();
+        return totalMoney;
     }
 
     /**
@@ -170,9 +337,19 @@ public class Cart {
      * @return List of products
      */
     public List<Product> getProducts() {
-        return listItems.stream()
-                       .map(Item::getProduct)
-                       .collect(Collectors.toList());
+        List<Product> products = new ArrayList<>(size);
+        for (Item item : getListItems()) {
+            products.add(item.getProduct());
+        }
+        return products;
+    }
+
+    /**
+     * Get the product IDs in insertion order
+     * @return Copy of the IDs
+     */
+    public int[] getProductIds() {
+        return Arrays.copyOf(productIds, size);
     }
 
     // Utility methods
@@ -181,7 +358,7 @@ public class Cart {
      * @return true if empty
      */
     public boolean isEmpty() {
-        return listItems.isEmpty();
+        return size == 0;
     }
 
     /**
@@ -189,9 +366,7 @@ public class Cart {
      * @return Total quantity of all items
      */
     public int getTotalQuantity() {
-        return listItems.stream()
-                       .mapToInt(Item::getQuantity)
-                       .sum();
+        return totalQuantity;
     }
 
     /**
@@ -199,7 +374,7 @@ public class Cart {
      * @return Number of unique products
      */
     public int getProductCount() {
-        return listItems.size();
+        return size;
     }
 
     /**
@@ -208,7 +383,26 @@ public class Cart {
      * @return true if contains
      */
     public boolean containsProduct(int productId) {
-        return getItemByID(productId) != null;
+        return indexOf(productId) >= 0;
+    }
+
+    /**
+     * Estimate the heap retained by this cart in a session (64-bit JVM, compressed oops),
+     * excluding the transient item view
+     * @return Approximate size in bytes
+     */
+    public long estimateSizeBytes() {
+        // Object: 12-byte header, 5 references, 2 ints, 2 doubles
+        long bytes = align8(12 + 5 * 4 + 2 * 4 + 2 * 8);
+        // Arrays: 16-byte header each, sized to capacity rather than line count
+        int capacity = productIds.length;
+        bytes += 2 * align8(16 + 4L * capacity);
+        bytes += 2 * align8(16 + 8L * capacity);
+        return bytes;
+    }
+
+    private static long align8(long bytes) {
+        return (bytes + 7) & ~7L;
     }
 
     // Formatting methods
@@ -230,12 +424,12 @@ public class Cart {
      * @throws IllegalStateException if cart contains invalid items
      */
     public void validate() {
-        for (Item item : listItems) {
-            if (item.getQuantity() <= 0) {
-                throw new IllegalStateException("Cart contains item with invalid quantity: " + item.getProduct().getName());
+        for (int i = 0; i < size; i++) {
+            if (quantities[i] <= 0) {
+                throw new IllegalStateException("Cart contains item with invalid quantity: product " + productIds[i]);
             }
-            if (item.getPrice() < 0) {
-                throw new IllegalStateException("Cart contains item with negative price: " + item.getProduct().getName());
+            if (unitPrices[i] < 0) {
+                throw new IllegalStateException("Cart contains item with negative price: product " + productIds[i]);
             }
         }
     }
@@ -243,6 +437,6 @@ public class Cart {
     @Override
     public String toString() {
         return String.format("Cart{items=%d, totalQuantity=%d, totalMoney=%.2f, finalTotal=%.2f}",
-                           listItems.size(), getTotalQuantity(), getTotalMoney(), getFinalTotal());
+                           size, getTotalQuantity(), getTotalMoney(), getFinalTotal());
     }
 }
@@ -0,0 +1,94 @@
+package perfumeshop.model;
+
+/**
+ * One difference found when revalidating a cart line against the current catalog
+ * @author PerfumeShop Team
+ */
+public class CartChange {
+
+    /**
+     * Kind of difference
+     */
+    public enum Type {
+        /** Product no longer exists; the line was removed */
+        UNAVAILABLE,
+        /** Sale price changed; the line now uses the current price */
+        PRICE_CHANGED,
+        /** Less stock than requested; the quantity was reduced */
+        INSUFFICIENT_STOCK,
+        /** No stock left; the line was removed */
+        OUT_OF_STOCK
+    }
+
+    private final Type type;
+    private final int productId;
+    private final String productName;
+    private final double oldPrice;
+    private final double newPrice;
+    private final int requestedQuantity;
+    private final int availableQuantity;
+
+    public CartChange(Type type, int productId, String productName, double oldPrice, double newPrice,
+                      int requestedQuantity, int availableQuantity) {
+        this.type = type;
+        this.productId = productId;
+        this.productName = productName;
+        this.oldPrice = oldPrice;
+        this.newPrice = newPrice;
+        this.requestedQuantity = requestedQuantity;
+        this.availableQuantity = availableQuantity;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public double getOldPrice() {
+        return oldPrice;
+    }
+
+    public double getNewPrice() {
+        return newPrice;
+    }
+
+    public int getRequestedQuantity() {
+        return requestedQuantity;
+    }
+
+    public int getAvailableQuantity() {
+        return availableQuantity;
+    }
+
+    /**
+     * Human readable description for the cart page
+     * @return Message
+     */
+    public String getMessage() {
+        String name = productName != null ? productName : "Product " + productId;
+        switch (type) {
+            case UNAVAILABLE:
+                return name + " is no longer available and was removed";
+            case PRICE_CHANGED:
+                return String.format("%s price changed from $%.2f to $%.2f", name, oldPrice, newPrice);
+            case INSUFFICIENT_STOCK:
+                return String.format("%s: only %d left, quantity reduced from %d", name, availableQuantity, requestedQuantity);
+            case OUT_OF_STOCK:
+                return name + " is out of stock and was removed";
+            default:
+                return name + " changed";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CartChange{type=%s, productId=%d}", type, productId);
+    }
+}
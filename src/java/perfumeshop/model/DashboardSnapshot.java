@@ -0,0 +1,72 @@
+package perfumeshop.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable set of the admin dashboard counters, computed together at one point in time
+ * @author PerfumeShop Team
+ */
+public class DashboardSnapshot {
+
+    private final int countProduct;
+    private final int countTypeProduct;
+    private final int countUser;
+    private final int countSupplier;
+    private final int sumQuantitySold;
+    private final double totalMoneyAll;
+    private final LocalDateTime computedAt;
+
+    public DashboardSnapshot(int countProduct, int countTypeProduct, int countUser, int countSupplier,
+                             int sumQuantitySold, double totalMoneyAll, LocalDateTime computedAt) {
+        this.countProduct = countProduct;
+        this.countTypeProduct = countTypeProduct;
+        this.countUser = countUser;
+        this.countSupplier = countSupplier;
+        this.sumQuantitySold = sumQuantitySold;
+        this.totalMoneyAll = totalMoneyAll;
+        this.computedAt = computedAt;
+    }
+
+    /**
+     * @return Units in stock over all products
+     */
+    public int getCountProduct() {
+        return countProduct;
+    }
+
+    /**
+     * @return Number of products
+     */
+    public int getCountTypeProduct() {
+        return countTypeProduct;
+    }
+
+    /**
+     * @return Number of active users
+     */
+    public int getCountUser() {
+        return countUser;
+    }
+
+    public int getCountSupplier() {
+        return countSupplier;
+    }
+
+    public int getSumQuantitySold() {
+        return sumQuantitySold;
+    }
+
+    public double getTotalMoneyAll() {
+        return totalMoneyAll;
+    }
+
+    public LocalDateTime getComputedAt() {
+        return computedAt;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DashboardSnapshot{products=%d, users=%d, sold=%d, revenue=%.2f, at=%s}",
+                           countTypeProduct, countUser, sumQuantitySold, totalMoneyAll, computedAt);
+    }
+}
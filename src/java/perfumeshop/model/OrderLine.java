@@ -0,0 +1,133 @@
+package perfumeshop.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Flat view of one order detail row joined with its order header, used for exports
+ * @author PerfumeShop Team
+ */
+public class OrderLine {
+
+    private int orderId;
+    private LocalDateTime date;
+    private String userName;
+    private double orderTotal;
+    private boolean status;
+    private int productId;
+    private int quantity;
+    private double unitPrice;
+    private double discount;
+
+    // Constructors
+    public OrderLine() {
+    }
+
+    public OrderLine(int orderId, LocalDateTime date, String userName, double orderTotal, boolean status,
+                     int productId, int quantity, double unitPrice, double discount) {
+        this.orderId = orderId;
+        this.date = date;
+        this.userName = userName;
+        this.orderTotal = orderTotal;
+        this.status = status;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+        this.discount = discount;
+    }
+
+    // Getters and Setters
+    public int getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(int orderId) {
+        this.orderId = orderId;
+    }
+
+    public LocalDateTime getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDateTime date) {
+        this.date = date;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public void setUserName(String userName) {
+        this.userName = userName;
+    }
+
+    public double getOrderTotal() {
+        return orderTotal;
+    }
+
+    public void setOrderTotal(double orderTotal) {
+        this.orderTotal = orderTotal;
+    }
+
+    public boolean isStatus() {
+        return status;
+    }
+
+    public void setStatus(boolean status) {
+        this.status = status;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public void setProductId(int productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public double getUnitPrice() {
+        return unitPrice;
+    }
+
+    public void setUnitPrice(double unitPrice) {
+        this.unitPrice = unitPrice;
+    }
+
+    public double getDiscount() {
+        return discount;
+    }
+
+    public void setDiscount(double discount) {
+        this.discount = discount;
+    }
+
+    // Business methods
+    /**
+     * Get line amount after discount
+     * @return Quantity * unit price * (1 - discount)
+     */
+    public double getLineTotal() {
+        return quantity * unitPrice * (1 - discount);
+    }
+
+    /**
+     * Check if this row carries a product line (orders without details are exported with an empty line)
+     * @return true if a product is attached
+     */
+    public boolean hasProduct() {
+        return productId > 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OrderLine{orderId=%d, productId=%d, quantity=%d, unitPrice=%.2f}",
+                           orderId, productId, quantity, unitPrice);
+    }
+}
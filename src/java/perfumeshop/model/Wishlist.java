@@ -1,50 +1,136 @@
 package perfumeshop.model;
 
+import perfumeshop.service.ProductCatalog;
+import perfumeshop.utils.IntHashSet;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
-public class Wishlist {
+/**
+ * A user's wishlist: the set of product IDs they saved, in the order they were added.
+ * <p>
+ * Membership is an {@link IntHashSet} lookup, so product grids can mark every card
+ * ({@code ${sessionScope.wishlist.contains(p.id)}}) without scanning the list; display
+ * data is resolved from the shared {@link ProductCatalog} only when items are listed.
+ * @author PerfumeShop Team
+ */
+public class Wishlist implements Serializable {
 
-    private List<Item> listItems;
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final IntHashSet index = new IntHashSet();
+    private int[] productIds = new int[INITIAL_CAPACITY];
+    private int size;
+
+    // Resolved items, rebuilt lazily after a change; never serialized
+    private transient List<Item> itemsView;
 
     public Wishlist() {
-        listItems = new ArrayList<>();
     }
 
-    public Wishlist(List<Item> listItems) {
-        this.listItems = listItems;
+    public Wishlist(int[] productIds) {
+        if (productIds != null) {
+            for (int productId : productIds) {
+                add(productId);
+            }
+        }
     }
 
-    public List<Item> getListItems() {
-        return listItems;
+    /**
+     * Check whether a product is in the wishlist
+     * @param productId Product ID
+     * @return true if saved
+     */
+    public boolean contains(int productId) {
+        return index.contains(productId);
     }
 
-    public void setListItems(List<Item> listItems) {
-        this.listItems = listItems;
+    /**
+     * Add a product
+     * @param productId Product ID
+     * @return true if it was not already saved
+     * @throws IllegalArgumentException if productId is not positive
+     */
+    public boolean add(int productId) {
+        if (productId <= 0) {
+            throw new IllegalArgumentException("Product ID must be positive");
+        }
+        if (!index.add(productId)) {
+            return false;
+        }
+        if (size == productIds.length) {
+            productIds = Arrays.copyOf(productIds, size * 2);
+        }
+        productIds[size++] = productId;
+        itemsView = null;
+        return true;
     }
 
-    private Item getItemByID(int id) {
-        for (Item item : listItems) {
-            if (item.getProduct().getId() == id) {
-                return item;
+    /**
+     * Remove a product
+     * @param productId Product ID
+     * @return true if it was saved
+     */
+    public boolean remove(int productId) {
+        if (!index.remove(productId)) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (productIds[i] == productId) {
+                System.arraycopy(productIds, i + 1, productIds, i, size - i - 1);
+                size--;
+                break;
             }
         }
-        return null;
+        itemsView = null;
+        return true;
     }
 
-    public void addItem(Item t) {
-        if (getItemByID(t.getProduct().getId()) == null) {
-            listItems.add(t);
+    /**
+     * Get the saved products with display data from the catalog cache, skipping deleted ones
+     * @return Read-only list, valid until the next change
+     */
+    public List<Item> getListItems() {
+        if (itemsView == null) {
+            ProductCatalog catalog = ProductCatalog.getInstance();
+            List<Item> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                Product product = catalog.getProduct(productIds[i]);
+                if (product != null) {
+                    list.add(new Item(product, 1));
+                }
+            }
+            itemsView = Collections.unmodifiableList(list);
         }
+        return itemsView;
     }
 
-    public void removeItem(int id) {
-        if (getItemByID(id) != null) {
-            listItems.remove(getItemByID(id));
-        }
+    /**
+     * Get the product IDs in the order they were added
+     * @return Copy of the IDs
+     */
+    public int[] getProductIds() {
+        return Arrays.copyOf(productIds, size);
+    }
+
+    public int getSize() {
+        return size;
     }
-    
+
     public int countItems() {
-        return listItems.size();
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Wishlist{items=%d}", size);
     }
 }
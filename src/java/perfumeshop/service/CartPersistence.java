@@ -0,0 +1,255 @@
+package perfumeshop.service;
+
+import perfumeshop.dal.CartDAO;
+import perfumeshop.model.Cart;
+import perfumeshop.model.Order;
+import perfumeshop.model.User;
+import perfumeshop.utils.LoggingUtils;
+import perfumeshop.utils.OrderEvents;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * Persists logged-in users' carts with coalesced write-behind.
+ * <p>
+ * Cart changes only record a copy of the latest contents; a background thread writes a
+ * user's cart once it has been quiet for {@link #QUIET_MILLIS} (or pending for
+ * {@link #MAX_DELAY_MILLIS}), so a burst of add/remove clicks costs one save. Pending carts
+ * are flushed on logout and shutdown, and a committed order empties the saved cart.
+ * @author PerfumeShop Team
+ */
+public class CartPersistence implements OrderEvents.Listener {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(CartPersistence.class);
+
+    private static final CartPersistence INSTANCE = new CartPersistence();
+
+    private static final long QUIET_MILLIS = 5_000;
+    private static final long MAX_DELAY_MILLIS = 30_000;
+    private static final long FLUSH_INTERVAL_MILLIS = 1_000;
+    private static final long FLUSH_TIMEOUT_SECONDS = 5;
+
+    private static final String ATTR_ACCOUNT = "account";
+    private static final String ATTR_CART = "cart";
+
+    /**
+     * Latest unsaved contents of one user's cart
+     */
+    private static final class PendingCart {
+        final Cart cart;
+        final long firstChangeAt;
+        final long lastChangeAt;
+
+        PendingCart(Cart cart, long firstChangeAt, long lastChangeAt) {
+            this.cart = cart;
+            this.firstChangeAt = firstChangeAt;
+            this.lastChangeAt = lastChangeAt;
+        }
+
+        boolean isDue(long now) {
+            return now - lastChangeAt >= QUIET_MILLIS || now - firstChangeAt >= MAX_DELAY_MILLIS;
+        }
+    }
+
+    private final Map<String, PendingCart> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    private CartPersistence() {
+    }
+
+    public static CartPersistence getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start the write-behind thread and listen for committed orders
+     */
+    public synchronized void start() {
+        if (flusher != null) {
+            return;
+        }
+        OrderEvents.register(this);
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cart-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushDue, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the write-behind thread and save every pending cart
+     */
+    public synchronized void shutdown() {
+        OrderEvents.unregister(this);
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flusher = null;
+        }
+        flushAll();
+    }
+
+    /**
+     * Record that the session's cart changed; no-op for anonymous sessions
+     * @param session Current session
+     */
+    public void cartChanged(HttpSession session) {
+        Object account = session.getAttribute(ATTR_ACCOUNT);
+        Object cart = session.getAttribute(ATTR_CART);
+        if (account instanceof User && cart instanceof Cart) {
+            cartChanged(((User) account).getUserName(), (Cart) cart);
+        }
+    }
+
+    /**
+     * Schedule a user's cart to be saved
+     * @param userName User name
+     * @param cart Current cart (copied, so the caller may keep changing it)
+     */
+    public void cartChanged(String userName, Cart cart) {
+        long now = System.currentTimeMillis();
+        Cart snapshot = cart.copy();
+        pending.merge(userName, new PendingCart(snapshot, now, now),
+                      (previous, latest) -> new PendingCart(snapshot, previous.firstChangeAt, now));
+    }
+
+    /**
+     * Load a user's cart, including changes not yet written
+     * @param userName User name
+     * @return Cart (empty if none saved)
+     * @throws perfumeshop.exception.DaoException if database operation fails
+     */
+    public Cart load(String userName) {
+        PendingCart unsaved = pending.get(userName);
+        if (unsaved != null) {
+            return unsaved.cart.copy();
+        }
+        try (CartDAO dao = new CartDAO()) {
+            return dao.getCart(userName);
+        }
+    }
+
+    /**
+     * Restore a user's cart at login and fold in the cart built before logging in
+     * @param userName User name
+     * @param anonymousCart Cart of the pre-login session, may be null
+     * @return Cart to put in the new session; the anonymous cart alone if the saved one cannot be loaded
+     */
+    public Cart restoreOnLogin(String userName, Cart anonymousCart) {
+        Cart cart;
+        try {
+            cart = load(userName);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Loading saved cart failed for user: " + userName, e);
+            return anonymousCart != null ? anonymousCart : new Cart();
+        }
+        if (anonymousCart != null && !anonymousCart.isEmpty()) {
+            new CartService().mergeCarts(cart, anonymousCart);
+            cartChanged(userName, cart);
+        }
+        return cart;
+    }
+
+    /**
+     * Save a user's pending cart now (e.g. on logout)
+     * @param userName User name
+     */
+    public void flush(String userName) {
+        ScheduledExecutorService current = flusher;
+        if (current == null) {
+            flushNow(userName);
+            return;
+        }
+        // Saves run on the write-behind thread only, so an older copy can never overwrite a newer one
+        try {
+            current.submit(() -> flushNow(userName)).get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException e) {
+            LOGGER.log(Level.WARNING, "Flushing cart failed for user: " + userName, e);
+        }
+    }
+
+    private void flushNow(String userName) {
+        PendingCart unsaved = pending.remove(userName);
+        if (unsaved != null) {
+            try (CartDAO dao = new CartDAO()) {
+                save(dao, userName, unsaved);
+            }
+        }
+    }
+
+    /**
+     * Number of carts waiting to be written
+     * @return Pending count
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public void orderCreated(Order order, int itemsSold) {
+        // The order consumed the cart: save it as empty on the next flush, unless the user refills it first
+        long now = System.currentTimeMillis() - QUIET_MILLIS;
+        Cart empty = new Cart();
+        pending.merge(order.getUserName(), new PendingCart(empty, now, now),
+                      (previous, latest) -> latest);
+    }
+
+    private void flushDue() {
+        long now = System.currentTimeMillis();
+        // One connection per round, opened only when something is due
+        CartDAO dao = null;
+        try {
+            for (Map.Entry<String, PendingCart> entry : pending.entrySet()) {
+                PendingCart unsaved = entry.getValue();
+                // Remove only if unchanged, so a newer change is kept for the next round
+                if (unsaved.isDue(now) && pending.remove(entry.getKey(), unsaved)) {
+                    if (dao == null) {
+                        dao = new CartDAO();
+                    }
+                    save(dao, entry.getKey(), unsaved);
+                }
+            }
+        } finally {
+            if (dao != null) {
+                dao.close();
+            }
+        }
+    }
+
+    private void flushAll() {
+        try (CartDAO dao = new CartDAO()) {
+            for (String userName : pending.keySet()) {
+                PendingCart unsaved = pending.remove(userName);
+                if (unsaved != null) {
+                    save(dao, userName, unsaved);
+                }
+            }
+        }
+    }
+
+    private void save(CartDAO dao, String userName, PendingCart unsaved) {
+        try {
+            dao.saveCart(userName, unsaved.cart);
+        } catch (RuntimeException e) {
+            // Put it back unless a newer version arrived meanwhile; retried on the next round
+            pending.putIfAbsent(userName, unsaved);
+            LOGGER.log(Level.WARNING, "Saving cart failed for user: " + userName, e);
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package perfumeshop.service;
 
+import perfumeshop.dal.CartDAO;
 import perfumeshop.exception.ValidationException;
 import perfumeshop.model.Cart;
+import perfumeshop.model.CartChange;
 import perfumeshop.model.Item;
 import perfumeshop.model.Product;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -18,6 +22,8 @@ public class CartService {
 
     private static final double SHIPPING_FEE = 3.0;
     private static final double TAX_RATE = 0.0; // No tax for now
+    // Prices closer than half a cent are treated as unchanged
+    private static final double PRICE_TOLERANCE = 0.005;
 
     /**
      * Add item to cart with validation
@@ -131,6 +137,69 @@ public class CartService {
         return cart.getFinalTotal();
     }
 
+    /**
+     * Revalidate every cart line against current price, discount and stock with one query,
+     * before the checkout transaction takes any lock. Stale lines are corrected in place:
+     * prices are refreshed, quantities reduced to what is in stock, and deleted or sold-out
+     * products removed.
+     * @param cart Shopping cart
+     * @return Changes made, empty if the cart can be checked out as is
+     * @throws ValidationException if cart is null
+     * @throws perfumeshop.exception.DaoException if the products cannot be read
+     */
+    public List<CartChange> revalidateForCheckout(Cart cart) {
+        validateCart(cart);
+
+        List<CartChange> changes = new ArrayList<>();
+        if (cart.isEmpty()) {
+            return changes;
+        }
+
+        Map<Integer, Product> current;
+        try (CartDAO dao = new CartDAO()) {
+            current = dao.getCheckoutProducts(cart.getProductIds());
+        }
+
+        for (int productId : cart.getProductIds()) {
+            Product product = current.get(productId);
+            int requested = cart.getQuantityByID(productId);
+            if (product == null) {
+                changes.add(new CartChange(CartChange.Type.UNAVAILABLE, productId, null,
+                        cart.getUnitPriceByID(productId), 0, requested, 0));
+                cart.removeItem(productId);
+                continue;
+            }
+
+            double oldPrice = cart.getUnitPriceByID(productId);
+            double newPrice = product.getSalePrice();
+            if (Math.abs(oldPrice - newPrice) > PRICE_TOLERANCE
+                    || Math.abs(cart.getListPriceByID(productId) - product.getPrice()) > PRICE_TOLERANCE) {
+                cart.updatePrice(productId, newPrice, product.getPrice());
+                if (Math.abs(oldPrice - newPrice) > PRICE_TOLERANCE) {
+                    changes.add(new CartChange(CartChange.Type.PRICE_CHANGED, productId, product.getName(),
+                            oldPrice, newPrice, requested, product.getQuantity()));
+                }
+            }
+
+            int flashStock = FlashSaleStock.getInstance().getAvailable(productId);
+            int available = flashStock >= 0 ? flashStock : product.getQuantity();
+            if (available <= 0) {
+                changes.add(new CartChange(CartChange.Type.OUT_OF_STOCK, productId, product.getName(),
+                        oldPrice, newPrice, requested, 0));
+                cart.removeItem(productId);
+            } else if (requested > available) {
+                changes.add(new CartChange(CartChange.Type.INSUFFICIENT_STOCK, productId, product.getName(),
+                        oldPrice, newPrice, requested, available));
+                cart.updateQuantity(productId, available);
+            }
+        }
+
+        if (!changes.isEmpty()) {
+            LOGGER.log(Level.INFO, "Cart revalidation found {0} change(s) before checkout", changes.size());
+        }
+        return changes;
+    }
+
     /**
      * Check if cart has sufficient stock (placeholder for future implementation)
      * @param cart Shopping cart
@@ -0,0 +1,294 @@
+package perfumeshop.service;
+
+import perfumeshop.exception.CheckoutBusyException;
+import perfumeshop.utils.LoggingUtils;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Admission control for checkouts during demand bursts.
+ * <p>
+ * Each attempt is queued under one product of its cart (the one with the longest line, so
+ * buyers of a hot product wait together) in a bounded FIFO. {@link #CONCURRENCY} worker
+ * threads serve the queues: a worker takes up to {@link #GROUP_SIZE} attempts from one
+ * queue and runs them back to back, then moves the queue to the back of the ready list. At
+ * most one worker serves a product at a time, so orders for the same product no longer
+ * convoy on its row lock, and other products proceed in parallel. A full queue, a wait
+ * longer than {@link #MAX_WAIT_MILLIS} or a second attempt by the same user is turned away
+ * at once with {@link CheckoutBusyException} carrying a position and a retry-after estimate,
+ * so request threads are never parked indefinitely. The limits can be overridden with the
+ * perfumeshop.checkout.concurrency, .groupSize, .queueCapacity and .maxWaitMillis system properties.
+ * @author PerfumeShop Team
+ */
+public class CheckoutAdmission {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(CheckoutAdmission.class);
+
+    private static final CheckoutAdmission INSTANCE = new CheckoutAdmission();
+
+    private static final int CONCURRENCY = Math.max(1, Integer.getInteger("perfumeshop.checkout.concurrency", 4));
+    private static final int GROUP_SIZE = Math.max(1, Integer.getInteger("perfumeshop.checkout.groupSize", 5));
+    private static final int QUEUE_CAPACITY = Math.max(1, Integer.getInteger("perfumeshop.checkout.queueCapacity", 50));
+    private static final long MAX_WAIT_MILLIS = Math.max(1, Long.getLong("perfumeshop.checkout.maxWaitMillis", 10_000));
+    // Initial guess for one checkout until real timings are measured
+    private static final long INITIAL_SERVICE_MILLIS = 200;
+
+    /**
+     * One queued checkout
+     */
+    private static final class Attempt<T> {
+        final Callable<T> task;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Attempt(Callable<T> task) {
+            this.task = task;
+        }
+
+        void run() {
+            try {
+                result.complete(task.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Waiting attempts of one product; guarded by its own monitor
+     */
+    private static final class ProductQueue {
+        final int productId;
+        final ArrayDeque<Attempt<?>> waiting = new ArrayDeque<>();
+        // True while on the ready list or being served
+        boolean scheduled;
+
+        ProductQueue(int productId) {
+            this.productId = productId;
+        }
+    }
+
+    private final Map<Integer, ProductQueue> queues = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<ProductQueue> ready = new LinkedBlockingQueue<>();
+    private final Set<String> activeUsers = ConcurrentHashMap.newKeySet();
+    // Moving average of one checkout's duration, for retry-after estimates
+    private volatile long serviceMillis = INITIAL_SERVICE_MILLIS;
+    // Read without the lock by submit(), so published whole once started
+    private volatile Thread[] workers;
+
+    private CheckoutAdmission() {
+    }
+
+    public static CheckoutAdmission getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start the worker threads
+     */
+    public synchronized void start() {
+        if (workers != null) {
+            return;
+        }
+        Thread[] started = new Thread[CONCURRENCY];
+        for (int i = 0; i < CONCURRENCY; i++) {
+            started[i] = new Thread(this::serve, "checkout-admission-" + (i + 1));
+            started[i].setDaemon(true);
+            started[i].start();
+        }
+        workers = started;
+        LOGGER.log(Level.INFO, "Checkout admission started: {0} workers, groups of {1}, {2} per product queue",
+                  new Object[]{CONCURRENCY, GROUP_SIZE, QUEUE_CAPACITY});
+    }
+
+    /**
+     * Stop the worker threads; attempts still queued fail as busy
+     */
+    public synchronized void shutdown() {
+        if (workers == null) {
+            return;
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        workers = null;
+        for (ProductQueue queue : queues.values()) {
+            synchronized (queue) {
+                for (Attempt<?> attempt : queue.waiting) {
+                    attempt.result.completeExceptionally(
+                            new CheckoutBusyException("Checkout is shutting down", 0, retryAfterSeconds(1)));
+                }
+                queue.waiting.clear();
+            }
+        }
+    }
+
+    /**
+     * Run a checkout once admitted, on a checkout worker
+     * @param userName User placing the order; one attempt per user at a time
+     * @param productIds Products in the cart
+     * @param task Work to run (should touch only the database, not the request)
+     * @return Task result
+     * @throws CheckoutBusyException if the checkout was not admitted; nothing ran
+     */
+    public <T> T submit(String userName, int[] productIds, Callable<T> task) {
+        if (workers == null || productIds.length == 0) {
+            return runInline(task);
+        }
+        if (!activeUsers.add(userName)) {
+            throw new CheckoutBusyException("Your previous order is still being processed", 0, retryAfterSeconds(1));
+        }
+        try {
+            ProductQueue queue = pickQueue(productIds);
+            Attempt<T> attempt = new Attempt<>(task);
+            int position;
+            synchronized (queue) {
+                position = queue.waiting.size() + 1;
+                if (position > QUEUE_CAPACITY) {
+                    throw new CheckoutBusyException("Too many checkouts for this product right now",
+                                                    position, retryAfterSeconds(position));
+                }
+                queue.waiting.addLast(attempt);
+                if (!queue.scheduled) {
+                    queue.scheduled = true;
+                    ready.offer(queue);
+                }
+            }
+            return await(queue, attempt);
+        } finally {
+            activeUsers.remove(userName);
+        }
+    }
+
+    /**
+     * Number of attempts waiting across all products
+     * @return Queued count
+     */
+    public int getQueuedCount() {
+        int count = 0;
+        for (ProductQueue queue : queues.values()) {
+            synchronized (queue) {
+                count += queue.waiting.size();
+            }
+        }
+        return count;
+    }
+
+    private <T> T await(ProductQueue queue, Attempt<T> attempt) {
+        try {
+            try {
+                return attempt.result.get(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                int position;
+                synchronized (queue) {
+                    position = indexOf(queue, attempt) + 1;
+                    if (position > 0) {
+                        queue.waiting.remove(attempt);
+                    }
+                }
+                if (position > 0) {
+                    throw new CheckoutBusyException("Checkout is busy, please try again",
+                                                    position, retryAfterSeconds(position));
+                }
+                // Already running: the order is being written, so wait for the outcome
+                return attempt.result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CheckoutBusyException("Checkout was interrupted", 0, retryAfterSeconds(1));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Checkout failed", cause);
+        }
+    }
+
+    private ProductQueue pickQueue(int[] productIds) {
+        ProductQueue best = null;
+        int bestSize = -1;
+        for (int productId : productIds) {
+            ProductQueue queue = queues.computeIfAbsent(productId, ProductQueue::new);
+            int size;
+            synchronized (queue) {
+                size = queue.waiting.size();
+            }
+            if (size > bestSize || (size == bestSize && productId < best.productId)) {
+                best = queue;
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+
+    private void serve() {
+        while (!Thread.currentThread().isInterrupted()) {
+            ProductQueue queue;
+            try {
+                queue = ready.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            for (int served = 0; served < GROUP_SIZE; served++) {
+                Attempt<?> attempt;
+                synchronized (queue) {
+                    attempt = queue.waiting.pollFirst();
+                }
+                if (attempt == null) {
+                    break;
+                }
+                long start = System.nanoTime();
+                attempt.run();
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                serviceMillis = (serviceMillis * 7 + elapsed) / 8;
+            }
+            synchronized (queue) {
+                if (queue.waiting.isEmpty()) {
+                    queue.scheduled = false;
+                } else {
+                    // Let other products have a turn before the next group
+                    ready.offer(queue);
+                }
+            }
+        }
+    }
+
+    private <T> T runInline(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Checkout failed", e);
+        }
+    }
+
+    private int retryAfterSeconds(int position) {
+        long millis = serviceMillis * position;
+        return (int) Math.max(1, (millis + 999) / 1000);
+    }
+
+    private static int indexOf(ProductQueue queue, Attempt<?> attempt) {
+        int index = 0;
+        for (Attempt<?> waiting : queue.waiting) {
+            if (waiting == attempt) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,332 @@
+package perfumeshop.service;
+
+import perfumeshop.dal.OrderDAO;
+import perfumeshop.dal.UserDAO;
+import perfumeshop.exception.ValidationException;
+import perfumeshop.model.Order;
+import perfumeshop.model.Spending;
+import perfumeshop.model.User;
+import perfumeshop.utils.IntHashSet;
+import perfumeshop.utils.IntLongHashMap;
+import perfumeshop.utils.LoggingUtils;
+import perfumeshop.utils.OrderEvents;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-customer spending aggregate answering "top N customers" for any time window.
+ * <p>
+ * Spending is kept in cents per dictionary-encoded user: a lifetime total plus sparse
+ * per-day and per-month buckets. A window query sums whole months where it can and single
+ * days at its edges, so its cost depends on the number of active customers in the window,
+ * not on the number of orders. Buckets are updated on every committed order and rebuilt
+ * from the Orders table every few hours to repair any drift; orders committed while a
+ * rebuild runs are replayed onto it unless the rebuild already read them.
+ * @author PerfumeShop Team
+ */
+public class CustomerSpendLeaderboard implements OrderEvents.Listener {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(CustomerSpendLeaderboard.class);
+
+    private static final CustomerSpendLeaderboard INSTANCE = new CustomerSpendLeaderboard();
+
+    public static final int MAX_TOP = 100;
+    // Hours between two reconciliations against the Orders table
+    private static final int RECONCILE_HOURS = 6;
+
+    /**
+     * Spending buckets; guarded by the leaderboard lock
+     */
+    private static final class State {
+        final Map<String, Integer> userIds = new HashMap<>();
+        String[] userNames = new String[64];
+        long[] lifetime = new long[64];
+        final Map<Integer, IntLongHashMap> days = new HashMap<>();
+        final Map<Integer, IntLongHashMap> months = new HashMap<>();
+        long minDay = Long.MAX_VALUE;
+        long maxDay = Long.MIN_VALUE;
+
+        void add(String userName, LocalDate day, double total) {
+            long cents = Math.round(total * 100);
+            int user = userId(userName);
+            lifetime[user] += cents;
+            long epochDay = day.toEpochDay();
+            days.computeIfAbsent((int) epochDay, k -> new IntLongHashMap()).add(user, cents);
+            months.computeIfAbsent(monthKey(day), k -> new IntLongHashMap()).add(user, cents);
+            minDay = Math.min(minDay, epochDay);
+            maxDay = Math.max(maxDay, epochDay);
+        }
+
+        int userId(String userName) {
+            Integer id = userIds.get(userName);
+            if (id == null) {
+                id = userIds.size();
+                if (id == userNames.length) {
+                    userNames = Arrays.copyOf(userNames, id * 2);
+                    lifetime = Arrays.copyOf(lifetime, id * 2);
+                }
+                userNames[id] = userName;
+                userIds.put(userName, id);
+            }
+            return id;
+        }
+
+        int userCount() {
+            return userIds.size();
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state = new State();
+    // Orders committed while a rebuild streams the table; replayed onto the rebuilt state
+    private List<Order> pending;
+    private volatile boolean loaded;
+    private ScheduledExecutorService scheduler;
+
+    private CustomerSpendLeaderboard() {
+    }
+
+    public static CustomerSpendLeaderboard getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribe to committed orders, load in the background and schedule reconciliation
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        OrderEvents.register(this);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "spend-leaderboard");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcile, 0, RECONCILE_HOURS, TimeUnit.HOURS);
+    }
+
+    /**
+     * Unsubscribe and stop the reconciliation thread
+     */
+    public synchronized void shutdown() {
+        OrderEvents.unregister(this);
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Check whether the first load has completed
+     * @return true once rankings reflect all orders
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Rebuild all buckets from the Orders table (blocking). Orders committed meanwhile are kept.
+     * @throws perfumeshop.exception.DaoException if database operation fails
+     */
+    public void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            pending = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        State fresh = new State();
+        IntHashSet streamed = new IntHashSet();
+        try (OrderDAO dao = new OrderDAO()) {
+            dao.streamOrders(order -> {
+                streamed.add(order.getOrderId());
+                fresh.add(order.getUserName(), order.getDate().toLocalDate(), order.getTotal());
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Order IDs are allocated before commit, so a late commit can have a lower ID than
+            // orders the stream saw; only what the stream actually read is skipped
+            for (Order order : pending) {
+                if (!streamed.contains(order.getOrderId())) {
+                    fresh.add(order.getUserName(), order.getDate().toLocalDate(), order.getTotal());
+                }
+            }
+            pending = null;
+            state = fresh;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        LOGGER.log(Level.INFO, "Customer spend leaderboard rebuilt for {0} customers in {1}ms",
+                  new Object[]{fresh.userCount(), (System.nanoTime() - start) / 1_000_000});
+    }
+
+    @Override
+    public void orderCreated(Order order, int itemsSold) {
+        lock.writeLock().lock();
+        try {
+            state.add(order.getUserName(), order.getDate().toLocalDate(), order.getTotal());
+            if (pending != null) {
+                pending.add(new Order(order.getOrderId(), order.getDate(), order.getUserName(),
+                                      order.getTotal(), order.isStatus()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get the customers with the highest spending, skipping inactive accounts
+     * @param n Number of customers (1..MAX_TOP)
+     * @param from First day (inclusive), or null for no lower bound
+     * @param to Last day (exclusive), or null for no upper bound
+     * @return Customers ordered by spending, highest first
+     * @throws ValidationException if parameters are invalid
+     * @throws perfumeshop.exception.DaoException if the accounts cannot be read
+     */
+    public List<Spending> getTopCustomers(int n, LocalDate from, LocalDate to) {
+        if (n < 1 || n > MAX_TOP) {
+            throw new ValidationException("Top size must be between 1 and " + MAX_TOP, "n");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new ValidationException("Start date must be before end date", "from");
+        }
+
+        String[] names;
+        long[] totals;
+        lock.readLock().lock();
+        try {
+            names = state.userNames;
+            totals = sumWindow(state, from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Rank a few extra candidates so inactive accounts rarely need a second round
+        List<Spending> result = new ArrayList<>(n);
+        int ranked = 0;
+        int k = n * 2;
+        try (UserDAO userDAO = new UserDAO()) {
+            while (true) {
+                int[] candidates = topIndexes(totals, k);
+                List<String> userNames = new ArrayList<>();
+                for (int i = ranked; i < candidates.length; i++) {
+                    userNames.add(names[candidates[i]]);
+                }
+                Map<String, User> users = userDAO.getActiveUsersByUserNames(userNames);
+                for (int i = ranked; i < candidates.length && result.size() < n; i++) {
+                    User user = users.get(names[candidates[i]]);
+                    if (user != null) {
+                        result.add(new Spending(user, totals[candidates[i]] / 100.0));
+                    }
+                }
+                if (result.size() == n || candidates.length < k) {
+                    break;
+                }
+                ranked = candidates.length;
+                k *= 2;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sum spending per user over [from, to) (caller holds the read lock)
+     */
+    private long[] sumWindow(State s, LocalDate from, LocalDate to) {
+        long[] totals = new long[s.userCount()];
+        if (s.userCount() == 0) {
+            return totals;
+        }
+        long first = from == null ? s.minDay : Math.max(from.toEpochDay(), s.minDay);
+        long end = to == null ? s.maxDay + 1 : Math.min(to.toEpochDay(), s.maxDay + 1);
+        if (first <= s.minDay && end > s.maxDay) {
+            System.arraycopy(s.lifetime, 0, totals, 0, totals.length);
+            return totals;
+        }
+
+        IntLongHashMap.Visitor accumulate = (user, cents) -> totals[user] += cents;
+        LocalDate day = LocalDate.ofEpochDay(first);
+        LocalDate endDay = LocalDate.ofEpochDay(Math.max(first, end));
+        while (day.isBefore(endDay)) {
+            LocalDate nextMonth = day.withDayOfMonth(1).plusMonths(1);
+            if (day.getDayOfMonth() == 1 && !nextMonth.isAfter(endDay)) {
+                IntLongHashMap bucket = s.months.get(monthKey(day));
+                if (bucket != null) {
+                    bucket.forEach(accumulate);
+                }
+                day = nextMonth;
+            } else {
+                IntLongHashMap bucket = s.days.get((int) day.toEpochDay());
+                if (bucket != null) {
+                    bucket.forEach(accumulate);
+                }
+                day = day.plusDays(1);
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Indexes of the k largest positive totals, highest first
+     */
+    private static int[] topIndexes(long[] totals, int k) {
+        // Ties go to the lower index so that a larger k always extends a smaller k's ranking
+        Comparator<Integer> order = (a, b) -> totals[a] != totals[b] ? Long.compare(totals[a], totals[b]) : Integer.compare(b, a);
+        PriorityQueue<Integer> heap = new PriorityQueue<>(k + 1, order);
+        for (int i = 0; i < totals.length; i++) {
+            if (totals[i] <= 0) {
+                continue;
+            }
+            if (heap.size() < k) {
+                heap.add(i);
+            } else if (order.compare(i, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+        int[] result = new int[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = heap.poll();
+        }
+        return result;
+    }
+
+    private static int monthKey(LocalDate day) {
+        return day.getYear() * 12 + day.getMonthValue() - 1;
+    }
+
+    private void reconcile() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Customer spend leaderboard reconciliation failed", e);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package perfumeshop.service;
+
+import perfumeshop.model.Order;
+import perfumeshop.utils.LoggingUtils;
+import perfumeshop.utils.MonitoringUtils;
+import perfumeshop.utils.OrderEvents;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+
+/**
+ * Pushes order activity to connected admin dashboards as Server-Sent Events.
+ * <p>
+ * Committed orders only bump a few atomic counters; one producer thread drains them
+ * every {@link #TICK_MILLIS} and writes a single "orders" event carrying the deltas to
+ * every subscriber, so a burst of checkouts costs at most a few writes per second per admin.
+ * Idle connections receive a comment line periodically so dead clients are detected.
+ * @author PerfumeShop Team
+ */
+public class DashboardFeed implements OrderEvents.Listener {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(DashboardFeed.class);
+
+    private static final DashboardFeed INSTANCE = new DashboardFeed();
+
+    // Coalescing period: at most 1000 / TICK_MILLIS events per second
+    private static final long TICK_MILLIS = 250;
+    private static final long HEARTBEAT_MILLIS = 15_000;
+    // Clients reconnect automatically (EventSource) once the container ends the request
+    public static final long CONNECTION_TIMEOUT_MILLIS = 30 * 60 * 1000L;
+
+    private final List<AsyncContext> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicLong pendingOrders = new AtomicLong();
+    private final AtomicLong pendingRevenueCents = new AtomicLong();
+    private final AtomicLong pendingItemsSold = new AtomicLong();
+    private final AtomicLong pendingDelivered = new AtomicLong();
+    private long lastWriteAt;
+    private long eventId;
+    private ScheduledExecutorService producer;
+
+    private DashboardFeed() {
+    }
+
+    public static DashboardFeed getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribe to committed orders and start the producer thread
+     */
+    public synchronized void start() {
+        if (producer != null) {
+            return;
+        }
+        OrderEvents.register(this);
+        producer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dashboard-feed");
+            t.setDaemon(true);
+            return t;
+        });
+        producer.scheduleWithFixedDelay(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the producer and close every open stream
+     */
+    public synchronized void shutdown() {
+        OrderEvents.unregister(this);
+        if (producer != null) {
+            producer.shutdownNow();
+            producer = null;
+        }
+        for (AsyncContext context : subscribers) {
+            close(context);
+        }
+    }
+
+    /**
+     * Attach a started async request as a subscriber; the response headers must already be set
+     * @param context Async context of an SSE request
+     */
+    public void subscribe(AsyncContext context) {
+        context.addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                subscribers.remove(context);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                close(context);
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                close(context);
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        subscribers.add(context);
+    }
+
+    /**
+     * Number of connected dashboards
+     * @return Subscriber count
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void orderCreated(Order order, int itemsSold) {
+        MonitoringUtils.recordOrder(order.getTotal());
+        pendingOrders.incrementAndGet();
+        pendingRevenueCents.addAndGet(Math.round(order.getTotal() * 100));
+        pendingItemsSold.addAndGet(itemsSold);
+    }
+
+    @Override
+    public void orderDelivered(int orderId) {
+        pendingDelivered.incrementAndGet();
+    }
+
+    /**
+     * Drain the counters and fan one event out to all subscribers (producer thread only)
+     */
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            if (subscribers.isEmpty()) {
+                // Nobody listening: drop the deltas, a new page load starts from fresh totals
+                drain();
+                return;
+            }
+
+            long[] deltas = drain();
+            String message;
+            if (deltas[0] != 0 || deltas[3] != 0) {
+                message = "id: " + (++eventId) + "\nevent: orders\ndata: "
+                        + String.format("{\"orders\":%d,\"revenue\":%.2f,\"itemsSold\":%d,\"delivered\":%d}",
+                                        deltas[0], deltas[1] / 100.0, deltas[2], deltas[3])
+                        + "\n\n";
+            } else if (now - lastWriteAt >= HEARTBEAT_MILLIS) {
+                message = ": keep-alive\n\n";
+            } else {
+                return;
+            }
+
+            lastWriteAt = now;
+            for (AsyncContext context : subscribers) {
+                write(context, message);
+            }
+        } catch (RuntimeException e) {
+            // Never let an exception cancel the scheduled producer
+            LOGGER.log(Level.WARNING, "Dashboard feed tick failed", e);
+        }
+    }
+
+    private long[] drain() {
+        return new long[]{pendingOrders.getAndSet(0), pendingRevenueCents.getAndSet(0),
+                          pendingItemsSold.getAndSet(0), pendingDelivered.getAndSet(0)};
+    }
+
+    private void write(AsyncContext context, String message) {
+        try {
+            PrintWriter out = context.getResponse().getWriter();
+            out.write(message);
+            out.flush();
+            if (out.checkError()) {
+                throw new IOException("Client disconnected");
+            }
+        } catch (IOException | IllegalStateException e) {
+            LOGGER.log(Level.FINE, "Dropping dashboard feed subscriber", e);
+            close(context);
+        }
+    }
+
+    private void close(AsyncContext context) {
+        if (subscribers.remove(context)) {
+            try {
+                context.complete();
+            } catch (IllegalStateException e) {
+                // Already completed by the container
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package perfumeshop.service;
+
+import perfumeshop.dal.DashboardDAO;
+import perfumeshop.model.DashboardSnapshot;
+import perfumeshop.model.Order;
+import perfumeshop.utils.CatalogEvents;
+import perfumeshop.utils.LoggingUtils;
+import perfumeshop.utils.OrderEvents;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves the admin dashboard counters from a cached snapshot.
+ * <p>
+ * The snapshot is recomputed in the background once it is older than {@link #TTL_MILLIS}
+ * or after an order / catalog change; readers keep getting the previous snapshot meanwhile,
+ * so only the very first request after startup waits for the database. At most one refresh
+ * runs at a time no matter how many admins hit the page.
+ * @author PerfumeShop Team
+ */
+public class DashboardService implements OrderEvents.Listener, CatalogEvents.Listener {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(DashboardService.class);
+
+    private static final DashboardService INSTANCE = new DashboardService();
+
+    // Maximum age of the snapshot before a background refresh is triggered
+    private static final long TTL_MILLIS = 30_000;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final Object loadLock = new Object();
+    private volatile DashboardSnapshot snapshot;
+    private volatile long expiresAt;
+    private ExecutorService executor;
+
+    private DashboardService() {
+    }
+
+    public static DashboardService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribe to order and catalog changes and warm the snapshot in the background
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "dashboard-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        OrderEvents.register(this);
+        CatalogEvents.register(this);
+        refreshAsync();
+    }
+
+    /**
+     * Unsubscribe and stop the refresh thread
+     */
+    public synchronized void shutdown() {
+        OrderEvents.unregister(this);
+        CatalogEvents.unregister(this);
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Get the dashboard counters. Returns the cached snapshot immediately, scheduling
+     * a refresh when it is stale; blocks only when no snapshot exists yet.
+     * @return Dashboard snapshot
+     * @throws perfumeshop.exception.DaoException if the initial computation fails
+     */
+    public DashboardSnapshot getSnapshot() {
+        DashboardSnapshot current = snapshot;
+        if (current == null) {
+            return loadNow();
+        }
+        if (System.currentTimeMillis() >= expiresAt) {
+            refreshAsync();
+        }
+        return current;
+    }
+
+    /**
+     * Mark the snapshot stale; the next read triggers a background refresh
+     */
+    public void invalidate() {
+        expiresAt = 0;
+    }
+
+    @Override
+    public void orderCreated(Order order, int itemsSold) {
+        invalidate();
+    }
+
+    @Override
+    public void productChanged(int productId) {
+        invalidate();
+    }
+
+    private DashboardSnapshot loadNow() {
+        synchronized (loadLock) {
+            if (snapshot == null) {
+                refresh();
+            }
+            return snapshot;
+        }
+    }
+
+    private void refreshAsync() {
+        ExecutorService current = executor;
+        if (current == null) {
+            // Not started (e.g. outside the container): refresh inline, keep the stale snapshot on failure
+            try {
+                synchronized (loadLock) {
+                    refresh();
+                }
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Dashboard refresh failed", e);
+            }
+            return;
+        }
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            current.execute(() -> {
+                try {
+                    synchronized (loadLock) {
+                        refresh();
+                    }
+                } catch (RuntimeException e) {
+                    // Keep serving the previous snapshot, retry on a later read
+                    LOGGER.log(Level.WARNING, "Dashboard refresh failed", e);
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            LOGGER.log(Level.WARNING, "Dashboard refresh could not be scheduled", e);
+        }
+    }
+
+    /**
+     * Recompute the snapshot (caller holds loadLock)
+     */
+    private void refresh() {
+        // Set the expiry first so an invalidation during the query forces another refresh
+        expiresAt = System.currentTimeMillis() + TTL_MILLIS;
+        DashboardSnapshot fresh;
+        try (DashboardDAO dao = new DashboardDAO()) {
+            fresh = dao.getSnapshot();
+        } catch (RuntimeException e) {
+            expiresAt = 0;
+            throw e;
+        }
+        snapshot = fresh;
+        LOGGER.log(Level.FINE, "Dashboard snapshot refreshed: {0}", fresh);
+    }
+}
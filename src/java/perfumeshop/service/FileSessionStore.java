@@ -0,0 +1,106 @@
+package perfumeshop.service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+
+/**
+ * Session store with one file per session in a local directory.
+ * <p>
+ * The directory is {@code perfumeshop.session.dir}, by default {@code perfumeshop-sessions}
+ * under the temporary directory; nodes that mount the same directory share their sessions.
+ * Each save goes to a temporary file that is then renamed over the old one, so a reader
+ * never sees a half-written session.
+ * @author PerfumeShop Team
+ */
+public class FileSessionStore implements SessionStore {
+
+    private static final String SUFFIX = ".ses";
+
+    // Container session IDs are hex, optionally followed by ".<jvmRoute>"
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9._-]{1,128}");
+
+    private final Path directory;
+
+    public FileSessionStore() throws IOException {
+        this(Paths.get(System.getProperty("perfumeshop.session.dir",
+                Paths.get(System.getProperty("java.io.tmpdir"), "perfumeshop-sessions").toString())));
+    }
+
+    public FileSessionStore(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+    }
+
+    @Override
+    public void save(String sessionId, byte[] data) throws IOException {
+        Path target = fileOf(sessionId);
+        if (target == null) {
+            return;
+        }
+        Path temp = Files.createTempFile(directory, sessionId, ".tmp");
+        try {
+            Files.write(temp, data);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public byte[] load(String sessionId) throws IOException {
+        Path file = fileOf(sessionId);
+        if (file == null) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void remove(String sessionId) throws IOException {
+        Path file = fileOf(sessionId);
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Override
+    public int purgeOlderThan(long cutoffMillis) throws IOException {
+        int purged = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    if (Files.getLastModifiedTime(file).toMillis() < cutoffMillis && Files.deleteIfExists(file)) {
+                        purged++;
+                    }
+                } catch (NoSuchFileException e) {
+                    // Removed by another node meanwhile
+                }
+            }
+        }
+        return purged;
+    }
+
+    /**
+     * File of a session, or null for an ID that could escape the directory
+     */
+    private Path fileOf(String sessionId) {
+        if (sessionId == null || !SESSION_ID.matcher(sessionId).matches() || sessionId.startsWith(".")) {
+            return null;
+        }
+        return directory.resolve(sessionId + SUFFIX);
+    }
+
+    @Override
+    public String toString() {
+        return "FileSessionStore{" + directory + "}";
+    }
+}
@@ -0,0 +1,557 @@
+package perfumeshop.service;
+
+import perfumeshop.dal.FlashSaleDAO;
+import perfumeshop.exception.ValidationException;
+import perfumeshop.model.Cart;
+import perfumeshop.utils.CatalogEvents;
+import perfumeshop.utils.LoggingUtils;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory stock for products in flash-sale mode.
+ * <p>
+ * A hot product's stock is held in a {@link StripedCounter}: purchases take units from one
+ * of several padded atomic cells, so concurrent checkouts neither share a cache line nor
+ * wait on the product row lock. Committed orders journal their quantities in the order
+ * transaction ({@link FlashSaleDAO}); a background thread folds the journal into
+ * Products.UnitsInStock every {@link #FLUSH_INTERVAL_MILLIS}. At startup the journal is
+ * applied first and the counters are loaded from what is left, so stock is never oversold
+ * across restarts. Enabling, disabling and reloading after an admin edit briefly freeze the
+ * product and wait for in-flight orders, and all run on the background thread. A reload
+ * whose orders do not finish in time stays frozen and is retried; the counter is never reset
+ * over unsettled reservations.
+ * <p>
+ * Only lines reserved here skip the regular stock update. A product that is enabled in the
+ * database but not loaded yet (startup, or a failed load) is sold from UnitsInStock as usual;
+ * checkout rolls back an order whose product was loaded while it ran ({@link #isEnabled}).
+ * @author PerfumeShop Team
+ */
+public class FlashSaleStock implements CatalogEvents.Listener {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(FlashSaleStock.class);
+
+    private static final FlashSaleStock INSTANCE = new FlashSaleStock();
+
+    private static final long FLUSH_INTERVAL_MILLIS = 1_000;
+    private static final long DRAIN_TIMEOUT_MILLIS = 5_000;
+    private static final long RELOAD_RETRY_MILLIS = 1_000;
+    private static final long TASK_TIMEOUT_SECONDS = 15;
+
+    /**
+     * Stock split across cells; a cell is only ever decremented while it stays non-negative,
+     * so the sum can never go below zero.
+     */
+    static final class StripedCounter {
+        // One cell per 64-byte cache line
+        private static final int PAD = 16;
+
+        private final AtomicIntegerArray cells;
+        private final int mask;
+
+        StripedCounter(int stripes, int total) {
+            int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+            cells = new AtomicIntegerArray(n * PAD);
+            mask = n - 1;
+            reset(total);
+        }
+
+        /**
+         * Take units if enough remain
+         * @return true if taken
+         */
+        boolean tryTake(int quantity) {
+            int home = ThreadLocalRandom.current().nextInt() & mask;
+            // Fast path: one cell that can cover the whole quantity
+            for (int i = 0; i <= mask; i++) {
+                int index = ((home + i) & mask) * PAD;
+                for (int v = cells.get(index); v >= quantity; v = cells.get(index)) {
+                    if (cells.compareAndSet(index, v, v - quantity)) {
+                        return true;
+                    }
+                }
+            }
+            return tryTakeSpread(quantity);
+        }
+
+        /**
+         * Slow path when the remaining units are spread thin: gather from several cells,
+         * returning what was gathered if the total is not reached
+         */
+        private synchronized boolean tryTakeSpread(int quantity) {
+            int[] taken = new int[mask + 1];
+            int need = quantity;
+            for (int stripe = 0; stripe <= mask && need > 0; stripe++) {
+                int index = stripe * PAD;
+                for (int v = cells.get(index); v > 0 && need > 0; v = cells.get(index)) {
+                    int take = Math.min(v, need);
+                    if (cells.compareAndSet(index, v, v - take)) {
+                        taken[stripe] += take;
+                        need -= take;
+                    }
+                }
+            }
+            if (need == 0) {
+                return true;
+            }
+            for (int stripe = 0; stripe <= mask; stripe++) {
+                if (taken[stripe] > 0) {
+                    cells.addAndGet(stripe * PAD, taken[stripe]);
+                }
+            }
+            return false;
+        }
+
+        void put(int quantity) {
+            cells.addAndGet((ThreadLocalRandom.current().nextInt() & mask) * PAD, quantity);
+        }
+
+        int sum() {
+            int sum = 0;
+            for (int stripe = 0; stripe <= mask; stripe++) {
+                sum += cells.get(stripe * PAD);
+            }
+            return sum;
+        }
+
+        void reset(int total) {
+            int stripes = mask + 1;
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                cells.set(stripe * PAD, total / stripes + (stripe < total % stripes ? 1 : 0));
+            }
+        }
+    }
+
+    /**
+     * Stock and bookkeeping of one flash-sale product
+     */
+    private static final class Entry {
+        final StripedCounter counter;
+        // Units taken by orders whose transaction has not finished yet
+        final LongAdder inFlight = new LongAdder();
+        volatile boolean frozen;
+
+        Entry(StripedCounter counter) {
+            this.counter = counter;
+        }
+    }
+
+    /**
+     * Units taken for one order; must be committed or cancelled exactly once
+     */
+    public static final class Reservation {
+        private static final Reservation EMPTY = new Reservation(null, new int[0], new int[0], 0);
+
+        private final FlashSaleStock owner;
+        private final int[] productIds;
+        private final int[] quantities;
+        private final int count;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Reservation(FlashSaleStock owner, int[] productIds, int[] quantities, int count) {
+            this.owner = owner;
+            this.productIds = productIds;
+            this.quantities = quantities;
+            this.count = count;
+        }
+
+        public boolean contains(int productId) {
+            for (int i = 0; i < count; i++) {
+                if (productIds[i] == productId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int[] getProductIds() {
+            return Arrays.copyOf(productIds, count);
+        }
+
+        public int[] getQuantities() {
+            return Arrays.copyOf(quantities, count);
+        }
+
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        /**
+         * The order committed (and journaled its quantities)
+         */
+        public void commit() {
+            if (count > 0 && done.compareAndSet(false, true)) {
+                owner.finish(this, false);
+            }
+        }
+
+        /**
+         * The order failed: give the units back
+         */
+        public void cancel() {
+            if (count > 0 && done.compareAndSet(false, true)) {
+                owner.finish(this, true);
+            }
+        }
+    }
+
+    private final int stripes = Math.min(16, Runtime.getRuntime().availableProcessors());
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private ScheduledExecutorService worker;
+
+    private FlashSaleStock() {
+    }
+
+    public static FlashSaleStock getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Apply any journal left from before the restart, load the flash-sale products and start flushing
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "flash-sale-stock");
+            t.setDaemon(true);
+            return t;
+        });
+        worker.execute(this::loadAll);
+        worker.scheduleWithFixedDelay(this::flushIfDirty, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        CatalogEvents.register(this);
+    }
+
+    /**
+     * Stop flushing and apply the remaining journal
+     */
+    public synchronized void shutdown() {
+        CatalogEvents.unregister(this);
+        if (worker != null) {
+            worker.shutdown();
+            try {
+                worker.awaitTermination(TASK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            worker = null;
+        }
+        flush();
+        entries.clear();
+    }
+
+    /**
+     * Check whether a product's stock is managed here
+     * @param productId Product ID
+     * @return true if in flash-sale mode
+     */
+    public boolean isEnabled(int productId) {
+        return entries.containsKey(productId);
+    }
+
+    /**
+     * Get a flash-sale product's available stock
+     * @param productId Product ID
+     * @return Units left, or -1 if the product is not in flash-sale mode
+     */
+    public int getAvailable(int productId) {
+        Entry entry = entries.get(productId);
+        return entry != null ? entry.counter.sum() : -1;
+    }
+
+    /**
+     * Take the cart's flash-sale quantities before the order transaction; other lines are untouched
+     * @param cart Cart being checked out
+     * @return Reservation (empty if the cart has no flash-sale product)
+     * @throws ValidationException if a product is sold out or being updated; nothing is taken
+     */
+    public Reservation reserve(Cart cart) {
+        if (entries.isEmpty()) {
+            return Reservation.EMPTY;
+        }
+        int[] cartIds = cart.getProductIds();
+        int[] productIds = new int[cartIds.length];
+        int[] quantities = new int[cartIds.length];
+        int count = 0;
+        for (int productId : cartIds) {
+            Entry entry = entries.get(productId);
+            if (entry == null) {
+                continue;
+            }
+            int quantity = cart.getQuantityByID(productId);
+            entry.inFlight.add(quantity);
+            String problem = entry.frozen ? "is being updated, please try again in a moment"
+                    : entry.counter.tryTake(quantity) ? null : "is sold out";
+            if (problem != null) {
+                entry.inFlight.add(-quantity);
+                new Reservation(this, productIds, quantities, count).cancel();
+                throw new ValidationException("Flash sale product " + productId + " " + problem, "cart");
+            }
+            productIds[count] = productId;
+            quantities[count] = quantity;
+            count++;
+        }
+        return count == 0 ? Reservation.EMPTY : new Reservation(this, productIds, quantities, count);
+    }
+
+    /**
+     * Put a product in flash-sale mode and load its stock
+     * @param productId Product ID
+     * @throws ValidationException if the product does not exist
+     * @throws perfumeshop.exception.DaoException if the change cannot be saved
+     */
+    public void enable(int productId) {
+        runOnWorker(() -> {
+            try (FlashSaleDAO dao = new FlashSaleDAO()) {
+                if (dao.getAvailableStock(new int[]{productId}).isEmpty()) {
+                    throw new ValidationException("Product " + productId + " does not exist", "pid");
+                }
+                dao.setEnabled(productId, true);
+            }
+            Entry entry = entries.computeIfAbsent(productId, id -> {
+                Entry created = new Entry(new StripedCounter(stripes, 0));
+                created.frozen = true;
+                return created;
+            });
+            entry.frozen = true;
+            if (reload(productId, entry)) {
+                LOGGER.log(Level.INFO, "Flash sale enabled for product {0}: {1} in stock",
+                          new Object[]{productId, entry.counter.sum()});
+            } else {
+                scheduleReload(productId, entry);
+                LOGGER.log(Level.INFO, "Flash sale enabled for product {0}; stock loads once its orders finish",
+                          productId);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Return a product to regular stock handling once its in-flight orders have finished
+     * @param productId Product ID
+     * @throws ValidationException if orders are still in flight after the drain timeout
+     * @throws perfumeshop.exception.DaoException if the change cannot be saved
+     */
+    public void disable(int productId) {
+        runOnWorker(() -> {
+            Entry entry = entries.get(productId);
+            if (entry != null) {
+                entry.frozen = true;
+                if (!awaitDrained(productId, entry)) {
+                    entry.frozen = false;
+                    throw new ValidationException("Product " + productId
+                            + " still has orders in progress, please try again in a moment", "pid");
+                }
+            }
+            try (FlashSaleDAO dao = new FlashSaleDAO()) {
+                if (entry != null) {
+                    flush(dao);
+                }
+                dao.setEnabled(productId, false);
+            }
+            entries.remove(productId);
+            LOGGER.log(Level.INFO, "Flash sale disabled for product {0}", productId);
+            return null;
+        });
+    }
+
+    @Override
+    public void productChanged(int productId) {
+        Entry entry = entries.get(productId);
+        ScheduledExecutorService current = worker;
+        if (entry == null || current == null) {
+            return;
+        }
+        // Stock may have been edited: reload once in-flight orders are done
+        entry.frozen = true;
+        current.execute(() -> reloadOrRetry(productId, entry));
+    }
+
+    /**
+     * Reload a frozen entry, trying again later while orders are still in flight; runs on the worker thread
+     */
+    private void reloadOrRetry(int productId, Entry entry) {
+        if (entries.get(productId) != entry) {
+            return; // disabled meanwhile
+        }
+        try {
+            if (!reload(productId, entry)) {
+                scheduleReload(productId, entry);
+            }
+        } catch (RuntimeException e) {
+            entry.frozen = false;
+            LOGGER.log(Level.WARNING, "Reloading flash-sale stock failed for product " + productId, e);
+        }
+    }
+
+    private void scheduleReload(int productId, Entry entry) {
+        ScheduledExecutorService current = worker;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.schedule(() -> reloadOrRetry(productId, entry), RELOAD_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: the entry stays frozen and is discarded
+        }
+    }
+
+    private void finish(Reservation reservation, boolean cancelled) {
+        for (int i = 0; i < reservation.count; i++) {
+            Entry entry = entries.get(reservation.productIds[i]);
+            if (entry != null) {
+                if (cancelled) {
+                    entry.counter.put(reservation.quantities[i]);
+                }
+                entry.inFlight.add(-reservation.quantities[i]);
+            }
+        }
+        if (!cancelled) {
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * Reset a frozen entry from the database; runs on the worker thread. The counter is never
+     * reset over unsettled reservations, since those would then be sold twice.
+     * @return false if orders were still in flight and the entry was left frozen
+     */
+    private boolean reload(int productId, Entry entry) {
+        if (!awaitDrained(productId, entry)) {
+            return false;
+        }
+        Integer available;
+        try (FlashSaleDAO dao = new FlashSaleDAO()) {
+            flush(dao);
+            available = dao.getAvailableStock(new int[]{productId}).get(productId);
+            if (available == null) {
+                // Product deleted: drop its flash-sale row too
+                dao.setEnabled(productId, false);
+                entries.remove(productId);
+                return true;
+            }
+        }
+        entry.counter.reset(available);
+        entry.frozen = false;
+        return true;
+    }
+
+    /**
+     * Wait for a frozen entry's in-flight orders to finish
+     * @return false if some were still running after the timeout
+     */
+    private boolean awaitDrained(int productId, Entry entry) {
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        while (entry.inFlight.sum() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                LOGGER.log(Level.WARNING, "Orders for flash-sale product {0} still in flight after {1} ms",
+                          new Object[]{productId, DRAIN_TIMEOUT_MILLIS});
+                return false;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void loadAll() {
+        try (FlashSaleDAO dao = new FlashSaleDAO()) {
+            flush(dao);
+            int[] productIds = dao.getProductIds();
+            if (productIds.length == 0) {
+                return;
+            }
+            // Registered before the stock is read so that checkouts racing the read roll back
+            for (int productId : productIds) {
+                Entry entry = new Entry(new StripedCounter(stripes, 0));
+                entry.frozen = true;
+                entries.putIfAbsent(productId, entry);
+            }
+            Map<Integer, Integer> stock;
+            try {
+                stock = dao.getAvailableStock(productIds);
+            } catch (RuntimeException e) {
+                for (int productId : productIds) {
+                    entries.remove(productId);
+                }
+                throw e;
+            }
+            for (int productId : productIds) {
+                Integer available = stock.get(productId);
+                if (available == null) {
+                    entries.remove(productId);
+                } else {
+                    Entry entry = entries.get(productId);
+                    entry.counter.reset(available);
+                    entry.frozen = false;
+                }
+            }
+            LOGGER.log(Level.INFO, "Flash sale stock loaded for {0} products", stock.size());
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Loading flash-sale stock failed; products are sold from regular stock", e);
+        }
+    }
+
+    private void flushIfDirty() {
+        if (dirty.getAndSet(false)) {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                dirty.set(true);
+                LOGGER.log(Level.WARNING, "Applying flash-sale journal failed, will retry", e);
+            }
+        }
+    }
+
+    private void flush() {
+        try (FlashSaleDAO dao = new FlashSaleDAO()) {
+            flush(dao);
+        }
+    }
+
+    private void flush(FlashSaleDAO dao) {
+        int applied = dao.applyConsumption();
+        if (applied > 0) {
+            LOGGER.log(Level.FINE, "Applied {0} flash-sale journal entries", applied);
+        }
+    }
+
+    private void runOnWorker(Callable<Void> task) {
+        ScheduledExecutorService current = worker;
+        if (current == null) {
+            throw new IllegalStateException("Flash sale stock is not running");
+        }
+        try {
+            current.submit(task).get(TASK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Flash sale update timed out", e);
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package perfumeshop.service;
+
+import perfumeshop.dal.OrderDAO;
+import perfumeshop.exception.ValidationException;
+import perfumeshop.model.Order;
+import perfumeshop.utils.IntLongHashMap;
+import perfumeshop.utils.LoggingUtils;
+import perfumeshop.utils.OrderEvents;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory, column-oriented copy of the Orders table for ad hoc admin reports.
+ * <p>
+ * Orders are kept as parallel primitive arrays (order id, epoch day, amount in cents,
+ * dictionary-encoded user id, status) loaded once at startup and appended on every
+ * committed order, so arbitrary date-range sums, counts and group-bys are answered by
+ * fork/join scans without touching SQL Server.
+ * <p>
+ * A single writer appends under a lock; readers take the current {@link Columns}
+ * snapshot and scan its first {@code size} rows without locking. The user name dictionary
+ * is part of the snapshot, so every user ID in those rows has a name and a bucket. Rows are in commit
+ * order, which is not order ID order when checkouts commit concurrently, so the writer
+ * finds an order's row through an order ID index.
+ * @author PerfumeShop Team
+ */
+public class OrderAnalyticsStore implements OrderEvents.Listener {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(OrderAnalyticsStore.class);
+
+    private static final OrderAnalyticsStore INSTANCE = new OrderAnalyticsStore();
+
+    public static final byte STATUS_PENDING = 0;
+    public static final byte STATUS_DELIVERED = 1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // Rows per fork/join leaf; below this a scan is cheaper than forking
+    private static final int SCAN_THRESHOLD = 64 * 1024;
+    // Longest ranges answered per bucketing, so bucket arrays stay small
+    public static final int MAX_DAYS_BY_DAY = 366;
+    public static final int MAX_DAYS_BY_MONTH = 10 * 366;
+
+    /**
+     * How report rows are bucketed
+     */
+    public enum GroupBy {
+        NONE, DAY, MONTH, USER, STATUS
+    }
+
+    /**
+     * Immutable view of the columns and user names; arrays may be longer than size and userCount
+     */
+    private static final class Columns {
+        final int[] orderIds;
+        final long[] days;
+        final long[] amounts;
+        final int[] users;
+        final byte[] statuses;
+        final int size;
+        final String[] userNames;
+        final int userCount;
+
+        Columns(int[] orderIds, long[] days, long[] amounts, int[] users, byte[] statuses, int size,
+                String[] userNames, int userCount) {
+            this.orderIds = orderIds;
+            this.days = days;
+            this.amounts = amounts;
+            this.users = users;
+            this.statuses = statuses;
+            this.size = size;
+            this.userNames = userNames;
+            this.userCount = userCount;
+        }
+
+        static Columns empty(int capacity) {
+            return new Columns(new int[capacity], new long[capacity], new long[capacity],
+                               new int[capacity], new byte[capacity], 0, new String[capacity], 0);
+        }
+
+        Columns grow() {
+            int capacity = Math.max(INITIAL_CAPACITY, orderIds.length * 2);
+            return new Columns(Arrays.copyOf(orderIds, capacity), Arrays.copyOf(days, capacity),
+                               Arrays.copyOf(amounts, capacity), Arrays.copyOf(users, capacity),
+                               Arrays.copyOf(statuses, capacity), size, userNames, userCount);
+        }
+    }
+
+    /**
+     * Result of a report: one sum/count per bucket
+     */
+    public static final class Report {
+        private final GroupBy groupBy;
+        private final LocalDate from;
+        private final long[] amountCents;
+        private final long[] orderCounts;
+        private final String[] userNames;
+
+        Report(GroupBy groupBy, LocalDate from, long[] amountCents, long[] orderCounts, String[] userNames) {
+            this.groupBy = groupBy;
+            this.from = from;
+            this.amountCents = amountCents;
+            this.orderCounts = orderCounts;
+            this.userNames = userNames;
+        }
+
+        public GroupBy getGroupBy() {
+            return groupBy;
+        }
+
+        public int getBucketCount() {
+            return amountCents.length;
+        }
+
+        /**
+         * Human readable key of a bucket (date, yyyy-MM, user name, status name or "all")
+         */
+        public String getBucketKey(int bucket) {
+            switch (groupBy) {
+                case DAY:
+                    return from.plusDays(bucket).toString();
+                case MONTH:
+                    LocalDate month = from.withDayOfMonth(1).plusMonths(bucket);
+                    return String.format("%d-%02d", month.getYear(), month.getMonthValue());
+                case USER:
+                    return userNames[bucket];
+                case STATUS:
+                    return bucket == STATUS_DELIVERED ? "Delivered" : "Pending";
+                default:
+                    return "all";
+            }
+        }
+
+        public double getRevenue(int bucket) {
+            return amountCents[bucket] / 100.0;
+        }
+
+        public long getOrderCount(int bucket) {
+            return orderCounts[bucket];
+        }
+
+        public double getTotalRevenue() {
+            long total = 0;
+            for (long cents : amountCents) {
+                total += cents;
+            }
+            return total / 100.0;
+        }
+
+        public long getTotalOrders() {
+            long total = 0;
+            for (long count : orderCounts) {
+                total += count;
+            }
+            return total;
+        }
+    }
+
+    private final Object writeLock = new Object();
+    private final Map<String, Integer> userIds = new ConcurrentHashMap<>();
+    // Order ID to row + 1; guarded by writeLock once loaded
+    private IntLongHashMap rowsByOrderId = new IntLongHashMap();
+    private volatile Columns columns = Columns.empty(INITIAL_CAPACITY);
+
+    // Orders committed while the initial load runs; replayed once it completes
+    private List<Order> pending = new ArrayList<>();
+    private List<Integer> pendingDelivered = new ArrayList<>();
+    private volatile boolean loaded;
+
+    // Package-private for tests
+    OrderAnalyticsStore() {
+    }
+
+    public static OrderAnalyticsStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Load every order from the database and start listening for new ones
+     */
+    public void load() {
+        load(handler -> new OrderDAO().streamOrders(handler));
+    }
+
+    /**
+     * Load the orders a source streams and start listening for new ones
+     * @param source Feeds every stored order to the handler it is given
+     */
+    void load(Consumer<OrderDAO.OrderHandler> source) {
+        OrderEvents.register(this);
+
+        long start = System.nanoTime();
+        Columns[] building = {Columns.empty(INITIAL_CAPACITY)};
+        IntLongHashMap rows = new IntLongHashMap(INITIAL_CAPACITY);
+        try {
+            source.accept(order -> building[0] = append(building[0], rows, order));
+        } catch (RuntimeException e) {
+            OrderEvents.unregister(this);
+            synchronized (writeLock) {
+                pending.clear();
+                pendingDelivered.clear();
+                userIds.clear();
+            }
+            LOGGER.log(Level.SEVERE, "Order analytics store failed to load", e);
+            return;
+        }
+
+        synchronized (writeLock) {
+            Columns result = building[0];
+            // Orders the load already saw are skipped
+            for (Order order : pending) {
+                result = append(result, rows, order);
+            }
+            for (int orderId : pendingDelivered) {
+                markDelivered(result, rows, orderId);
+            }
+            pending = null;
+            pendingDelivered = null;
+            rowsByOrderId = rows;
+            columns = result;
+            loaded = true;
+        }
+
+        LOGGER.log(Level.INFO, "Order analytics store loaded {0} orders in {1}ms",
+                  new Object[]{columns.size, (System.nanoTime() - start) / 1_000_000});
+    }
+
+    /**
+     * Run {@link #load()} on a background thread so startup is not delayed
+     */
+    public void loadInBackground() {
+        Thread loader = new Thread(this::load, "order-analytics-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Check whether the initial load has completed
+     * @return true once reports reflect all orders
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Number of orders held
+     * @return Row count
+     */
+    public int size() {
+        return columns.size;
+    }
+
+    @Override
+    public void orderCreated(Order order, int itemsSold) {
+        synchronized (writeLock) {
+            if (!loaded) {
+                pending.add(new Order(order.getOrderId(), order.getDate(), order.getUserName(),
+                                      order.getTotal(), order.isStatus()));
+                return;
+            }
+            columns = append(columns, rowsByOrderId, order);
+        }
+    }
+
+    @Override
+    public void orderDelivered(int orderId) {
+        synchronized (writeLock) {
+            if (!loaded) {
+                pendingDelivered.add(orderId);
+                return;
+            }
+            markDelivered(columns, rowsByOrderId, orderId);
+        }
+    }
+
+    private void markDelivered(Columns target, IntLongHashMap rows, int orderId) {
+        long row = rows.get(orderId);
+        if (row > 0) {
+            target.statuses[(int) row - 1] = STATUS_DELIVERED;
+        }
+    }
+
+    /**
+     * Write an order at index size, growing the columns if needed, and return the snapshot
+     * including it; an order already held is skipped (caller holds the lock or owns the columns)
+     */
+    private Columns append(Columns target, IntLongHashMap rows, Order order) {
+        int orderId = order.getOrderId();
+        if (rows.get(orderId) != 0) {
+            return target;
+        }
+        if (target.size == target.orderIds.length) {
+            target = target.grow();
+        }
+        // Names past userCount are not visible to readers until the snapshot is published
+        String[] names = target.userNames;
+        int userCount = target.userCount;
+        Integer user = userIds.get(order.getUserName());
+        if (user == null) {
+            user = userCount++;
+            if (user == names.length) {
+                names = Arrays.copyOf(names, names.length * 2);
+            }
+            names[user] = order.getUserName();
+            userIds.put(order.getUserName(), user);
+        }
+        int row = target.size;
+        target.orderIds[row] = orderId;
+        target.days[row] = order.getDate().toLocalDate().toEpochDay();
+        target.amounts[row] = Math.round(order.getTotal() * 100);
+        target.users[row] = user;
+        target.statuses[row] = order.isStatus() ? STATUS_DELIVERED : STATUS_PENDING;
+        rows.add(orderId, row + 1);
+        return new Columns(target.orderIds, target.days, target.amounts, target.users, target.statuses,
+                           row + 1, names, userCount);
+    }
+
+    /**
+     * Aggregate revenue and order counts over a date range
+     * @param from Inclusive start date
+     * @param to Exclusive end date
+     * @param groupBy Bucketing
+     * @return Report with one entry per bucket
+     * @throws ValidationException if the range is invalid, or too long for day
+     *         ({@link #MAX_DAYS_BY_DAY}) or month ({@link #MAX_DAYS_BY_MONTH}) buckets
+     */
+    public Report report(LocalDate from, LocalDate to, GroupBy groupBy) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new ValidationException("Report range must have a start date before its end date", "range");
+        }
+        if (groupBy == null) {
+            groupBy = GroupBy.NONE;
+        }
+
+        Columns snapshot = columns;
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        long days = toDay - fromDay;
+        if (groupBy == GroupBy.DAY && days > MAX_DAYS_BY_DAY) {
+            throw new ValidationException("Daily reports cover at most " + MAX_DAYS_BY_DAY + " days", "range");
+        }
+        if (groupBy == GroupBy.MONTH && days > MAX_DAYS_BY_MONTH) {
+            throw new ValidationException("Monthly reports cover at most " + MAX_DAYS_BY_MONTH + " days", "range");
+        }
+
+        // Maps (day - fromDay) to a bucket for date based grouping
+        int[] dayBuckets = null;
+        int bucketCount;
+        switch (groupBy) {
+            case DAY:
+                bucketCount = (int) days;
+                dayBuckets = new int[bucketCount];
+                for (int i = 0; i < bucketCount; i++) {
+                    dayBuckets[i] = i;
+                }
+                break;
+            case MONTH:
+                dayBuckets = new int[(int) days];
+                LocalDate firstMonth = from.withDayOfMonth(1);
+                for (int i = 0; i < dayBuckets.length; i++) {
+                    LocalDate day = from.plusDays(i);
+                    dayBuckets[i] = (day.getYear() - firstMonth.getYear()) * 12
+                                    + day.getMonthValue() - firstMonth.getMonthValue();
+                }
+                bucketCount = dayBuckets[dayBuckets.length - 1] + 1;
+                break;
+            case USER:
+                bucketCount = snapshot.userCount;
+                break;
+            case STATUS:
+                bucketCount = 2;
+                break;
+            default:
+                bucketCount = 1;
+        }
+
+        ScanTask task = new ScanTask(snapshot, 0, snapshot.size, fromDay, toDay, groupBy, dayBuckets, bucketCount);
+        long[][] result = ForkJoinPool.commonPool().invoke(task);
+        return new Report(groupBy, from, result[0], result[1], snapshot.userNames);
+    }
+
+    /**
+     * Parallel scan producing {sums, counts} per bucket
+     */
+    private static final class ScanTask extends RecursiveTask<long[][]> {
+
+        private final Columns columns;
+        private final int start;
+        private final int end;
+        private final long fromDay;
+        private final long toDay;
+        private final GroupBy groupBy;
+        private final int[] dayBuckets;
+        private final int bucketCount;
+
+        ScanTask(Columns columns, int start, int end, long fromDay, long toDay,
+                 GroupBy groupBy, int[] dayBuckets, int bucketCount) {
+            this.columns = columns;
+            this.start = start;
+            this.end = end;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.groupBy = groupBy;
+            this.dayBuckets = dayBuckets;
+            this.bucketCount = bucketCount;
+        }
+
+        @Override
+        protected long[][] compute() {
+            if (end - start <= SCAN_THRESHOLD) {
+                return scan();
+            }
+            int mid = (start + end) >>> 1;
+            ScanTask left = new ScanTask(columns, start, mid, fromDay, toDay, groupBy, dayBuckets, bucketCount);
+            ScanTask right = new ScanTask(columns, mid, end, fromDay, toDay, groupBy, dayBuckets, bucketCount);
+            left.fork();
+            long[][] rightResult = right.compute();
+            long[][] leftResult = left.join();
+            for (int b = 0; b < bucketCount; b++) {
+                leftResult[0][b] += rightResult[0][b];
+                leftResult[1][b] += rightResult[1][b];
+            }
+            return leftResult;
+        }
+
+        private long[][] scan() {
+            long[] sums = new long[bucketCount];
+            long[] counts = new long[bucketCount];
+            long[] days = columns.days;
+            long[] amounts = columns.amounts;
+            for (int i = start; i < end; i++) {
+                long day = days[i];
+                if (day < fromDay || day >= toDay) {
+                    continue;
+                }
+                int bucket;
+                switch (groupBy) {
+                    case DAY:
+                    case MONTH:
+                        bucket = dayBuckets[(int) (day - fromDay)];
+                        break;
+                    case USER:
+                        bucket = columns.users[i];
+                        break;
+                    case STATUS:
+                        bucket = columns.statuses[i];
+                        break;
+                    default:
+                        bucket = 0;
+                }
+                sums[bucket] += amounts[i];
+                counts[bucket]++;
+            }
+            return new long[][]{sums, counts};
+        }
+    }
+}
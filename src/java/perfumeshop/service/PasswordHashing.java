@@ -0,0 +1,241 @@
+package perfumeshop.service;
+
+import perfumeshop.exception.PasswordHashingBusyException;
+import perfumeshop.utils.LoggingUtils;
+import perfumeshop.utils.MonitoringUtils;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted PBKDF2 password hashing on a small dedicated pool.
+ * <p>
+ * Hashes are stored as {@code pbkdf2$<iterations>$<salt>$<hash>} (Base64, HMAC-SHA256,
+ * 16-byte salt, 32-byte hash), about 90 characters; database/schema_updates.sql widens
+ * Users.Password to fit them. The cost is set with the system property
+ * {@code perfumeshop.password.iterations}. Any other stored value is a legacy plain-text
+ * password; it still verifies, and {@link #needsRehash(String)} tells the caller to replace
+ * it, as it does for hashes made with fewer iterations than the current setting.
+ * <p>
+ * Hashing is CPU-bound by design, so it runs on {@link #POOL_SIZE} threads with a queue of
+ * {@link #QUEUE_CAPACITY}. When both are full, or the result takes longer than
+ * {@link #MAX_WAIT_MILLIS}, callers get {@link PasswordHashingBusyException} at once. A
+ * login storm therefore uses a few cores at most and leaves the request threads that serve
+ * the catalog free.
+ * @author PerfumeShop Team
+ */
+public class PasswordHashing {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(PasswordHashing.class);
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2";
+    private static final int DEFAULT_ITERATIONS = 120_000;
+    private static final int ITERATIONS = Integer.getInteger("perfumeshop.password.iterations", DEFAULT_ITERATIONS);
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private static final int POOL_SIZE = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int QUEUE_CAPACITY = 32;
+    private static final long MAX_WAIT_MILLIS = 5_000;
+
+    // After the settings above, which the constructor reads
+    private static final PasswordHashing INSTANCE = new PasswordHashing();
+
+    private final SecureRandom random = new SecureRandom();
+    // Compared against when the user does not exist, so both cases cost the same
+    private final String dummyHash;
+    private ThreadPoolExecutor executor;
+
+    private final LongAdder hashed = new LongAdder();
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    private PasswordHashing() {
+        dummyHash = compute("not-a-password".toCharArray(), new byte[SALT_BYTES], ITERATIONS);
+    }
+
+    public static PasswordHashing getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start the hashing pool
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "password-hash-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        LOGGER.log(Level.INFO, "Password hashing started: {0} threads, {1} iterations",
+                  new Object[]{POOL_SIZE, ITERATIONS});
+    }
+
+    /**
+     * Stop the hashing pool; later calls hash on the caller's thread
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    /**
+     * Hash a password with a new salt at the current cost
+     * @param password Plain-text password
+     * @return Encoded hash
+     * @throws PasswordHashingBusyException if hashing is saturated
+     */
+    public String hash(String password) {
+        if (password == null || password.isEmpty()) {
+            throw new IllegalArgumentException("Password cannot be null or empty");
+        }
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        String encoded = run(() -> compute(password.toCharArray(), salt, ITERATIONS));
+        hashed.increment();
+        return encoded;
+    }
+
+    /**
+     * Check a password against a stored value, hashed or legacy plain text
+     * @param password Password entered
+     * @param stored Stored value, or null if there is no such user
+     * @return true if they match; always false when stored is null
+     * @throws PasswordHashingBusyException if hashing is saturated
+     */
+    public boolean verify(String password, String stored) {
+        if (password == null) {
+            return false;
+        }
+        String target = stored != null ? stored : dummyHash;
+        boolean match;
+        if (isHashed(target)) {
+            String[] parts = target.split("\\$");
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            String candidate = run(() -> compute(password.toCharArray(), salt, iterations));
+            match = MessageDigest.isEqual(candidate.getBytes(StandardCharsets.US_ASCII),
+                                          target.getBytes(StandardCharsets.US_ASCII));
+        } else {
+            match = MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                                          target.getBytes(StandardCharsets.UTF_8));
+        }
+        verified.increment();
+        return stored != null && match;
+    }
+
+    /**
+     * Whether a stored value should be replaced by a fresh hash after a successful login
+     * @param stored Stored value
+     * @return true for plain text or hashes made with fewer iterations than now configured
+     */
+    public boolean needsRehash(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        return Integer.parseInt(stored.split("\\$")[1]) < ITERATIONS;
+    }
+
+    /**
+     * Whether a stored value is in the hashed format
+     * @param stored Stored value
+     * @return true if hashed
+     */
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX + "$") && stored.split("\\$").length == 4;
+    }
+
+    /**
+     * Hashing metrics for monitoring
+     * @return One-line summary
+     */
+    public String getMetrics() {
+        long operations = hashed.sum() + verified.sum();
+        ThreadPoolExecutor current = executor;
+        return String.format("hashed=%d, verified=%d, rejected=%d, avgMillis=%.1f, queued=%d, iterations=%d",
+                hashed.sum(), verified.sum(), rejected.sum(),
+                operations == 0 ? 0.0 : totalNanos.sum() / 1e6 / operations,
+                current != null ? current.getQueue().size() : 0, ITERATIONS);
+    }
+
+    private String run(Callable<String> work) {
+        ThreadPoolExecutor current = executor;
+        if (current == null) {
+            return timed(work);
+        }
+        Future<String> future;
+        try {
+            future = current.submit(() -> timed(work));
+        } catch (RejectedExecutionException e) {
+            throw busy("Password hashing queue is full");
+        }
+        try {
+            return future.get(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw busy("Password hashing timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw busy("Password hashing was interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private String timed(Callable<String> work) {
+        long start = System.nanoTime();
+        try {
+            return work.call();
+        } catch (Exception e) {
+            throw new IllegalStateException("Password hashing failed", e);
+        } finally {
+            totalNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private PasswordHashingBusyException busy(String message) {
+        rejected.increment();
+        MonitoringUtils.recordError(PasswordHashingBusyException.ERROR_CODE);
+        LOGGER.log(Level.WARNING, "{0} ({1})", new Object[]{message, getMetrics()});
+        return new PasswordHashingBusyException(message, 2);
+    }
+
+    private static String compute(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BITS);
+        try {
+            byte[] hash = SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+            Base64.Encoder encoder = Base64.getEncoder();
+            return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package perfumeshop.service;
+
+import perfumeshop.dal.ProductDAO;
+import perfumeshop.model.Product;
+import perfumeshop.utils.CatalogEvents;
+import perfumeshop.utils.LoggingUtils;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shared in-memory index of products by ID used by add-to-cart and to render carts
+ * and wishlists. The whole catalog is loaded once at startup; anything missing (a product
+ * added since, or one dropped after a change) is read through from the database.
+ * Sessions keep only product IDs and resolve display data here; entries are dropped
+ * when {@link CatalogEvents} reports a product change. Checkout lowers the cached stock
+ * of the products it sold in place ({@link #stockSold}), so best sellers stay cached.
+ * @author PerfumeShop Team
+ */
+public class ProductCatalog implements CatalogEvents.Listener {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(ProductCatalog.class);
+
+    private static final ProductCatalog INSTANCE = new ProductCatalog();
+
+    // Change counters per hash slot of the product ID, as in ProfileVersions
+    private static final int VERSION_SLOTS = 1 << 12;
+    private static final int MAX_LOAD_ATTEMPTS = 5;
+    private static final long LOAD_RETRY_MILLIS = 2_000;
+
+    private final Map<Integer, Product> products = new ConcurrentHashMap<>();
+
+    // Bumped when a product changes so a read racing with the change is not cached
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_SLOTS);
+
+    private volatile boolean loaded;
+
+    private ProductCatalog() {
+        CatalogEvents.register(this);
+    }
+
+    public static ProductCatalog getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get a product from the index, reading it from the database on a miss.
+     * Returned instances are shared between sessions and must not be modified.
+     * @param productId Product ID
+     * @return Product, or null if it does not exist
+     */
+    public Product getProduct(int productId) {
+        Product product = products.get(productId);
+        if (product != null) {
+            return product;
+        }
+        if (productId <= 0) {
+            return null;
+        }
+
+        long seen = versions.get(slot(productId));
+        try (ProductDAO dao = new ProductDAO()) {
+            product = dao.getProductByID(productId);
+        }
+        if (product != null) {
+            Product cached = cache(productId, product, seen);
+            if (cached == product) {
+                LOGGER.log(Level.FINE, "Product {0} loaded into catalog cache", productId);
+            }
+        }
+        return product;
+    }
+
+    /**
+     * Insert a product read from the database unless it changed since the read.
+     * The version is checked under the entry's lock, which {@link #productChanged} also
+     * takes after bumping it, so a stale read is either rejected here or removed there.
+     */
+    private Product cache(int productId, Product product, long seen) {
+        return products.compute(productId, (id, existing) ->
+                existing != null ? existing : (versions.get(slot(productId)) == seen ? product : null));
+    }
+
+    /**
+     * Fill the index with every product on a background thread
+     */
+    public void loadInBackground() {
+        Thread loader = new Thread(this::load, "product-catalog-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Fill the index with every product, retrying a failed read a few times; products changed
+     * meanwhile are left to read-through
+     */
+    public void load() {
+        for (int attempt = 1; attempt <= MAX_LOAD_ATTEMPTS; attempt++) {
+            try {
+                loadOnce();
+                return;
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Product catalog preload failed (attempt " + attempt + " of "
+                           + MAX_LOAD_ATTEMPTS + "), serving read-through", e);
+            }
+            try {
+                Thread.sleep(LOAD_RETRY_MILLIS * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void loadOnce() {
+        long start = System.currentTimeMillis();
+        long[] seen = new long[VERSION_SLOTS];
+        for (int i = 0; i < VERSION_SLOTS; i++) {
+            seen[i] = versions.get(i);
+        }
+        List<Product> all;
+        try (ProductDAO dao = new ProductDAO()) {
+            all = dao.getAll();
+        }
+        int skipped = 0;
+        for (Product product : all) {
+            if (cache(product.getId(), product, seen[slot(product.getId())]) == null) {
+                skipped++;
+            }
+        }
+        loaded = true;
+        LOGGER.log(Level.INFO, "Product catalog loaded: {0} products in {1} ms, {2} changed meanwhile",
+                  new Object[]{all.size() - skipped, System.currentTimeMillis() - start, skipped});
+    }
+
+    /**
+     * Check whether the startup load has completed
+     * @return true once every product has been indexed
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Number of cached products
+     * @return Entry count
+     */
+    public int size() {
+        return products.size();
+    }
+
+    /**
+     * Lower the cached stock of products sold by a committed order. The stock is the only
+     * field changed in place; other listeners of {@link CatalogEvents} do not depend on it,
+     * so they are not told.
+     * @param productIds Products sold
+     * @param quantities Quantity sold of each
+     */
+    public void stockSold(int[] productIds, int[] quantities) {
+        for (int i = 0; i < productIds.length; i++) {
+            int sold = quantities[i];
+            Product updated = products.computeIfPresent(productIds[i], (id, product) -> {
+                product.setQuantity(Math.max(0, product.getQuantity() - sold));
+                return product;
+            });
+            if (updated == null) {
+                // Not cached: keep a read that started before this order from caching old stock
+                versions.incrementAndGet(slot(productIds[i]));
+            }
+        }
+    }
+
+    @Override
+    public void productChanged(int productId) {
+        // A new product has nothing cached; it is read through on first use
+        if (productId != CatalogEvents.UNKNOWN_PRODUCT) {
+            versions.incrementAndGet(slot(productId));
+            products.remove(productId);
+        }
+    }
+
+    private static int slot(int productId) {
+        return (productId ^ (productId >>> 16)) & (VERSION_SLOTS - 1);
+    }
+}
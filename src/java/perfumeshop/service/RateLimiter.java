@@ -0,0 +1,288 @@
+package perfumeshop.service;
+
+import perfumeshop.utils.LoggingUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Token-bucket rate limiter keyed by client address, independent of the HTTP session.
+ * <p>
+ * Each (policy, client) pair owns a bucket whose whole state - tokens and the time they were
+ * last topped up - is packed into one {@link AtomicLong}, so taking a token is a single CAS
+ * loop with no lock. Buckets live in {@link #STRIPES} independent maps chosen by key hash;
+ * a background sweep drops buckets that have refilled completely (they are
+ * indistinguishable from new ones), stripe by stripe. A stripe that still holds
+ * {@link #MAX_BUCKETS_PER_STRIPE} buckets when a new client arrives first drops its
+ * {@link #EVICTION_BATCH} least recently used buckets, so a flood of fresh addresses cannot
+ * grow memory without bound and never shares a bucket with, or locks out, other clients.
+ * @author PerfumeShop Team
+ */
+public class RateLimiter {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(RateLimiter.class);
+
+    private static final RateLimiter INSTANCE = new RateLimiter();
+
+    private static final int STRIPES = 16;
+    private static final int MAX_BUCKETS_PER_STRIPE = 4_096;
+    // Evicting in batches keeps the scan off the path of most new clients during a flood
+    private static final int EVICTION_BATCH = MAX_BUCKETS_PER_STRIPE / 8;
+    private static final long SWEEP_INTERVAL_MILLIS = 5_000;
+
+    // Tokens are kept in thousandths in the low bits, the refill time in the high bits
+    private static final int TOKEN_BITS = 20;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long MILLI = 1_000;
+
+    /**
+     * Limit applied to one group of endpoints
+     */
+    public enum Policy {
+        LOGIN(10, 60_000, true, false),
+        REGISTER(5, 60_000, true, false),
+        PASSWORD_RESET(5, 300_000, true, false),
+        CHECKOUT(10, 60_000, true, true),
+        ADMIN(60, 60_000, false, true);
+
+        private final int capacity;
+        private final long periodMillis;
+        private final boolean postOnly;
+        private final boolean byUser;
+
+        /**
+         * @param capacity Requests allowed in a burst, refilled evenly over the period
+         * @param periodMillis Time to refill a full burst
+         * @param postOnly Limit only POST requests (form submissions)
+         * @param byUser Key by user name when logged in, by address otherwise
+         */
+        Policy(int capacity, long periodMillis, boolean postOnly, boolean byUser) {
+            this.capacity = capacity;
+            this.periodMillis = periodMillis;
+            this.postOnly = postOnly;
+            this.byUser = byUser;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public long getPeriodMillis() {
+            return periodMillis;
+        }
+
+        public boolean isPostOnly() {
+            return postOnly;
+        }
+
+        public boolean isByUser() {
+            return byUser;
+        }
+
+        long fullState(long now) {
+            return (now << TOKEN_BITS) | (capacity * MILLI);
+        }
+    }
+
+    /**
+     * Bucket state of one client under one policy
+     */
+    private static final class Bucket extends AtomicLong {
+        private static final long serialVersionUID = 1L;
+
+        final Policy policy;
+
+        Bucket(Policy policy, long now) {
+            super(policy.fullState(now));
+            this.policy = policy;
+        }
+    }
+
+    private static final Map<String, Policy> ENDPOINT_POLICIES = Map.of(
+        "/login", Policy.LOGIN,
+        "/register", Policy.REGISTER,
+        "/forgot", Policy.PASSWORD_RESET,
+        "/confirmresetcode", Policy.PASSWORD_RESET,
+        "/viewcart", Policy.CHECKOUT,
+        "/cart", Policy.CHECKOUT,
+        "/vnpay_payment", Policy.CHECKOUT,
+        "/admin", Policy.ADMIN
+    );
+
+    private final long epoch = System.currentTimeMillis();
+    private final List<ConcurrentHashMap<String, Bucket>> stripes = new ArrayList<>(STRIPES);
+    private ScheduledExecutorService sweeper;
+
+    private RateLimiter() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    public static RateLimiter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start the idle-bucket sweep
+     */
+    public synchronized void start() {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rate-limit-sweep");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS,
+                                       TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the sweep and forget all buckets
+     */
+    public synchronized void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+        for (ConcurrentHashMap<String, Bucket> stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    /**
+     * Policy for a servlet path
+     * @param servletPath Servlet path of the request
+     * @param method HTTP method
+     * @return Policy, or null if the request is not limited
+     */
+    public static Policy policyFor(String servletPath, String method) {
+        Policy policy = ENDPOINT_POLICIES.get(servletPath);
+        if (policy == null || (policy.isPostOnly() && !"POST".equalsIgnoreCase(method))) {
+            return null;
+        }
+        return policy;
+    }
+
+    /**
+     * Take one token from a client's bucket
+     * @param policy Limit to apply
+     * @param client Client key (address or user name)
+     * @return 0 if allowed, otherwise milliseconds until a token is available
+     */
+    public long tryAcquire(Policy policy, String client) {
+        String key = policy.name() + "|" + client;
+        ConcurrentHashMap<String, Bucket> stripe = stripes.get((key.hashCode() & 0x7fffffff) % STRIPES);
+        long now = System.currentTimeMillis() - epoch;
+        Bucket bucket = stripe.get(key);
+        if (bucket == null) {
+            if (stripe.size() >= MAX_BUCKETS_PER_STRIPE) {
+                evictLeastRecent(stripe);
+            }
+            bucket = stripe.computeIfAbsent(key, k -> new Bucket(policy, now));
+        }
+        long wait = take(bucket, now);
+        if (wait > 0) {
+            LOGGER.log(Level.FINE, "Rate limit {0} reached for {1}", new Object[]{policy, client});
+        }
+        return wait;
+    }
+
+    /**
+     * Number of live buckets
+     * @return Bucket count across stripes
+     */
+    public int getBucketCount() {
+        int count = 0;
+        for (ConcurrentHashMap<String, Bucket> stripe : stripes) {
+            count += stripe.size();
+        }
+        return count;
+    }
+
+    private static long take(Bucket bucket, long now) {
+        Policy policy = bucket.policy;
+        long capacity = policy.getCapacity() * MILLI;
+        while (true) {
+            long state = bucket.get();
+            long last = state >>> TOKEN_BITS;
+            long tokens = refill(policy, state & TOKEN_MASK, now - last);
+            long stamp = Math.max(now, last);
+            if (tokens < MILLI) {
+                // Time for the missing fraction of a token to refill
+                return Math.max(1, ((MILLI - tokens) * policy.getPeriodMillis() + capacity - 1) / capacity);
+            }
+            if (bucket.compareAndSet(state, (stamp << TOKEN_BITS) | (tokens - MILLI))) {
+                return 0;
+            }
+        }
+    }
+
+    private static long refill(Policy policy, long tokens, long elapsed) {
+        if (elapsed <= 0) {
+            return tokens;
+        }
+        long capacity = policy.getCapacity() * MILLI;
+        // Saturate early so the product below cannot overflow after long idle periods
+        if (elapsed >= policy.getPeriodMillis()) {
+            return capacity;
+        }
+        return Math.min(capacity, tokens + elapsed * capacity / policy.getPeriodMillis());
+    }
+
+    /**
+     * Drop the least recently used buckets of a full stripe. The high bits of a bucket's state
+     * are the time of its last token, so the cut-off is the {@link #EVICTION_BATCH}-th oldest.
+     */
+    private static void evictLeastRecent(ConcurrentHashMap<String, Bucket> stripe) {
+        synchronized (stripe) {
+            // Another thread may have made room while this one waited
+            if (stripe.size() < MAX_BUCKETS_PER_STRIPE) {
+                return;
+            }
+            long[] stamps = new long[stripe.size()];
+            int count = 0;
+            for (Bucket bucket : stripe.values()) {
+                if (count == stamps.length) {
+                    break;
+                }
+                stamps[count++] = bucket.get() >>> TOKEN_BITS;
+            }
+            if (count == 0) {
+                return;
+            }
+            Arrays.sort(stamps, 0, count);
+            long cutoff = stamps[Math.min(count, EVICTION_BATCH) - 1];
+            stripe.values().removeIf(bucket -> (bucket.get() >>> TOKEN_BITS) <= cutoff);
+            LOGGER.log(Level.FINE, "Rate limit stripe full, evicted buckets unused since {0} ms after start", cutoff);
+        }
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis() - epoch;
+        int before = getBucketCount();
+        for (ConcurrentHashMap<String, Bucket> stripe : stripes) {
+            sweep(stripe, now);
+        }
+        LOGGER.log(Level.FINE, "Rate limit sweep kept {0} of {1} buckets", new Object[]{getBucketCount(), before});
+    }
+
+    private static void sweep(ConcurrentHashMap<String, Bucket> stripe, long now) {
+        // A token taken from a bucket just before it is dropped is forgiven: at worst one extra request
+        stripe.values().removeIf(bucket -> {
+            long state = bucket.get();
+            return refill(bucket.policy, state & TOKEN_MASK, now - (state >>> TOKEN_BITS))
+                    >= bucket.policy.getCapacity() * MILLI;
+        });
+    }
+}
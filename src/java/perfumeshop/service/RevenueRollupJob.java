@@ -0,0 +1,119 @@
+package perfumeshop.service;
+
+import perfumeshop.dal.RevenueRollupDAO;
+import perfumeshop.utils.LoggingUtils;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Background job keeping the daily revenue rollup consistent with the Orders table.
+ * On start it fills an empty rollup; every {@link #JOURNAL_INTERVAL_MILLIS} it folds in the
+ * orders journaled since, and every night it recomputes the last few days to repair any
+ * drift (manual SQL edits, failed deployments, ...). All of it runs on one thread.
+ * @author PerfumeShop Team
+ */
+public class RevenueRollupJob {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(RevenueRollupJob.class);
+
+    // Days recomputed by the nightly reconciliation, today included
+    private static final int RECONCILE_DAYS = 7;
+    // Local time of the nightly reconciliation
+    private static final int RECONCILE_HOUR = 2;
+    private static final long JOURNAL_INTERVAL_MILLIS = 5_000;
+
+    private static ScheduledExecutorService scheduler;
+
+    /**
+     * Start the job: initial fill (if needed) and nightly reconciliation
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "revenue-rollup");
+            t.setDaemon(true);
+            return t;
+        });
+
+        scheduler.execute(RevenueRollupJob::fillIfEmpty);
+        scheduler.scheduleWithFixedDelay(RevenueRollupJob::applyJournal, JOURNAL_INTERVAL_MILLIS,
+                                         JOURNAL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime nextRun = now.toLocalDate().atTime(RECONCILE_HOUR, 0);
+        if (!nextRun.isAfter(now)) {
+            nextRun = nextRun.plusDays(1);
+        }
+        long initialDelay = Duration.between(now, nextRun).toMinutes();
+        scheduler.scheduleAtFixedRate(RevenueRollupJob::reconcileRecentDays,
+                                      initialDelay, TimeUnit.DAYS.toMinutes(1), TimeUnit.MINUTES);
+
+        LOGGER.log(Level.INFO, "Revenue rollup job started, next reconciliation at {0}", nextRun);
+    }
+
+    /**
+     * Rebuild the whole rollup now (blocking)
+     */
+    public static void rebuildAll() {
+        try (RevenueRollupDAO dao = new RevenueRollupDAO()) {
+            dao.rebuildAll();
+        }
+    }
+
+    /**
+     * Recompute the most recent days of the rollup
+     */
+    public static void reconcileRecentDays() {
+        try (RevenueRollupDAO dao = new RevenueRollupDAO()) {
+            LocalDate tomorrow = LocalDate.now().plusDays(1);
+            dao.rebuild(tomorrow.minusDays(RECONCILE_DAYS), tomorrow);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Revenue rollup reconciliation failed", e);
+        }
+    }
+
+    private static void applyJournal() {
+        try (RevenueRollupDAO dao = new RevenueRollupDAO()) {
+            int applied = dao.applyJournal();
+            if (applied > 0) {
+                LOGGER.log(Level.FINE, "Applied {0} revenue journal entries", applied);
+            }
+        } catch (Exception e) {
+            // Entries stay in the journal and are applied on the next round
+            LOGGER.log(Level.WARNING, "Applying revenue journal failed, will retry", e);
+        }
+    }
+
+    private static void fillIfEmpty() {
+        try (RevenueRollupDAO dao = new RevenueRollupDAO()) {
+            if (dao.isEmpty()) {
+                LOGGER.log(Level.INFO, "Revenue rollup is empty, rebuilding from orders");
+                dao.rebuildAll();
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Initial revenue rollup fill failed", e);
+        }
+    }
+
+    /**
+     * Stop the job
+     */
+    public static synchronized void shutdown() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+        applyJournal();
+        LOGGER.log(Level.INFO, "Revenue rollup job stopped");
+    }
+}
@@ -0,0 +1,268 @@
+package perfumeshop.service;
+
+import perfumeshop.utils.LoggingUtils;
+import perfumeshop.utils.SessionCodec;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * Keeps sessions in a {@link SessionStore} so they survive restarts and can be picked up
+ * by another node.
+ * <p>
+ * At the end of each request the session is encoded with {@link SessionCodec} on the
+ * request thread, while nothing else is changing it; if the bytes differ from the last
+ * ones saved, they are queued and a background thread writes the latest copy of each
+ * session every {@link #FLUSH_INTERVAL_MILLIS}. Page views that change nothing cost one
+ * encoding and no write. A request whose session ID this node does not know gets the
+ * stored attributes back in a new session. Stored sessions expire after
+ * {@link #RETENTION_MILLIS}, the session timeout in web.xml; those still in use are
+ * rewritten before then.
+ * <p>
+ * The store is a {@link FileSessionStore} unless the system property
+ * {@code perfumeshop.session.store} names another implementation.
+ * @author PerfumeShop Team
+ */
+public class SessionPersistence {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(SessionPersistence.class);
+
+    private static final SessionPersistence INSTANCE = new SessionPersistence();
+
+    private static final long FLUSH_INTERVAL_MILLIS = 1_000;
+    private static final long PURGE_INTERVAL_MILLIS = 60_000;
+    private static final long RETENTION_MILLIS = 30 * 60_000;
+    private static final long FLUSH_TIMEOUT_SECONDS = 5;
+
+    // Queued in place of data to delete a stored session
+    private static final byte[] REMOVED = new byte[0];
+
+    /**
+     * What was last queued for one session
+     */
+    private static final class Saved {
+        final int hash;
+        final long savedAt;
+
+        Saved(int hash, long savedAt) {
+            this.hash = hash;
+            this.savedAt = savedAt;
+        }
+    }
+
+    private final Map<String, byte[]> pending = new ConcurrentHashMap<>();
+    private final Map<String, Saved> saved = new ConcurrentHashMap<>();
+    private volatile SessionStore store;
+    private ScheduledExecutorService flusher;
+    private long lastPurge;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder unchanged = new LongAdder();
+    private final LongAdder restored = new LongAdder();
+
+    private SessionPersistence() {
+    }
+
+    public static SessionPersistence getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Open the store and start the write-behind thread
+     */
+    public synchronized void start() {
+        if (flusher != null) {
+            return;
+        }
+        try {
+            store = createStore();
+        } catch (IOException | ReflectiveOperationException | ClassCastException e) {
+            LOGGER.log(Level.SEVERE, "Session store unavailable, sessions will not be persisted", e);
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-store-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        LOGGER.log(Level.INFO, "Session persistence started: {0}", store);
+    }
+
+    /**
+     * Stop the write-behind thread and write every queued session
+     */
+    public synchronized void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flusher = null;
+            flush();
+            LOGGER.log(Level.INFO, "Session persistence stopped: {0}", getMetrics());
+        }
+        store = null;
+        saved.clear();
+    }
+
+    /**
+     * Queue a session for saving if it changed; call at the end of a request
+     * @param session Session of the request, may be null
+     */
+    public void capture(HttpSession session) {
+        if (session == null || store == null) {
+            return;
+        }
+        String id;
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        try {
+            id = session.getId();
+            Enumeration<String> names = session.getAttributeNames();
+            while (names.hasMoreElements()) {
+                String name = names.nextElement();
+                Object value = session.getAttribute(name);
+                if (SessionCodec.isSupported(value)) {
+                    attributes.put(name, value);
+                }
+            }
+        } catch (IllegalStateException e) {
+            // Invalidated during the request
+            return;
+        }
+        if (attributes.isEmpty()) {
+            if (saved.remove(id) != null) {
+                pending.put(id, REMOVED);
+            }
+            return;
+        }
+
+        byte[] data = SessionCodec.encode(attributes);
+        int hash = Arrays.hashCode(data);
+        long now = System.currentTimeMillis();
+        Saved previous = saved.get(id);
+        if (previous != null && previous.hash == hash && now - previous.savedAt < RETENTION_MILLIS / 2) {
+            unchanged.increment();
+            return;
+        }
+        saved.put(id, new Saved(hash, now));
+        pending.put(id, data);
+    }
+
+    /**
+     * Take the stored attributes of a session this node does not know
+     * @param sessionId Session ID the client sent
+     * @return Attributes, or null if none are stored; the stored copy is removed
+     */
+    public Map<String, Object> restore(String sessionId) {
+        SessionStore current = store;
+        if (sessionId == null || current == null) {
+            return null;
+        }
+        byte[] data = pending.get(sessionId);
+        try {
+            if (data == null) {
+                data = current.load(sessionId);
+            }
+            if (data == null || data.length == 0) {
+                return null;
+            }
+            Map<String, Object> attributes = SessionCodec.decode(data);
+            restored.increment();
+            return attributes;
+        } catch (IOException | IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "Restoring session " + sessionId + " failed", e);
+            return null;
+        } finally {
+            // Whatever was found lives on under the new session's ID
+            if (data != null) {
+                forget(sessionId);
+            }
+        }
+    }
+
+    /**
+     * Delete a session's stored copy; call before invalidating it
+     * @param session Session being invalidated, may be null
+     */
+    public void discard(HttpSession session) {
+        if (session != null && store != null) {
+            forget(session.getId());
+        }
+    }
+
+    /**
+     * Persistence metrics for monitoring
+     * @return One-line summary
+     */
+    public String getMetrics() {
+        return String.format("writes=%d, bytesWritten=%d, unchanged=%d, restored=%d, pending=%d, tracked=%d",
+                writes.sum(), bytesWritten.sum(), unchanged.sum(), restored.sum(), pending.size(), saved.size());
+    }
+
+    private void forget(String sessionId) {
+        saved.remove(sessionId);
+        pending.put(sessionId, REMOVED);
+    }
+
+    private void flush() {
+        SessionStore current = store;
+        if (current == null) {
+            return;
+        }
+        for (Map.Entry<String, byte[]> entry : pending.entrySet()) {
+            String id = entry.getKey();
+            byte[] data = entry.getValue();
+            // Remove only if unchanged, so a newer copy is kept for the next round
+            if (!pending.remove(id, data)) {
+                continue;
+            }
+            try {
+                if (data == REMOVED) {
+                    current.remove(id);
+                } else {
+                    current.save(id, data);
+                    writes.increment();
+                    bytesWritten.add(data.length);
+                }
+            } catch (IOException e) {
+                pending.putIfAbsent(id, data);
+                LOGGER.log(Level.WARNING, "Writing session " + id + " failed", e);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastPurge >= PURGE_INTERVAL_MILLIS) {
+            lastPurge = now;
+            long cutoff = now - RETENTION_MILLIS;
+            saved.values().removeIf(s -> s.savedAt < cutoff);
+            try {
+                int purged = current.purgeOlderThan(cutoff);
+                LOGGER.log(Level.FINE, "Purged {0} expired sessions", purged);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Purging expired sessions failed", e);
+            }
+        }
+    }
+
+    private static SessionStore createStore() throws IOException, ReflectiveOperationException {
+        String className = System.getProperty("perfumeshop.session.store");
+        if (className == null || className.isBlank()) {
+            return new FileSessionStore();
+        }
+        return (SessionStore) Class.forName(className.trim()).getDeclaredConstructor().newInstance();
+    }
+}
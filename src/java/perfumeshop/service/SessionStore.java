@@ -0,0 +1,44 @@
+package perfumeshop.service;
+
+import java.io.IOException;
+
+/**
+ * Where {@link SessionPersistence} keeps encoded sessions, keyed by session ID.
+ * <p>
+ * Implementations must be thread-safe and need a public no-argument constructor so they
+ * can be chosen with the system property {@code perfumeshop.session.store}.
+ * @author PerfumeShop Team
+ */
+public interface SessionStore {
+
+    /**
+     * Store or replace a session
+     * @param sessionId Session ID
+     * @param data Encoded attributes
+     * @throws IOException if the store cannot be written
+     */
+    void save(String sessionId, byte[] data) throws IOException;
+
+    /**
+     * Read a session
+     * @param sessionId Session ID
+     * @return Encoded attributes, or null if not stored
+     * @throws IOException if the store cannot be read
+     */
+    byte[] load(String sessionId) throws IOException;
+
+    /**
+     * Forget a session; no-op if not stored
+     * @param sessionId Session ID
+     * @throws IOException if the store cannot be written
+     */
+    void remove(String sessionId) throws IOException;
+
+    /**
+     * Drop sessions last saved before a point in time
+     * @param cutoffMillis Epoch milliseconds
+     * @return Number of sessions dropped
+     * @throws IOException if the store cannot be written
+     */
+    int purgeOlderThan(long cutoffMillis) throws IOException;
+}
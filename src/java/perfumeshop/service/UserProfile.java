@@ -0,0 +1,139 @@
+package perfumeshop.service;
+
+import perfumeshop.dal.UserDAO;
+import perfumeshop.dal.WalletDAO;
+import perfumeshop.exception.DaoException;
+import perfumeshop.model.User;
+import perfumeshop.model.Wallet;
+import perfumeshop.utils.ProfileVersions;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * Session-scoped handle on the signed-in user's profile and wallet.
+ * <p>
+ * The session keeps only this handle under {@code profile}; the user row and the wallet
+ * are loaded on first use and cached with the {@link ProfileVersions} counter they were
+ * read at. {@code UserDAO.update} and the wallet DAO methods bump the counter, so the next
+ * access after a change reloads, and nothing has to copy fresh data back into the session.
+ * Copies older than {@link #MAX_AGE_MILLIS} are reloaded too, which bounds staleness for
+ * changes made on another node. Pages read {@code ${sessionScope.profile.user.fullName}}
+ * or {@code ${sessionScope.profile.wallet.balance}}.
+ * @author PerfumeShop Team
+ */
+public class UserProfile {
+
+    public static final String ATTRIBUTE = "profile";
+
+    private static final long MAX_AGE_MILLIS = 60_000;
+
+    private final String userName;
+
+    private User user;
+    private long userVersion;
+    private long userLoadedAt;
+
+    private Wallet wallet;
+    private long walletVersion;
+    private long walletLoadedAt;
+
+    /**
+     * Handle with nothing loaded yet
+     * @param userName User name
+     */
+    public UserProfile(String userName) {
+        this.userName = userName;
+    }
+
+    /**
+     * Handle seeded with a user row just read, e.g. at login
+     * @param user Current user row
+     */
+    public UserProfile(User user) {
+        this(user.getUserName());
+        this.userVersion = ProfileVersions.userVersion(userName);
+        this.user = user;
+        this.userLoadedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Profile handle of a session
+     * @param session Session, may be null
+     * @return Handle, or null if nobody is signed in
+     */
+    public static UserProfile of(HttpSession session) {
+        if (session == null) {
+            return null;
+        }
+        Object profile = session.getAttribute(ATTRIBUTE);
+        if (profile instanceof UserProfile) {
+            return (UserProfile) profile;
+        }
+        // Sessions signed in before the handle existed
+        Object account = session.getAttribute("account");
+        if (account instanceof User) {
+            UserProfile created = new UserProfile((User) account);
+            session.setAttribute(ATTRIBUTE, created);
+            return created;
+        }
+        return null;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    /**
+     * Whether the user row was written since it was cached; does not touch the database
+     * @return true if {@link #getUser()} will reload
+     */
+    public synchronized boolean isUserChanged() {
+        return user == null || ProfileVersions.userVersion(userName) != userVersion;
+    }
+
+    /**
+     * Current user row, reloaded if it changed since it was cached. A failed reload keeps
+     * the cached row and is retried on the next access.
+     * @return User, or null if the account no longer exists
+     * @throws DaoException if the row cannot be read and nothing is cached
+     */
+    public synchronized User getUser() {
+        long version = ProfileVersions.userVersion(userName);
+        long now = System.currentTimeMillis();
+        if (user == null || version != userVersion || now - userLoadedAt >= MAX_AGE_MILLIS) {
+            // Read the version first: a change racing with the load is caught on the next access
+            try (UserDAO dao = new UserDAO()) {
+                user = dao.findActiveUser(userName);
+            } catch (DaoException e) {
+                if (user == null) {
+                    throw e;
+                }
+                return user;
+            }
+            userVersion = version;
+            userLoadedAt = now;
+        }
+        return user;
+    }
+
+    /**
+     * Current wallet, reloaded if the balance changed since it was cached
+     * @return Wallet, or null if the user has none
+     */
+    public synchronized Wallet getWallet() {
+        long version = ProfileVersions.walletVersion(userName);
+        long now = System.currentTimeMillis();
+        if (wallet == null || version != walletVersion || now - walletLoadedAt >= MAX_AGE_MILLIS) {
+            try (WalletDAO dao = new WalletDAO()) {
+                wallet = dao.getWalletByUserName(userName);
+            }
+            walletVersion = version;
+            walletLoadedAt = now;
+        }
+        return wallet;
+    }
+
+    @Override
+    public String toString() {
+        return "UserProfile{" + userName + "}";
+    }
+}
@@ -0,0 +1,259 @@
+package perfumeshop.service;
+
+import perfumeshop.dal.UserDAO;
+import perfumeshop.exception.DaoException;
+import perfumeshop.model.Cart;
+import perfumeshop.model.User;
+import perfumeshop.model.Wishlist;
+import perfumeshop.utils.IdentityToken;
+import perfumeshop.utils.LoggingUtils;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * Sign-in state carried by a signed identity cookie rather than by the session alone.
+ * <p>
+ * Signing in issues an {@link IdentityToken} cookie. The session is only a per-node cache
+ * of what the token identifies: when a request reaches a node whose session has no account
+ * (another node, a restart, an expired session), {@link #restore} loads the user, wallet,
+ * cart and wishlist from the database on demand. Nodes behind a plain round-robin balancer
+ * then need nothing but the shared token key. A session saved by {@link SessionPersistence}
+ * is taken from the store first, which spares those queries. Profile details are read
+ * from the {@code account} attribute, not copied into separate session attributes; the
+ * {@link UserProfile} handle swaps in the current row after {@code UserDAO.update} and
+ * loads the wallet only when a page asks for it. Tokens are bound to the stored password,
+ * so a password change signs out every other browser; {@link #passwordChanged} reissues
+ * the cookie of the one that made it.
+ * @author PerfumeShop Team
+ */
+public final class UserSession {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(UserSession.class);
+
+    public static final String COOKIE_NAME = "auth";
+
+    private static final long SESSION_TTL_SECONDS = 12 * 60 * 60;
+    private static final long REMEMBER_TTL_SECONDS = 30L * 24 * 60 * 60;
+
+    private static final String ATTR_ACCOUNT = "account";
+    private static final String ATTR_CART = "cart";
+    private static final String ATTR_WISHLIST = "wishlist";
+
+    private UserSession() {
+    }
+
+    /**
+     * Sign a user in: fresh session with the saved cart and wishlist merged into the
+     * anonymous ones, plus the identity cookie
+     * @param request Current request
+     * @param response Current response
+     * @param user Authenticated user
+     * @param remember Keep the user signed in across browser restarts
+     * @return The new session
+     */
+    public static HttpSession signIn(HttpServletRequest request, HttpServletResponse response,
+                                     User user, boolean remember) {
+        // Keep the cart and wishlist built before logging in, then drop the old session
+        HttpSession session = request.getSession(false);
+        Cart anonymousCart = null;
+        Wishlist anonymousWishlist = null;
+        if (session != null) {
+            anonymousCart = (Cart) session.getAttribute(ATTR_CART);
+            anonymousWishlist = (Wishlist) session.getAttribute(ATTR_WISHLIST);
+            SessionPersistence.getInstance().discard(session);
+            session.invalidate();
+        }
+        session = request.getSession(true);
+        populate(session, user, anonymousCart, anonymousWishlist);
+
+        long ttl = remember ? REMEMBER_TTL_SECONDS : SESSION_TTL_SECONDS;
+        response.addCookie(cookie(request, IdentityToken.sign(user.getUserName(), user.getRoleID(), user.getPassword(), ttl),
+                                  remember ? (int) ttl : -1));
+        return session;
+    }
+
+    /**
+     * Keep the current browser signed in after its user changed their password: the session
+     * takes the new row and the identity cookie is reissued for the new password, with the
+     * same lifetime as before. Cookies held by other browsers no longer match and are dropped.
+     * @param request Current request
+     * @param response Current response
+     * @param userName User whose password changed
+     */
+    public static void passwordChanged(HttpServletRequest request, HttpServletResponse response, String userName) {
+        User user;
+        try (UserDAO dao = new UserDAO()) {
+            user = dao.findActiveUser(userName);
+        } catch (DaoException e) {
+            // The old cookie no longer matches, so this browser will have to sign in again
+            LOGGER.log(Level.WARNING, "Could not reissue identity cookie after password change", e);
+            return;
+        }
+        HttpSession session = request.getSession(false);
+        if (user == null || session == null) {
+            return;
+        }
+        session.setAttribute(ATTR_ACCOUNT, user);
+        session.setAttribute(UserProfile.ATTRIBUTE, new UserProfile(user));
+        // A lifetime longer than a plain session's means the old cookie was a remembered one
+        IdentityToken old = IdentityToken.verify(getCookieValue(request));
+        long remaining = old != null ? old.getExpiresAt() - System.currentTimeMillis() / 1000 : 0;
+        boolean remember = remaining > SESSION_TTL_SECONDS;
+        long ttl = remember ? remaining : SESSION_TTL_SECONDS;
+        response.addCookie(cookie(request, IdentityToken.sign(user.getUserName(), user.getRoleID(), user.getPassword(), ttl),
+                                  remember ? (int) ttl : -1));
+    }
+
+    /**
+     * Rebuild the session of a request that carries a valid identity cookie but no account
+     * @param request Current request
+     * @param response Current response, used to drop a stale cookie
+     * @return Signed-in user, or null if the request is anonymous
+     */
+    public static User restore(HttpServletRequest request, HttpServletResponse response) {
+        HttpSession session = request.getSession(false);
+        if (session == null) {
+            session = restoreStored(request);
+        }
+        if (session != null && session.getAttribute(ATTR_ACCOUNT) instanceof User) {
+            return currentAccount(request, response, session);
+        }
+        String value = getCookieValue(request);
+        if (value == null) {
+            return null;
+        }
+        IdentityToken token = IdentityToken.verify(value);
+        User user = null;
+        if (token != null) {
+            try (UserDAO dao = new UserDAO()) {
+                user = dao.findActiveUser(token.getUserName());
+            } catch (DaoException e) {
+                // The account may well exist: keep the cookie and try again on the next request
+                LOGGER.log(Level.WARNING, "Could not restore session from identity cookie", e);
+                return null;
+            }
+        }
+        // Deleted accounts, role and password changes since the token was issued require a new sign-in
+        if (user == null || !token.matches(user.getUserName(), user.getRoleID(), user.getPassword())) {
+            response.addCookie(cookie(request, "", 0));
+            return null;
+        }
+
+        Cart anonymousCart = session != null ? (Cart) session.getAttribute(ATTR_CART) : null;
+        Wishlist anonymousWishlist = session != null ? (Wishlist) session.getAttribute(ATTR_WISHLIST) : null;
+        populate(request.getSession(true), user, anonymousCart, anonymousWishlist);
+        LOGGER.log(Level.FINE, "Restored session for user {0} from identity cookie", user.getUserName());
+        return user;
+    }
+
+    /**
+     * Recreate a session from the {@link SessionPersistence} store when the client presents
+     * an ID this node does not know. A stored account is kept only if the identity cookie
+     * still names the same user, role and password; otherwise the session comes back anonymous.
+     * @return New session, or null if nothing was stored
+     */
+    private static HttpSession restoreStored(HttpServletRequest request) {
+        Map<String, Object> attributes = SessionPersistence.getInstance().restore(request.getRequestedSessionId());
+        if (attributes == null) {
+            return null;
+        }
+        Object account = attributes.get(ATTR_ACCOUNT);
+        if (account instanceof User) {
+            IdentityToken token = IdentityToken.verify(getCookieValue(request));
+            User user = (User) account;
+            if (token == null || !token.matches(user.getUserName(), user.getRoleID(), user.getPassword())) {
+                attributes.remove(ATTR_ACCOUNT);
+                attributes.remove(UserProfile.ATTRIBUTE);
+            }
+        }
+        HttpSession session = request.getSession(true);
+        for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+            session.setAttribute(entry.getKey(), entry.getValue());
+        }
+        LOGGER.log(Level.FINE, "Restored session {0} from the session store", request.getRequestedSessionId());
+        return session;
+    }
+
+    /**
+     * Sign out: save pending changes, drop the session and the identity cookie
+     * @param request Current request
+     * @param response Current response
+     */
+    public static void signOut(HttpServletRequest request, HttpServletResponse response) {
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            Object account = session.getAttribute(ATTR_ACCOUNT);
+            if (account instanceof User) {
+                CartPersistence.getInstance().flush(((User) account).getUserName());
+                WishlistService.getInstance().flush();
+            }
+            SessionPersistence.getInstance().discard(session);
+            session.invalidate();
+        }
+        response.addCookie(cookie(request, "", 0));
+    }
+
+    /**
+     * Session account, replaced by the current row if the profile changed since it was cached.
+     * A password changed elsewhere signs this session out when its cookie no longer matches.
+     */
+    private static User currentAccount(HttpServletRequest request, HttpServletResponse response,
+                                       HttpSession session) {
+        UserProfile profile = UserProfile.of(session);
+        if (!profile.isUserChanged()) {
+            return (User) session.getAttribute(ATTR_ACCOUNT);
+        }
+        User user;
+        try {
+            user = profile.getUser();
+        } catch (DaoException e) {
+            LOGGER.log(Level.WARNING, "Could not reload account, keeping the session copy", e);
+            return (User) session.getAttribute(ATTR_ACCOUNT);
+        }
+        IdentityToken token = IdentityToken.verify(getCookieValue(request));
+        if (user == null || (token != null && !token.matches(user.getUserName(), user.getRoleID(), user.getPassword()))) {
+            // Deleted, or password changed, while signed in
+            signOut(request, response);
+            return null;
+        }
+        session.setAttribute(ATTR_ACCOUNT, user);
+        return user;
+    }
+
+    private static void populate(HttpSession session, User user, Cart anonymousCart, Wishlist anonymousWishlist) {
+        // The wallet is loaded by the profile handle when a page first needs it
+        session.setAttribute(ATTR_ACCOUNT, user);
+        session.setAttribute(UserProfile.ATTRIBUTE, new UserProfile(user));
+        session.setAttribute(ATTR_CART, CartPersistence.getInstance().restoreOnLogin(user.getUserName(), anonymousCart));
+        session.setAttribute(ATTR_WISHLIST, WishlistService.getInstance().restoreOnLogin(user.getUserName(), anonymousWishlist));
+    }
+
+    private static String getCookieValue(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                return cookie.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static Cookie cookie(HttpServletRequest request, String value, int maxAge) {
+        Cookie cookie = new Cookie(COOKIE_NAME, value);
+        String path = request.getContextPath();
+        cookie.setPath(path.isEmpty() ? "/" : path);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setAttribute("SameSite", "Lax");
+        cookie.setMaxAge(maxAge);
+        return cookie;
+    }
+}
@@ -0,0 +1,280 @@
+package perfumeshop.service;
+
+import perfumeshop.dal.WishlistDAO;
+import perfumeshop.model.User;
+import perfumeshop.model.Wishlist;
+import perfumeshop.utils.LoggingUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * Keeps the session wishlist and persists logged-in users' changes in batches.
+ * <p>
+ * The session holds a {@link Wishlist} (an int set of product IDs). Adds and removes of
+ * logged-in users are recorded as the latest state per user and product, and a background
+ * thread writes everything pending in one transaction every {@link #FLUSH_INTERVAL_MILLIS},
+ * so toggling a heart repeatedly costs at most one row change. Anonymous wishlists live in
+ * the session only and are merged into the saved one at login.
+ * @author PerfumeShop Team
+ */
+public class WishlistService {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(WishlistService.class);
+
+    private static final WishlistService INSTANCE = new WishlistService();
+
+    private static final long FLUSH_INTERVAL_MILLIS = 2_000;
+    private static final long FLUSH_TIMEOUT_SECONDS = 5;
+
+    private static final String ATTR_ACCOUNT = "account";
+    private static final String ATTR_WISHLIST = "wishlist";
+
+    /**
+     * User and product of a pending change
+     */
+    private static final class Key {
+        final String userName;
+        final int productId;
+
+        Key(String userName, int productId) {
+            this.userName = userName;
+            this.productId = productId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return productId == other.productId && userName.equals(other.userName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userName, productId);
+        }
+    }
+
+    private final Map<Key, WishlistDAO.Change> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    private WishlistService() {
+    }
+
+    public static WishlistService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start the background writer
+     */
+    public synchronized void start() {
+        if (flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "wishlist-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushPending, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the background writer and save every pending change
+     */
+    public synchronized void shutdown() {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flusher = null;
+        }
+        flushPending();
+    }
+
+    /**
+     * Get the session's wishlist, creating an empty one if needed
+     * @param session Current session
+     * @return Wishlist stored in the session
+     */
+    public Wishlist getWishlist(HttpSession session) {
+        Object o = session.getAttribute(ATTR_WISHLIST);
+        if (o instanceof Wishlist) {
+            return (Wishlist) o;
+        }
+        Wishlist wishlist = new Wishlist();
+        session.setAttribute(ATTR_WISHLIST, wishlist);
+        return wishlist;
+    }
+
+    /**
+     * Add a product to the session's wishlist
+     * @param session Current session
+     * @param productId Product ID
+     * @return true if it was not already saved
+     */
+    public boolean add(HttpSession session, int productId) {
+        Wishlist wishlist = getWishlist(session);
+        boolean changed = wishlist.add(productId);
+        if (changed) {
+            record(session, productId, true);
+        }
+        return changed;
+    }
+
+    /**
+     * Remove a product from the session's wishlist
+     * @param session Current session
+     * @param productId Product ID
+     * @return true if it was saved
+     */
+    public boolean remove(HttpSession session, int productId) {
+        Wishlist wishlist = getWishlist(session);
+        boolean changed = wishlist.remove(productId);
+        if (changed) {
+            record(session, productId, false);
+        }
+        return changed;
+    }
+
+    /**
+     * Add the product if absent, remove it otherwise
+     * @param session Current session
+     * @param productId Product ID
+     * @return true if the product is now in the wishlist
+     */
+    public boolean toggle(HttpSession session, int productId) {
+        if (getWishlist(session).contains(productId)) {
+            remove(session, productId);
+            return false;
+        }
+        add(session, productId);
+        return true;
+    }
+
+    /**
+     * Load a user's wishlist at login and fold in the one built before logging in
+     * @param userName User name
+     * @param anonymousWishlist Wishlist of the pre-login session, may be null
+     * @return Wishlist to put in the new session; the anonymous one alone if the saved one cannot be loaded
+     */
+    public Wishlist restoreOnLogin(String userName, Wishlist anonymousWishlist) {
+        Wishlist wishlist;
+        try {
+            wishlist = load(userName);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Loading saved wishlist failed for user: " + userName, e);
+            return anonymousWishlist != null ? anonymousWishlist : new Wishlist();
+        }
+        if (anonymousWishlist != null) {
+            for (int productId : anonymousWishlist.getProductIds()) {
+                if (wishlist.add(productId)) {
+                    record(userName, productId, true);
+                }
+            }
+        }
+        return wishlist;
+    }
+
+    /**
+     * Load a user's wishlist, including changes not yet written
+     * @param userName User name
+     * @return Wishlist (empty if none saved)
+     * @throws perfumeshop.exception.DaoException if database operation fails
+     */
+    public Wishlist load(String userName) {
+        Wishlist wishlist;
+        try (WishlistDAO dao = new WishlistDAO()) {
+            wishlist = new Wishlist(dao.getProductIds(userName));
+        }
+        for (WishlistDAO.Change change : pending.values()) {
+            if (change.getUserName().equals(userName)) {
+                if (change.isAdded()) {
+                    wishlist.add(change.getProductId());
+                } else {
+                    wishlist.remove(change.getProductId());
+                }
+            }
+        }
+        return wishlist;
+    }
+
+    /**
+     * Write all pending changes now (e.g. on logout)
+     */
+    public void flush() {
+        ScheduledExecutorService current = flusher;
+        if (current == null) {
+            flushPending();
+            return;
+        }
+        // Writes run on the background thread only, so batches never interleave
+        try {
+            current.submit(this::flushPending).get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException e) {
+            LOGGER.log(Level.WARNING, "Flushing wishlist changes failed", e);
+        }
+    }
+
+    /**
+     * Number of changes waiting to be written
+     * @return Pending count
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    private void record(HttpSession session, int productId, boolean added) {
+        Object account = session.getAttribute(ATTR_ACCOUNT);
+        if (account instanceof User) {
+            record(((User) account).getUserName(), productId, added);
+        }
+    }
+
+    private void record(String userName, int productId, boolean added) {
+        // Latest state wins: add then remove before a flush costs nothing but an idempotent delete
+        pending.put(new Key(userName, productId),
+                    new WishlistDAO.Change(userName, productId, added, System.currentTimeMillis()));
+    }
+
+    private void flushPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<Key, WishlistDAO.Change>> batch = new ArrayList<>(pending.entrySet());
+        List<WishlistDAO.Change> changes = new ArrayList<>(batch.size());
+        for (Map.Entry<Key, WishlistDAO.Change> entry : batch) {
+            changes.add(entry.getValue());
+        }
+        try (WishlistDAO dao = new WishlistDAO()) {
+            dao.applyChanges(changes);
+        } catch (RuntimeException e) {
+            // Left pending and retried on the next round
+            LOGGER.log(Level.WARNING, "Saving wishlist changes failed", e);
+            return;
+        }
+        // Dropped only once written, and only if no newer change arrived meanwhile
+        for (Map.Entry<Key, WishlistDAO.Change> entry : batch) {
+            pending.remove(entry.getKey(), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,951 @@
+package perfumeshop.utils;
+
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One named, bounded cache region managed with W-TinyLFU.
+ * <p>
+ * New entries enter a small LRU window (1% of the capacity). What falls out of the window
+ * competes with the least recently used entry of the main space, and the
+ * {@link FrequencySketch} decides which of the two was used more often lately; the other
+ * is evicted. The main space is a segmented LRU: entries read again move from probation to
+ * a protected segment (80%). A burst of one-off keys therefore cannot flush the entries
+ * that are read all the time, and every eviction is a constant-time unlink.
+ * <p>
+ * Entries expire after write (per entry or the region default) and, if configured, after
+ * access. Deadlines are kept in a hierarchical timer wheel, so expiring costs time only for
+ * the entries that actually expire rather than a sweep over the whole region.
+ * <p>
+ * Reads go to a {@link ConcurrentHashMap} without locking; recording the access in the
+ * policy is skipped when another thread holds the policy lock, the way a lossy read
+ * buffer would drop it. Writes take the lock.
+ * <p>
+ * {@link #get(String, Loader)} loads missing values through the cache: concurrent misses
+ * on a key share one call to the loader. Once an entry has lived
+ * {@link #REFRESH_AHEAD_RATIO} of its write lifetime, the next read still returns it but
+ * starts a reload in the background, so busy keys are replaced before they expire. If a
+ * load fails, the expired value keeps being served for the region's stale grace period.
+ * <p>
+ * Hits, misses, loads, evictions and expirations are counted in {@link LongAdder}s, which
+ * spread contended updates over separate cells instead of allocating; {@link #stats()}
+ * adds them up into a {@link CacheStats}.
+ * @author PerfumeShop Team
+ */
+public final class CacheRegion {
+
+    /**
+     * Weight of an entry against the region's maximum
+     */
+    @FunctionalInterface
+    public interface Weigher {
+        /**
+         * @param key Key
+         * @param value Value
+         * @return Weight, at least 0
+         */
+        int weigh(String key, Object value);
+    }
+
+    /**
+     * Computes a value on a miss; may throw unchecked exceptions, which reach the caller
+     * unless a stale value can be served instead.
+     * <p>
+     * Only a thrown exception counts as a failed load. A loader over a DAO method that logs
+     * SQL errors and returns an empty list or null must turn that result into an exception
+     * (a {@code DaoException}) itself, or the empty result replaces the stale value.
+     */
+    @FunctionalInterface
+    public interface Loader<T> {
+        /**
+         * @param key Key
+         * @return Value, or null to cache nothing
+         */
+        T load(String key);
+    }
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(CacheRegion.class);
+
+    static final Weigher SINGLETON_WEIGHER = (key, value) -> 1;
+
+    // Sketch size assumed for weighted regions that do not say how many entries they hold
+    private static final long DEFAULT_WEIGHTED_ENTRIES = 4_096;
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private static final long NEVER = Long.MAX_VALUE;
+
+    // Timer wheel levels: bucket count and log2 of the bucket width in milliseconds
+    private static final int[] WHEEL_BUCKETS = {64, 64, 32, 4, 1};
+    private static final int[] WHEEL_SHIFTS = {10, 16, 22, 27, 29};
+
+    /** Share of the write lifetime after which a read triggers a background reload */
+    public static final double REFRESH_AHEAD_RATIO = 0.8;
+
+    // Load latency histogram: powers of two from 2 µs up, the last bucket open-ended (~8 s+)
+    private static final int LATENCY_BUCKETS = 24;
+    // Entries sampled to estimate the region's memory footprint
+    private static final int FOOTPRINT_SAMPLE = 64;
+    // Node and hash map entry around each key and value
+    private static final int ENTRY_OVERHEAD = 112;
+
+    // Background reloads for all regions; when busy, refreshes are skipped and the entry
+    // is loaded again on the first miss after it expires
+    private static final ThreadPoolExecutor REFRESHER = new ThreadPoolExecutor(
+            2, 2, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(64), r -> {
+                Thread t = new Thread(r, "cache-refresh");
+                t.setDaemon(true);
+                return t;
+            });
+
+    private final String name;
+    private final long maximumWeight;
+    private final Weigher weigher;
+    private final long expireAfterWriteMillis;
+    private final long expireAfterAccessMillis;
+    private final long staleGraceMillis;
+    private final long origin = System.nanoTime();
+
+    private final ConcurrentHashMap<String, Node> data = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+    // Bumped by remove and clear, so a load that started earlier does not store its result
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder evictionWeight = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder[] loadLatency = new LongAdder[LATENCY_BUCKETS];
+
+    // Guarded by lock
+    private final FrequencySketch sketch;
+    private final AccessOrder window = new AccessOrder();
+    private final AccessOrder probation = new AccessOrder();
+    private final AccessOrder protectedSegment = new AccessOrder();
+    private final TimerWheel wheel;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private long windowWeight;
+    private long protectedWeight;
+    private long totalWeight;
+    private long writes;
+
+    /**
+     * Region counting each entry as 1
+     * @param name Region name
+     * @param maximumSize Entries kept at most
+     * @param expireAfterWriteMillis Default lifetime from the last write; 0 for none
+     * @param expireAfterAccessMillis Lifetime from the last read or write; 0 for none
+     */
+    public CacheRegion(String name, long maximumSize, long expireAfterWriteMillis, long expireAfterAccessMillis) {
+        this(name, maximumSize, SINGLETON_WEIGHER, expireAfterWriteMillis, expireAfterAccessMillis);
+    }
+
+    /**
+     * @param name Region name
+     * @param maximumWeight Total weight kept at most
+     * @param weigher Weight of each entry
+     * @param expireAfterWriteMillis Default lifetime from the last write; 0 for none
+     * @param expireAfterAccessMillis Lifetime from the last read or write; 0 for none
+     */
+    public CacheRegion(String name, long maximumWeight, Weigher weigher,
+                       long expireAfterWriteMillis, long expireAfterAccessMillis) {
+        this(name, maximumWeight, weigher, expireAfterWriteMillis, expireAfterAccessMillis, 0);
+    }
+
+    /**
+     * Region whose frequency sketch is sized for the maximum weight, or for
+     * {@link #DEFAULT_WEIGHTED_ENTRIES} entries when entries weigh more than 1
+     * @param name Region name
+     * @param maximumWeight Total weight kept at most
+     * @param weigher Weight of each entry
+     * @param expireAfterWriteMillis Default lifetime from the last write; 0 for none
+     * @param expireAfterAccessMillis Lifetime from the last read or write; 0 for none
+     * @param staleGraceMillis How long an expired entry is kept to answer loads that fail
+     */
+    public CacheRegion(String name, long maximumWeight, Weigher weigher,
+                       long expireAfterWriteMillis, long expireAfterAccessMillis, long staleGraceMillis) {
+        this(name, maximumWeight, weigher, expireAfterWriteMillis, expireAfterAccessMillis, staleGraceMillis,
+             weigher == SINGLETON_WEIGHER ? maximumWeight : Math.min(maximumWeight, DEFAULT_WEIGHTED_ENTRIES));
+    }
+
+    /**
+     * @param name Region name
+     * @param maximumWeight Total weight kept at most
+     * @param weigher Weight of each entry
+     * @param expireAfterWriteMillis Default lifetime from the last write; 0 for none
+     * @param expireAfterAccessMillis Lifetime from the last read or write; 0 for none
+     * @param staleGraceMillis How long an expired entry is kept to answer loads that fail
+     * @param expectedEntries Entries the region holds when full, which sizes the frequency
+     * sketch; a weight in bytes would make it far larger than the entries it tracks
+     */
+    public CacheRegion(String name, long maximumWeight, Weigher weigher, long expireAfterWriteMillis,
+                       long expireAfterAccessMillis, long staleGraceMillis, long expectedEntries) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive");
+        }
+        if (expectedEntries <= 0) {
+            throw new IllegalArgumentException("Expected entries must be positive");
+        }
+        if (expireAfterWriteMillis < 0 || expireAfterAccessMillis < 0 || staleGraceMillis < 0) {
+            throw new IllegalArgumentException("Expiry cannot be negative");
+        }
+        this.name = name;
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.expireAfterWriteMillis = expireAfterWriteMillis;
+        this.expireAfterAccessMillis = expireAfterAccessMillis;
+        this.staleGraceMillis = staleGraceMillis;
+        this.windowMaximum = Math.max(1, maximumWeight / 100);
+        this.protectedMaximum = (maximumWeight - windowMaximum) * 80 / 100;
+        this.sketch = new FrequencySketch(expectedEntries);
+        this.wheel = new TimerWheel(now());
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            loadLatency[i] = new LongAdder();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Get a live value
+     * @param key Key
+     * @return Value, or null if absent or expired
+     */
+    public Object get(String key) {
+        if (key == null) {
+            return null;
+        }
+        Node node = data.get(key);
+        long now = now();
+        if (node == null || node.expiresAt <= now) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return read(node, now);
+    }
+
+    /**
+     * Get a value, loading it on a miss with the region's default lifetime
+     * @param key Key
+     * @param loader Computes the value; called once for concurrent misses on the same key
+     * @return Value, or null if the loader returned null
+     */
+    public <T> T get(String key, Loader<T> loader) {
+        return get(key, expireAfterWriteMillis, loader);
+    }
+
+    /**
+     * Get a value, loading it on a miss.
+     * <p>
+     * A fresh value is returned at once; if it is near the end of its lifetime a reload
+     * starts in the background. Otherwise the caller loads the value, or waits for the
+     * thread already loading it. If the load fails and an expired value is still within the
+     * stale grace period, that value is returned instead of the exception.
+     * @param key Key
+     * @param ttlMillis Lifetime of a loaded value; 0 for no write expiry
+     * @param loader Computes the value; called once for concurrent misses on the same key
+     * @return Value, or null if the loader returned null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, long ttlMillis, Loader<T> loader) {
+        if (key == null || loader == null) {
+            throw new IllegalArgumentException("Key and loader cannot be null");
+        }
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("TTL cannot be negative");
+        }
+        Node node = data.get(key);
+        long now = now();
+        if (node != null && node.expiresAt > now) {
+            hits.increment();
+            Object value = read(node, now);
+            if (node.writeExpiresAt != NEVER
+                    && now >= node.writtenAt + (long) ((node.writeExpiresAt - node.writtenAt) * REFRESH_AHEAD_RATIO)) {
+                refresh(key, ttlMillis, loader, node);
+            }
+            return (T) value;
+        }
+        misses.increment();
+        return (T) load(key, ttlMillis, loader, node);
+    }
+
+    private Object read(Node node, long now) {
+        Object value = node.value;
+        if (expireAfterAccessMillis > 0) {
+            node.expiresAt = Math.min(node.writeExpiresAt, now + expireAfterAccessMillis);
+        }
+        if (lock.tryLock()) {
+            try {
+                if (node.queue >= 0) {
+                    sketch.increment(spread(node.key.hashCode()));
+                    onAccess(node);
+                }
+                wheel.advance(now);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Add or replace a value with the region's default lifetime
+     * @param key Key
+     * @param value Value
+     */
+    public void put(String key, Object value) {
+        put(key, value, expireAfterWriteMillis);
+    }
+
+    /**
+     * Add or replace a value
+     * @param key Key
+     * @param value Value
+     * @param ttlMillis Lifetime from now; 0 for no write expiry
+     */
+    public void put(String key, Object value, long ttlMillis) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Key and value cannot be null");
+        }
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("TTL cannot be negative");
+        }
+        int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight cannot be negative");
+        }
+        if (weight > maximumWeight) {
+            // Could never be admitted; drop any older value so readers do not see it
+            remove(key);
+            return;
+        }
+        lock.lock();
+        try {
+            store(key, value, weight, ttlMillis);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write a value under the lock
+     */
+    private void store(String key, Object value, int weight, long ttlMillis) {
+        long now = now();
+        long writeExpiresAt = ttlMillis > 0 ? now + ttlMillis : NEVER;
+        long expiresAt = expireAfterAccessMillis > 0
+                ? Math.min(writeExpiresAt, now + expireAfterAccessMillis) : writeExpiresAt;
+        sketch.increment(spread(key.hashCode()));
+
+        Node node = data.get(key);
+        if (node != null) {
+            setWeight(node, weight);
+            node.value = value;
+            node.writeExpiresAt = writeExpiresAt;
+            node.expiresAt = expiresAt;
+            node.writtenAt = now;
+            node.version = ++writes;
+            wheel.reschedule(node);
+            onAccess(node);
+        } else {
+            node = new Node(key, value, weight);
+            node.writeExpiresAt = writeExpiresAt;
+            node.expiresAt = expiresAt;
+            node.writtenAt = now;
+            node.version = ++writes;
+            data.put(key, node);
+            node.queue = WINDOW;
+            window.addLast(node);
+            windowWeight += weight;
+            totalWeight += weight;
+            wheel.schedule(node);
+        }
+        evictEntries();
+        wheel.advance(now);
+    }
+
+    /**
+     * Remove a value
+     * @param key Key
+     * @return true if a value was present
+     */
+    public boolean remove(String key) {
+        if (key == null) {
+            return false;
+        }
+        lock.lock();
+        try {
+            invalidations.incrementAndGet();
+            Node node = data.get(key);
+            if (node == null) {
+                return false;
+            }
+            boolean live = node.expiresAt > now();
+            discard(node);
+            return live;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove every value
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            invalidations.incrementAndGet();
+            for (Node node : data.values()) {
+                discard(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop entries whose deadline has passed; also done as part of reads and writes
+     */
+    public void cleanUp() {
+        lock.lock();
+        try {
+            wheel.advance(now());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of entries, including expired ones not yet dropped
+     * @return Entry count
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * Total weight of the entries held
+     * @return Weight
+     */
+    public long weightedSize() {
+        lock.lock();
+        try {
+            return totalWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Counters since the region was created, with an estimate of its memory footprint
+     * sampled from up to {@link #FOOTPRINT_SAMPLE} entries
+     * @return Snapshot
+     */
+    public CacheStats stats() {
+        int size = size();
+        long sampledBytes = 0;
+        int sampled = 0;
+        Iterator<Node> it = data.values().iterator();
+        while (sampled < FOOTPRINT_SAMPLE && it.hasNext()) {
+            Node node = it.next();
+            sampledBytes += ENTRY_OVERHEAD + SizeEstimator.estimate(node.key) + SizeEstimator.estimate(node.value);
+            sampled++;
+        }
+        long estimatedBytes = sampled == 0 ? 0 : sampledBytes * size / sampled;
+
+        long[] latency = new long[LATENCY_BUCKETS];
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            latency[i] = loadLatency[i].sum();
+        }
+        return new CacheStats(name, size, weightedSize(), maximumWeight, hits.sum(), misses.sum(),
+                loadSuccesses.sum(), loadFailures.sum(), loadNanos.sum(), staleServed.sum(),
+                evictions.sum(), evictionWeight.sum(), expirations.sum(), estimatedBytes, latency);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{size=%d, maximumWeight=%d}", name, size(), maximumWeight);
+    }
+
+    /**
+     * Stop the background reloads of all regions
+     */
+    static void shutdownRefresher() {
+        REFRESHER.shutdownNow();
+    }
+
+    /**
+     * Load a missing or expired value, or wait for the thread already loading it
+     */
+    private Object load(String key, long ttlMillis, Loader<?> loader, Node stale) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = loading.putIfAbsent(key, flight);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                return staleOrThrow(key, stale, e.getCause());
+            }
+        }
+        try {
+            Object value = loadAndStore(key, ttlMillis, loader, stale, stale != null ? stale.version : 0);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            return staleOrThrow(key, stale, e);
+        } finally {
+            loading.remove(key, flight);
+        }
+    }
+
+    /**
+     * Reload a value that is still fresh in the background, unless a load is already running
+     */
+    private void refresh(String key, long ttlMillis, Loader<?> loader, Node node) {
+        if (loading.containsKey(key)) {
+            return;
+        }
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        if (loading.putIfAbsent(key, flight) != null) {
+            return;
+        }
+        long version = node.version;
+        try {
+            REFRESHER.execute(() -> {
+                try {
+                    flight.complete(loadAndStore(key, ttlMillis, loader, node, version));
+                } catch (RuntimeException | Error e) {
+                    LOGGER.log(Level.WARNING, "Refreshing " + key + " in cache region " + name + " failed", e);
+                    flight.completeExceptionally(e);
+                } finally {
+                    loading.remove(key, flight);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The value is still fresh, so anyone who started waiting meanwhile can have it
+            loading.remove(key, flight);
+            flight.complete(node.value);
+        }
+    }
+
+    /**
+     * Call the loader and keep its result, unless the entry was written or removed meanwhile
+     */
+    private Object loadAndStore(String key, long ttlMillis, Loader<?> loader, Node expected, long version) {
+        long invalidationsBefore = invalidations.get();
+        long start = System.nanoTime();
+        Object value;
+        try {
+            value = loader.load(key);
+        } catch (RuntimeException | Error e) {
+            recordLoad(System.nanoTime() - start, loadFailures);
+            throw e;
+        }
+        recordLoad(System.nanoTime() - start, loadSuccesses);
+        if (value == null) {
+            return null;
+        }
+        int weight = weigher.weigh(key, value);
+        if (weight < 0 || weight > maximumWeight) {
+            return value;
+        }
+        lock.lock();
+        try {
+            Node current = data.get(key);
+            // An entry that expired or was evicted meanwhile may be replaced; one that was
+            // written or removed holds newer data than this load saw
+            boolean unchanged = current == null ? expected == null || expected.queue < 0
+                    : current == expected && current.version == version;
+            if (unchanged && invalidations.get() == invalidationsBefore) {
+                store(key, value, weight, ttlMillis);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return value;
+    }
+
+    /**
+     * Answer a failed load with the expired value while it is within the grace period
+     */
+    private Object staleOrThrow(String key, Node stale, Throwable cause) {
+        if (stale != null && data.get(key) == stale && stale.expiresAt + staleGraceMillis > now()) {
+            LOGGER.log(Level.WARNING, "Loading {0} in cache region {1} failed, serving the expired value: {2}",
+                       new Object[]{key, name, cause.toString()});
+            staleServed.increment();
+            return stale.value;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new IllegalStateException(cause);
+    }
+
+    private void recordLoad(long nanos, LongAdder outcome) {
+        outcome.increment();
+        loadNanos.add(nanos);
+        long micros = Math.max(1, nanos / 1_000);
+        int bucket = Math.min(LATENCY_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        loadLatency[bucket].increment();
+    }
+
+    private long now() {
+        return (System.nanoTime() - origin) / 1_000_000;
+    }
+
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private void onAccess(Node node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToBack(node);
+                break;
+            case PROBATION:
+                // Read again while on probation: earns a place in the protected segment
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedSegment.addLast(node);
+                protectedWeight += node.weight;
+                demoteProtected();
+                break;
+            case PROTECTED:
+                protectedSegment.moveToBack(node);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void demoteProtected() {
+        while (protectedWeight > protectedMaximum) {
+            Node demoted = protectedSegment.pollFirst();
+            if (demoted == null) {
+                return;
+            }
+            protectedWeight -= demoted.weight;
+            demoted.queue = PROBATION;
+            probation.addLast(demoted);
+        }
+    }
+
+    private void setWeight(Node node, int weight) {
+        int delta = weight - node.weight;
+        node.weight = weight;
+        totalWeight += delta;
+        if (node.queue == WINDOW) {
+            windowWeight += delta;
+        } else if (node.queue == PROTECTED) {
+            protectedWeight += delta;
+            demoteProtected();
+        }
+    }
+
+    /**
+     * Move the window's overflow to probation, then let each of those candidates compete
+     * with the probation LRU entry until the region fits its maximum
+     */
+    private void evictEntries() {
+        Node candidate = null;
+        while (windowWeight > windowMaximum) {
+            Node node = window.pollFirst();
+            windowWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+            if (candidate == null) {
+                candidate = node;
+            }
+        }
+
+        while (totalWeight > maximumWeight) {
+            Node victim = probation.peekFirst();
+            if (victim == null) {
+                // Probation is empty: fall back to plain LRU on the other segments
+                victim = protectedSegment.peekFirst() != null ? protectedSegment.peekFirst() : window.peekFirst();
+                evict(victim);
+                continue;
+            }
+            if (candidate == null || candidate == victim) {
+                candidate = candidate != null ? probation.next(candidate) : null;
+                evict(victim);
+                continue;
+            }
+            if (admit(candidate, victim)) {
+                evict(victim);
+            } else {
+                Node rejected = candidate;
+                candidate = probation.next(candidate);
+                evict(rejected);
+            }
+        }
+    }
+
+    private boolean admit(Node candidate, Node victim) {
+        int candidateFrequency = sketch.frequency(spread(candidate.key.hashCode()));
+        int victimFrequency = sketch.frequency(spread(victim.key.hashCode()));
+        if (candidateFrequency > victimFrequency) {
+            return true;
+        }
+        if (candidateFrequency <= 5) {
+            return false;
+        }
+        // A warm candidate sometimes wins a tie, so colliding keys cannot pin a victim forever
+        return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+
+    private void evict(Node node) {
+        evictions.increment();
+        evictionWeight.add(node.weight);
+        discard(node);
+    }
+
+    /**
+     * Unlink an entry from the map, its segment and the timer wheel
+     */
+    private void discard(Node node) {
+        data.remove(node.key, node);
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                windowWeight -= node.weight;
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            case PROTECTED:
+                protectedSegment.remove(node);
+                protectedWeight -= node.weight;
+                break;
+            default:
+                return;
+        }
+        totalWeight -= node.weight;
+        node.queue = -1;
+        wheel.deschedule(node);
+    }
+
+    /**
+     * Cache entry, linked into one access-order segment and at most one wheel bucket
+     */
+    private static final class Node {
+        final String key;
+        volatile Object value;
+        volatile long expiresAt;
+        volatile long writeExpiresAt;
+        volatile long writtenAt;
+        // Write number within the region, to tell whether a value was replaced
+        volatile long version;
+        int weight;
+        // Segment, or -1 once discarded
+        int queue = -1;
+
+        Node prev;
+        Node next;
+        Node wheelPrev;
+        Node wheelNext;
+
+        Node(String key, Object value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Intrusive doubly linked list, least recently used first
+     */
+    private static final class AccessOrder {
+        private final Node head = new Node(null, null, 0);
+
+        AccessOrder() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        void addLast(Node node) {
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+        }
+
+        void remove(Node node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+        }
+
+        void moveToBack(Node node) {
+            if (head.prev != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        Node peekFirst() {
+            return head.next != head ? head.next : null;
+        }
+
+        Node pollFirst() {
+            Node first = peekFirst();
+            if (first != null) {
+                remove(first);
+            }
+            return first;
+        }
+
+        Node next(Node node) {
+            return node.next != head ? node.next : null;
+        }
+    }
+
+    /**
+     * Hierarchical timer wheel over the region clock (milliseconds).
+     * <p>
+     * Level i has {@link #WHEEL_BUCKETS}[i] buckets of 2^{@link #WHEEL_SHIFTS}[i] ms: about 1 s, 1 min,
+     * 1 h, 1.5 days and one overflow bucket. Entries are dropped once their stale grace
+     * period has passed as well; until then only loads can see them. An entry goes to the finest level whose range
+     * covers its remaining lifetime; when the clock passes a bucket, its entries are
+     * either expired or, if their deadline moved or is still ahead, scheduled again on a
+     * finer level.
+     */
+    private final class TimerWheel {
+        private final Node[][] buckets = new Node[WHEEL_BUCKETS.length][];
+        private long time;
+
+        TimerWheel(long now) {
+            time = now;
+            for (int i = 0; i < WHEEL_BUCKETS.length; i++) {
+                buckets[i] = new Node[WHEEL_BUCKETS[i]];
+                for (int j = 0; j < WHEEL_BUCKETS[i]; j++) {
+                    Node sentinel = new Node(null, null, 0);
+                    sentinel.wheelPrev = sentinel;
+                    sentinel.wheelNext = sentinel;
+                    buckets[i][j] = sentinel;
+                }
+            }
+        }
+
+        void schedule(Node node) {
+            long deadline = deadlineOf(node);
+            if (deadline == NEVER) {
+                return;
+            }
+            Node sentinel = bucketFor(deadline);
+            node.wheelPrev = sentinel.wheelPrev;
+            node.wheelNext = sentinel;
+            sentinel.wheelPrev.wheelNext = node;
+            sentinel.wheelPrev = node;
+        }
+
+        void reschedule(Node node) {
+            deschedule(node);
+            schedule(node);
+        }
+
+        void deschedule(Node node) {
+            if (node.wheelNext != null) {
+                node.wheelPrev.wheelNext = node.wheelNext;
+                node.wheelNext.wheelPrev = node.wheelPrev;
+                node.wheelPrev = null;
+                node.wheelNext = null;
+            }
+        }
+
+        void advance(long now) {
+            long previous = time;
+            if (now <= previous) {
+                return;
+            }
+            time = now;
+            for (int i = 0; i < WHEEL_SHIFTS.length; i++) {
+                long previousTicks = previous >>> WHEEL_SHIFTS[i];
+                long currentTicks = now >>> WHEEL_SHIFTS[i];
+                if (currentTicks == previousTicks) {
+                    break;
+                }
+                expire(i, previousTicks, currentTicks - previousTicks, now);
+            }
+        }
+
+        private void expire(int level, long previousTicks, long delta, long now) {
+            Node[] wheel = buckets[level];
+            int mask = wheel.length - 1;
+            int steps = (int) Math.min(delta + 1, wheel.length);
+            int start = (int) (previousTicks & mask);
+            for (int i = start; i < start + steps; i++) {
+                Node sentinel = wheel[i & mask];
+                Node node = sentinel.wheelNext;
+                sentinel.wheelPrev = sentinel;
+                sentinel.wheelNext = sentinel;
+                while (node != sentinel) {
+                    Node next = node.wheelNext;
+                    node.wheelPrev = null;
+                    node.wheelNext = null;
+                    if (deadlineOf(node) <= now) {
+                        expirations.increment();
+                        discard(node);
+                    } else {
+                        // Read since it was scheduled (expire-after-access), or in a coarser bucket
+                        schedule(node);
+                    }
+                    node = next;
+                }
+            }
+        }
+
+        /**
+         * When an entry leaves the region: its expiry plus the stale grace period
+         */
+        private long deadlineOf(Node node) {
+            long expiresAt = node.expiresAt;
+            return expiresAt > NEVER - staleGraceMillis ? NEVER : expiresAt + staleGraceMillis;
+        }
+
+        private Node bucketFor(long deadline) {
+            long duration = Math.max(0, deadline - time);
+            for (int i = 0; i < WHEEL_SHIFTS.length - 1; i++) {
+                if (duration < (1L << WHEEL_SHIFTS[i + 1])) {
+                    long ticks = deadline >>> WHEEL_SHIFTS[i];
+                    return buckets[i][(int) (ticks & (WHEEL_BUCKETS[i] - 1))];
+                }
+            }
+            return buckets[WHEEL_SHIFTS.length - 1][0];
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package perfumeshop.utils;
+
+/**
+ * Counters of one {@link CacheRegion} at a point in time.
+ * <p>
+ * Load latencies are kept as a histogram of power-of-two buckets in microseconds: bucket 0
+ * counts loads under 2 µs and bucket i those from 2^i to 2^(i+1) µs, the last one
+ * everything slower. Percentiles are the upper bound of the bucket they fall in, so they
+ * are accurate to within a factor of two.
+ * @author PerfumeShop Team
+ */
+public final class CacheStats {
+
+    private final String regionName;
+    private final int size;
+    private final long weightedSize;
+    private final long maximumWeight;
+    private final long hitCount;
+    private final long missCount;
+    private final long loadSuccessCount;
+    private final long loadFailureCount;
+    private final long totalLoadNanos;
+    private final long staleServedCount;
+    private final long evictionCount;
+    private final long evictionWeight;
+    private final long expirationCount;
+    private final long estimatedBytes;
+    private final long[] loadLatencyBuckets;
+
+    CacheStats(String regionName, int size, long weightedSize, long maximumWeight,
+               long hitCount, long missCount, long loadSuccessCount, long loadFailureCount,
+               long totalLoadNanos, long staleServedCount, long evictionCount, long evictionWeight,
+               long expirationCount, long estimatedBytes, long[] loadLatencyBuckets) {
+        this.regionName = regionName;
+        this.size = size;
+        this.weightedSize = weightedSize;
+        this.maximumWeight = maximumWeight;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadNanos = totalLoadNanos;
+        this.staleServedCount = staleServedCount;
+        this.evictionCount = evictionCount;
+        this.evictionWeight = evictionWeight;
+        this.expirationCount = expirationCount;
+        this.estimatedBytes = estimatedBytes;
+        this.loadLatencyBuckets = loadLatencyBuckets;
+    }
+
+    public String getRegionName() {
+        return regionName;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getWeightedSize() {
+        return weightedSize;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getLoadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    public long getTotalLoadNanos() {
+        return totalLoadNanos;
+    }
+
+    /**
+     * Failed loads answered with an expired value
+     */
+    public long getStaleServedCount() {
+        return staleServedCount;
+    }
+
+    /**
+     * Entries dropped to stay within the maximum weight
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getEvictionWeight() {
+        return evictionWeight;
+    }
+
+    /**
+     * Entries dropped because their lifetime (and stale grace period) ended
+     */
+    public long getExpirationCount() {
+        return expirationCount;
+    }
+
+    /**
+     * Approximate heap used by the entries, extrapolated from a sample
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    public int getLoadLatencyBucketCount() {
+        return loadLatencyBuckets.length;
+    }
+
+    /**
+     * @param bucket Bucket index
+     * @return Loads that took up to {@link #getLoadLatencyBucketLimitMicros} of this bucket
+     */
+    public long getLoadLatencyCount(int bucket) {
+        return loadLatencyBuckets[bucket];
+    }
+
+    /**
+     * @param bucket Bucket index
+     * @return Exclusive upper bound in microseconds, or Long.MAX_VALUE for the last bucket
+     */
+    public long getLoadLatencyBucketLimitMicros(int bucket) {
+        return bucket == loadLatencyBuckets.length - 1 ? Long.MAX_VALUE : 2L << bucket;
+    }
+
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * @return Share of reads answered from the cache, 1 if there were none
+     */
+    public double getHitRate() {
+        long requests = getRequestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    /**
+     * @return Mean load time in milliseconds, 0 if nothing was loaded
+     */
+    public double getAverageLoadMillis() {
+        long loads = loadSuccessCount + loadFailureCount;
+        return loads == 0 ? 0 : totalLoadNanos / (double) loads / 1_000_000;
+    }
+
+    /**
+     * Load time below which a share of loads finished
+     * @param percentile From 0 to 100
+     * @return Upper bound in milliseconds, 0 if nothing was loaded
+     */
+    public double getLoadLatencyPercentileMillis(double percentile) {
+        long total = 0;
+        for (long count : loadLatencyBuckets) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+        for (int i = 0; i < loadLatencyBuckets.length; i++) {
+            seen += loadLatencyBuckets[i];
+            if (seen >= Math.max(1, rank)) {
+                // The open-ended last bucket is reported at its lower bound
+                long micros = i == loadLatencyBuckets.length - 1 ? 1L << i : 2L << i;
+                return micros / 1000.0;
+            }
+        }
+        return (1L << (loadLatencyBuckets.length - 1)) / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: size=%d, weight=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, loads=%d, "
+                + "loadFailures=%d, avgLoad=%.2fms, p95Load=%.2fms, staleServed=%d, evictions=%d, "
+                + "expirations=%d, estimatedKB=%d",
+                regionName, size, weightedSize, maximumWeight, hitCount, missCount, getHitRate() * 100,
+                loadSuccessCount, loadFailureCount, getAverageLoadMillis(), getLoadLatencyPercentileMillis(95),
+                staleServedCount, evictionCount, expirationCount, estimatedBytes / 1024);
+    }
+}
@@ -1,5 +1,8 @@
 package perfumeshop.utils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
@@ -9,41 +12,131 @@ import java.util.logging.Logger;
 import java.util.logging.Level;
 
 /**
- * Simple caching utility with TTL (Time To Live) support
+ * Caching facade over bounded {@link CacheRegion}s.
+ * <p>
+ * The static key/value methods use the {@code default} region, which holds at most
+ * {@link #DEFAULT_MAXIMUM_SIZE} entries; callers that need their own capacity, weigher or
+ * expiry define a named region with {@link #defineRegion}. {@link #get(String, CacheRegion.Loader)}
+ * loads missing values once however many requests miss together. A maintenance thread drops
+ * expired entries from every region each second, in time proportional to what expired.
  * @author PerfumeShop Team
  */
 public class CacheUtils {
 
     private static final Logger LOGGER = LoggingUtils.getLogger(CacheUtils.class);
 
-    private static final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
-    private static final ScheduledExecutorService cleanupExecutor = Executors.newSingleThreadScheduledExecutor();
+    public static final String DEFAULT_REGION = "default";
+    private static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+    private static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long DEFAULT_STALE_GRACE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long MAINTENANCE_INTERVAL_MILLIS = 1_000;
+
+    private static final Map<String, CacheRegion> regions = new ConcurrentHashMap<>();
+    private static final CacheRegion cache = defineRegion(DEFAULT_REGION, DEFAULT_MAXIMUM_SIZE, DEFAULT_TTL_MILLIS, 0,
+                                                        DEFAULT_STALE_GRACE_MILLIS);
+    private static final ScheduledExecutorService cleanupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cache-maintenance");
+        t.setDaemon(true);
+        return t;
+    });
 
     static {
-        // Schedule cleanup task every 5 minutes
-        cleanupExecutor.scheduleAtFixedRate(CacheUtils::cleanupExpiredEntries, 5, 5, TimeUnit.MINUTES);
-        LOGGER.log(Level.INFO, "Cache cleanup scheduler started");
+        cleanupExecutor.scheduleWithFixedDelay(CacheUtils::cleanupExpiredEntries, MAINTENANCE_INTERVAL_MILLIS,
+                                               MAINTENANCE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        LOGGER.log(Level.INFO, "Cache maintenance scheduler started");
     }
 
     /**
-     * Cache entry with expiration time
+     * Define a region counting each entry as 1; returns the existing one if the name is taken
+     * @param name Region name
+     * @param maximumSize Entries kept at most
+     * @param expireAfterWriteMillis Default lifetime from the last write; 0 for none
+     * @param expireAfterAccessMillis Lifetime from the last read or write; 0 for none
+     * @return Region
      */
-    private static class CacheEntry {
-        private final Object value;
-        private final long expirationTime;
+    public static CacheRegion defineRegion(String name, long maximumSize,
+                                           long expireAfterWriteMillis, long expireAfterAccessMillis) {
+        return regions.computeIfAbsent(name,
+                n -> new CacheRegion(n, maximumSize, expireAfterWriteMillis, expireAfterAccessMillis));
+    }
 
-        public CacheEntry(Object value, long ttlMillis) {
-            this.value = value;
-            this.expirationTime = System.currentTimeMillis() + ttlMillis;
-        }
+    /**
+     * Define a region counting each entry as 1 whose expired values answer failed loads for
+     * a while; returns the existing one if the name is taken
+     * @param name Region name
+     * @param maximumSize Entries kept at most
+     * @param expireAfterWriteMillis Default lifetime from the last write; 0 for none
+     * @param expireAfterAccessMillis Lifetime from the last read or write; 0 for none
+     * @param staleGraceMillis How long an expired value is kept to answer loads that fail
+     * @return Region
+     */
+    public static CacheRegion defineRegion(String name, long maximumSize, long expireAfterWriteMillis,
+                                           long expireAfterAccessMillis, long staleGraceMillis) {
+        return regions.computeIfAbsent(name, n -> new CacheRegion(n, maximumSize, CacheRegion.SINGLETON_WEIGHER,
+                expireAfterWriteMillis, expireAfterAccessMillis, staleGraceMillis));
+    }
 
-        public Object getValue() {
-            return value;
-        }
+    /**
+     * Define a weighted region; returns the existing one if the name is taken
+     * @param name Region name
+     * @param maximumWeight Total weight kept at most
+     * @param weigher Weight of each entry
+     * @param expireAfterWriteMillis Default lifetime from the last write; 0 for none
+     * @param expireAfterAccessMillis Lifetime from the last read or write; 0 for none
+     * @return Region
+     */
+    public static CacheRegion defineRegion(String name, long maximumWeight, CacheRegion.Weigher weigher,
+                                           long expireAfterWriteMillis, long expireAfterAccessMillis) {
+        return regions.computeIfAbsent(name,
+                n -> new CacheRegion(n, maximumWeight, weigher, expireAfterWriteMillis, expireAfterAccessMillis));
+    }
+
+    /**
+     * Define a weighted region with a known entry count; returns the existing one if the name is taken
+     * @param name Region name
+     * @param maximumWeight Total weight kept at most
+     * @param weigher Weight of each entry
+     * @param expireAfterWriteMillis Default lifetime from the last write; 0 for none
+     * @param expireAfterAccessMillis Lifetime from the last read or write; 0 for none
+     * @param expectedEntries Entries the region holds when full
+     * @return Region
+     */
+    public static CacheRegion defineRegion(String name, long maximumWeight, CacheRegion.Weigher weigher,
+                                           long expireAfterWriteMillis, long expireAfterAccessMillis,
+                                           long expectedEntries) {
+        return regions.computeIfAbsent(name, n -> new CacheRegion(n, maximumWeight, weigher,
+                expireAfterWriteMillis, expireAfterAccessMillis, 0, expectedEntries));
+    }
 
-        public boolean isExpired() {
-            return System.currentTimeMillis() > expirationTime;
+    /**
+     * Get a region defined earlier
+     * @param name Region name
+     * @return Region, or null if not defined
+     */
+    public static CacheRegion region(String name) {
+        return regions.get(name);
+    }
+
+    /**
+     * All regions, default first
+     * @return Regions defined so far
+     */
+    public static Collection<CacheRegion> getRegions() {
+        List<CacheRegion> all = new ArrayList<>(regions.values());
+        all.sort((a, b) -> a == cache ? -1 : b == cache ? 1 : a.getName().compareTo(b.getName()));
+        return all;
+    }
+
+    /**
+     * Statistics of every region, default first
+     * @return One snapshot per region
+     */
+    public static List<CacheStats> getRegionStats() {
+        List<CacheStats> stats = new ArrayList<>();
+        for (CacheRegion region : getRegions()) {
+            stats.add(region.stats());
         }
+        return stats;
     }
 
     /**
@@ -56,8 +149,13 @@ public class CacheUtils {
         if (key == null || value == null) {
             throw new IllegalArgumentException("Key and value cannot be null");
         }
+        if (ttlMillis <= 0) {
+            // Would be expired on arrival
+            cache.remove(key);
+            return;
+        }
 
-        cache.put(key, new CacheEntry(value, ttlMillis));
+        cache.put(key, value, ttlMillis);
         LOGGER.log(Level.FINE, "Cached value for key: {0}, TTL: {1}ms", new Object[]{key, ttlMillis});
     }
 
@@ -67,7 +165,7 @@ public class CacheUtils {
      * @param value Value to cache
      */
     public static void put(String key, Object value) {
-        put(key, value, TimeUnit.MINUTES.toMillis(10));
+        put(key, value, DEFAULT_TTL_MILLIS);
     }
 
     /**
@@ -76,23 +174,7 @@ public class CacheUtils {
      * @return Cached value or null if not found or expired
      */
     public static Object get(String key) {
-        if (key == null) {
-            return null;
-        }
-
-        CacheEntry entry = cache.get(key);
-        if (entry == null) {
-            return null;
-        }
-
-        if (entry.isExpired()) {
-            cache.remove(key);
-            LOGGER.log(Level.FINE, "Expired cache entry removed for key: {0}", key);
-            return null;
-        }
-
-        LOGGER.log(Level.FINE, "Cache hit for key: {0}", key);
-        return entry.getValue();
+        return cache.get(key);
     }
 
     /**
@@ -111,14 +193,40 @@ public class CacheUtils {
         return null;
     }
 
+    /**
+     * Get value from cache, loading it on a miss with the default TTL (10 minutes)
+     * @param <T> Type of the cached value
+     * @param key Cache key
+     * @param loader Computes the value; called once for concurrent misses on the same key
+     * @return Cached or loaded value, or null if the loader returned null
+     */
+    public static <T> T get(String key, CacheRegion.Loader<T> loader) {
+        return get(key, DEFAULT_TTL_MILLIS, loader);
+    }
+
+    /**
+     * Get value from cache, loading it on a miss. Values near expiry are reloaded in the
+     * background; if a load fails, an expired value is served for up to 5 minutes.
+     * @param <T> Type of the cached value
+     * @param key Cache key
+     * @param ttlMillis Time to live of a loaded value in milliseconds
+     * @param loader Computes the value; called once for concurrent misses on the same key
+     * @return Cached or loaded value, or null if the loader returned null
+     */
+    public static <T> T get(String key, long ttlMillis, CacheRegion.Loader<T> loader) {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("TTL must be positive");
+        }
+        return cache.get(key, ttlMillis, loader);
+    }
+
     /**
      * Remove value from cache
      * @param key Cache key
      * @return true if value was removed
      */
     public static boolean remove(String key) {
-        CacheEntry removed = cache.remove(key);
-        if (removed != null) {
+        if (cache.remove(key)) {
             LOGGER.log(Level.FINE, "Cache entry removed for key: {0}", key);
             return true;
         }
@@ -126,11 +234,13 @@ public class CacheUtils {
     }
 
     /**
-     * Clear all cache entries
+     * Clear all cache entries, in every region
      */
     public static void clear() {
-        int size = cache.size();
-        cache.clear();
+        int size = size();
+        for (CacheRegion region : regions.values()) {
+            region.clear();
+        }
         LOGGER.log(Level.INFO, "Cache cleared, removed {0} entries", size);
     }
 
@@ -145,30 +255,38 @@ public class CacheUtils {
 
     /**
      * Get cache size
-     * @return Number of entries in cache
+     * @return Number of entries across all regions
      */
     public static int size() {
-        return cache.size();
+        int size = 0;
+        for (CacheRegion region : regions.values()) {
+            size += region.size();
+        }
+        return size;
     }
 
     /**
      * Get cache statistics
-     * @return Cache statistics as string
+     * @return Cache statistics as string, one line per region
      */
     public static String getStatistics() {
-        return String.format("Cache Statistics - Size: %d", cache.size());
+        StringBuilder sb = new StringBuilder(String.format("Cache Statistics - Size: %d", size()));
+        for (CacheStats stats : getRegionStats()) {
+            sb.append('\n').append(stats);
+        }
+        return sb.toString();
     }
 
     /**
-     * Cleanup expired entries
+     * Drop expired entries from every region
      */
     private static void cleanupExpiredEntries() {
-        int originalSize = cache.size();
-        cache.entrySet().removeIf(entry -> entry.getValue().isExpired());
-        int removedCount = originalSize - cache.size();
-
-        if (removedCount > 0) {
-            LOGGER.log(Level.INFO, "Cache cleanup completed, removed {0} expired entries", removedCount);
+        for (CacheRegion region : regions.values()) {
+            try {
+                region.cleanUp();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Cache maintenance failed for region " + region.getName(), e);
+            }
         }
     }
 
@@ -185,6 +303,7 @@ public class CacheUtils {
             cleanupExecutor.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        CacheRegion.shutdownRefresher();
         LOGGER.log(Level.INFO, "Cache system shutdown");
     }
 }
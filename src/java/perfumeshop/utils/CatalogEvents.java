@@ -0,0 +1,65 @@
+package perfumeshop.utils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Publishes product catalog changes to in-process listeners (caches, aggregates).
+ * Listener failures are logged and never reach the writer.
+ * @author PerfumeShop Team
+ */
+public class CatalogEvents {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(CatalogEvents.class);
+
+    /** Product ID passed when the changed product is unknown (e.g. a fresh insert) */
+    public static final int UNKNOWN_PRODUCT = 0;
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Receives catalog change notifications
+     */
+    public interface Listener {
+        /**
+         * A product was inserted, updated or deleted
+         * @param productId Product ID or UNKNOWN_PRODUCT
+         */
+        void productChanged(int productId);
+    }
+
+    /**
+     * Register a listener
+     * @param listener Listener to add
+     */
+    public static void register(Listener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregister a listener
+     * @param listener Listener to remove
+     */
+    public static void unregister(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Notify listeners that a product changed
+     * @param productId Product ID or UNKNOWN_PRODUCT
+     */
+    public static void fireProductChanged(int productId) {
+        for (Listener listener : listeners) {
+            try {
+                listener.productChanged(productId);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Catalog listener failed: " + listener, e);
+            }
+        }
+    }
+}
@@ -3,8 +3,9 @@ package perfumeshop.utils;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.logging.Level;
 
-public class DBContext {
+public class DBContext implements AutoCloseable {
 
     protected Connection connection;
 
@@ -20,4 +21,20 @@ public class DBContext {
             System.out.println(ex);
         }
     }
+
+    /**
+     * Close the connection. Background jobs open a DAO per run and must close it
+     * (try-with-resources) so each run does not leave a connection behind.
+     */
+    @Override
+    public void close() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            LoggingUtils.getLogger(DBContext.class).log(Level.WARNING, "Closing database connection failed", ex);
+        }
+    }
 }
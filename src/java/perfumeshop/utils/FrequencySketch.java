@@ -0,0 +1,90 @@
+package perfumeshop.utils;
+
+/**
+ * Approximate access counts for cache admission (TinyLFU).
+ * <p>
+ * A count-min sketch of 4-bit counters, sixteen to a {@code long}: each key maps to four
+ * counters and its estimate is the smallest of them, so collisions can only overestimate.
+ * Once the number of increments reaches ten times the table width every counter is
+ * halved, which lets the sketch forget keys that were popular a while ago. Memory is
+ * 8 bytes per expected entry whatever the number of distinct keys seen. Not thread-safe;
+ * callers hold the cache's eviction lock.
+ * @author PerfumeShop Team
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedSize Number of entries the cache holds when full
+     */
+    FrequencySketch(long expectedSize) {
+        int width = Integer.highestOneBit((int) Math.max(16, Math.min(expectedSize, 1 << 26)) - 1) << 1;
+        table = new long[width];
+        tableMask = width - 1;
+        sampleSize = 10 * width;
+    }
+
+    /**
+     * Estimated number of recent accesses
+     * @param hash Key hash
+     * @return Count from 0 to 15
+     */
+    int frequency(int hash) {
+        int start = (hash & 3) << 2;
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xFL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Count one access
+     * @param hash Key hash
+     */
+    void increment(int hash) {
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xFL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+}
@@ -0,0 +1,165 @@
+package perfumeshop.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Compact HMAC-signed identity token: who the user is, their role, which password they
+ * signed in with and when it expires.
+ * <p>
+ * Encoded as {@code base64url(userName).roleId.expiry.credential.base64url(HMAC-SHA256)},
+ * with the expiry in epoch seconds, so any node holding the same key can recognise a
+ * signed-in user without a shared session store. The credential is a keyed fingerprint of
+ * the stored password hash: changing or resetting the password changes it, which revokes
+ * every token issued before, and it reveals nothing about the hash itself. The key comes
+ * from the system property {@code perfumeshop.token.secret} (Base64, at least 32 bytes);
+ * without it a random key is made at startup, which only works on a single node and signs
+ * everyone out on restart.
+ * @author PerfumeShop Team
+ */
+public final class IdentityToken {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(IdentityToken.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_KEY_BYTES = 32;
+    private static final int CREDENTIAL_BYTES = 9;
+    private static final byte[] KEY = loadKey();
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final String userName;
+    private final int roleId;
+    private final long expiresAt;
+    private final String credential;
+
+    private IdentityToken(String userName, int roleId, long expiresAt, String credential) {
+        this.userName = userName;
+        this.roleId = roleId;
+        this.expiresAt = expiresAt;
+        this.credential = credential;
+    }
+
+    /**
+     * Issue a signed token
+     * @param userName User name
+     * @param roleId Role ID
+     * @param storedPassword Password value as stored in the database
+     * @param ttlSeconds Lifetime in seconds
+     * @return Encoded token
+     */
+    public static String sign(String userName, int roleId, String storedPassword, long ttlSeconds) {
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        String payload = ENCODER.encodeToString(userName.getBytes(StandardCharsets.UTF_8))
+                + "." + roleId + "." + expiresAt + "." + credential(storedPassword);
+        return payload + "." + ENCODER.encodeToString(mac(payload));
+    }
+
+    /**
+     * Check a token's signature and expiry
+     * @param token Encoded token, may be null
+     * @return Token, or null if malformed, forged or expired
+     */
+    public static IdentityToken verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int last = token.lastIndexOf('.');
+        if (last < 0) {
+            return null;
+        }
+        String payload = token.substring(0, last);
+        try {
+            byte[] signature = DECODER.decode(token.substring(last + 1));
+            if (!MessageDigest.isEqual(signature, mac(payload))) {
+                return null;
+            }
+            String[] parts = payload.split("\\.");
+            if (parts.length != 4) {
+                return null;
+            }
+            long expiresAt = Long.parseLong(parts[2]);
+            if (expiresAt <= System.currentTimeMillis() / 1000) {
+                return null;
+            }
+            String userName = new String(DECODER.decode(parts[0]), StandardCharsets.UTF_8);
+            return new IdentityToken(userName, Integer.parseInt(parts[1]), expiresAt, parts[3]);
+        } catch (IllegalArgumentException e) {
+            // Bad Base64 or number: treated like a bad signature
+            return null;
+        }
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public int getRoleId() {
+        return roleId;
+    }
+
+    /**
+     * Expiry time
+     * @return Epoch seconds
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Check that the token still describes an account: same user, same role and the
+     * password it was issued for
+     * @param userName User name
+     * @param roleId Current role ID
+     * @param storedPassword Password value currently stored
+     * @return true if the token is still good for this account
+     */
+    public boolean matches(String userName, int roleId, String storedPassword) {
+        return this.userName.equals(userName) && this.roleId == roleId
+                && MessageDigest.isEqual(credential.getBytes(StandardCharsets.US_ASCII),
+                                         credential(storedPassword).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String credential(String storedPassword) {
+        byte[] fingerprint = mac("credential|" + (storedPassword != null ? storedPassword : ""));
+        return ENCODER.encodeToString(Arrays.copyOf(fingerprint, CREDENTIAL_BYTES));
+    }
+
+    private static byte[] mac(String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(KEY, ALGORITHM));
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " not available", e);
+        }
+    }
+
+    private static byte[] loadKey() {
+        String configured = System.getProperty("perfumeshop.token.secret");
+        if (configured != null) {
+            try {
+                byte[] key = Base64.getDecoder().decode(configured.trim());
+                if (key.length >= MIN_KEY_BYTES) {
+                    return key;
+                }
+                LOGGER.log(Level.SEVERE, "perfumeshop.token.secret is shorter than {0} bytes, ignoring it", MIN_KEY_BYTES);
+            } catch (IllegalArgumentException e) {
+                LOGGER.log(Level.SEVERE, "perfumeshop.token.secret is not valid Base64, ignoring it");
+            }
+        }
+        LOGGER.log(Level.WARNING, "No perfumeshop.token.secret set: using a random key valid for this node only");
+        byte[] key = new byte[MIN_KEY_BYTES];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+}
@@ -0,0 +1,135 @@
+package perfumeshop.utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash set of non-negative ints, without boxing.
+ * Not thread-safe; callers synchronize externally.
+ * @author PerfumeShop Team
+ */
+public class IntHashSet implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int EMPTY = -1;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private int size;
+    private int resizeAt;
+
+    public IntHashSet() {
+        this(8);
+    }
+
+    /**
+     * @param expectedSize Number of values expected without resizing
+     */
+    public IntHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Check whether a value is present
+     * @param key Value
+     * @return true if present
+     */
+    public boolean contains(int key) {
+        return key >= 0 && keys[find(key)] == key;
+    }
+
+    /**
+     * Add a value
+     * @param key Value (must be non-negative)
+     * @return true if it was not already present
+     */
+    public boolean add(int key) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Key must be non-negative: " + key);
+        }
+        int slot = find(key);
+        if (keys[slot] == key) {
+            return false;
+        }
+        keys[slot] = key;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * Remove a value
+     * @param key Value
+     * @return true if it was present
+     */
+    public boolean remove(int key) {
+        if (key < 0) {
+            return false;
+        }
+        int slot = find(key);
+        if (keys[slot] != key) {
+            return false;
+        }
+        // Backward-shift deletion: move later entries of the probe run into the gap, no tombstones
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = home(keys[next], mask);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static int home(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = home(key, mask);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        allocate(capacity);
+        for (int key : oldKeys) {
+            if (key != EMPTY) {
+                keys[find(key)] = key;
+            }
+        }
+    }
+}
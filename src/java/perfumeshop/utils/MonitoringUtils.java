@@ -128,6 +128,11 @@ public class MonitoringUtils {
             }
         }
 
+        metrics.append("\n=== Cache Metrics ===\n");
+        for (CacheStats stats : CacheUtils.getRegionStats()) {
+            metrics.append(stats).append('\n');
+        }
+
         if (!errorCounts.isEmpty()) {
             metrics.append("\n=== Error Summary ===\n");
             for (Map.Entry<String, Integer> entry : errorCounts.entrySet()) {
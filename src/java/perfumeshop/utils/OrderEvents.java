@@ -0,0 +1,86 @@
+package perfumeshop.utils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import perfumeshop.model.Order;
+
+/**
+ * Publishes order lifecycle events to in-process listeners after the database commit.
+ * Listener failures are logged and never reach the caller, so a broken consumer cannot fail a checkout.
+ * @author PerfumeShop Team
+ */
+public class OrderEvents {
+
+    private static final Logger LOGGER = LoggingUtils.getLogger(OrderEvents.class);
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Receives order lifecycle events. Called on the committing request thread, so keep it cheap.
+     */
+    public interface Listener {
+        /**
+         * An order and its details were committed
+         * @param order Committed order
+         * @param itemsSold Total quantity of all its lines
+         */
+        void orderCreated(Order order, int itemsSold);
+
+        /**
+         * An order was marked as delivered
+         * @param orderId Order ID
+         */
+        default void orderDelivered(int orderId) {
+        }
+    }
+
+    /**
+     * Register a listener
+     * @param listener Listener to add
+     */
+    public static void register(Listener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregister a listener
+     * @param listener Listener to remove
+     */
+    public static void unregister(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Notify listeners that an order was committed
+     * @param order Committed order
+     * @param itemsSold Total quantity of all its lines
+     */
+    public static void fireOrderCreated(Order order, int itemsSold) {
+        for (Listener listener : listeners) {
+            try {
+                listener.orderCreated(order, itemsSold);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Order listener failed on create: " + listener, e);
+            }
+        }
+    }
+
+    /**
+     * Notify listeners that an order was delivered
+     * @param orderId Order ID
+     */
+    public static void fireOrderDelivered(int orderId) {
+        for (Listener listener : listeners) {
+            try {
+                listener.orderDelivered(orderId);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Order listener failed on delivery: " + listener, e);
+            }
+        }
+    }
+}
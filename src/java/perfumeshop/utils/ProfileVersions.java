@@ -0,0 +1,64 @@
+package perfumeshop.utils;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Change counters for user profiles and wallets, bumped by the DAOs that write them.
+ * <p>
+ * A cached copy remembers the version it was loaded at and is stale once the counter has
+ * moved. Counters are kept per hash slot rather than per user, so memory stays fixed;
+ * two users sharing a slot only cost each other an occasional extra reload. Counters are
+ * per node: a write made on another node is only seen when the copy ages out.
+ * @author PerfumeShop Team
+ */
+public final class ProfileVersions {
+
+    private static final int SLOTS = 1 << 12;
+
+    private static final AtomicLongArray USER_VERSIONS = new AtomicLongArray(SLOTS);
+    private static final AtomicLongArray WALLET_VERSIONS = new AtomicLongArray(SLOTS);
+
+    private ProfileVersions() {
+    }
+
+    /**
+     * Record that a user's profile row changed
+     * @param userName User name
+     */
+    public static void userChanged(String userName) {
+        USER_VERSIONS.incrementAndGet(slot(userName));
+    }
+
+    /**
+     * Record that a user's wallet balance changed
+     * @param userName User name
+     */
+    public static void walletChanged(String userName) {
+        WALLET_VERSIONS.incrementAndGet(slot(userName));
+    }
+
+    /**
+     * Current profile version
+     * @param userName User name
+     * @return Counter value
+     */
+    public static long userVersion(String userName) {
+        return USER_VERSIONS.get(slot(userName));
+    }
+
+    /**
+     * Current wallet version
+     * @param userName User name
+     * @return Counter value
+     */
+    public static long walletVersion(String userName) {
+        return WALLET_VERSIONS.get(slot(userName));
+    }
+
+    private static int slot(String userName) {
+        // User names compare case-insensitively in the database
+        int h = userName != null ? userName.toLowerCase(Locale.ROOT).hashCode() : 0;
+        return (h ^ (h >>> 16)) & (SLOTS - 1);
+    }
+}
@@ -0,0 +1,228 @@
+package perfumeshop.utils;
+
+import java.util.Map;
+
+/**
+ * Single-pass scanner for SQL injection markers in request parameters.
+ * <p>
+ * Recognises the same inputs as the former case-insensitive alternation regex: the
+ * whole words union, select, insert, delete, update, drop, create, alter, exec, execute
+ * and script, and the tautology "and|or &lt;digits&gt; = &lt;digits&gt;". The keywords are
+ * compiled into a trie over a-z. Every rule is anchored at word boundaries, so a match can
+ * only begin where a word begins; the walk therefore restarts at each word instead of
+ * following failure links, and each character is looked at once. Nothing is allocated
+ * unless a rule matches.
+ * @author PerfumeShop Team
+ */
+public final class RequestScanner {
+
+    /**
+     * Rule families, in the order the old pattern listed them
+     */
+    public enum Rule {
+        SQL_KEYWORD,
+        SQL_TAUTOLOGY,
+        SCRIPT_KEYWORD
+    }
+
+    /**
+     * A rule that matched, with the parameter and word that triggered it
+     */
+    public static final class Match {
+        private final Rule rule;
+        private final String term;
+        private final String parameter;
+
+        Match(Rule rule, String term, String parameter) {
+            this.rule = rule;
+            this.term = term;
+            this.parameter = parameter;
+        }
+
+        public Rule getRule() {
+            return rule;
+        }
+
+        public String getTerm() {
+            return term;
+        }
+
+        public String getParameter() {
+            return parameter;
+        }
+
+        @Override
+        public String toString() {
+            return rule + " '" + term + "' in parameter " + parameter;
+        }
+    }
+
+    private static final String[] SQL_KEYWORDS = {
+        "union", "select", "insert", "delete", "update", "drop", "create", "alter", "exec", "execute"
+    };
+    private static final String[] TAUTOLOGY_KEYWORDS = {"and", "or"};
+    private static final String[] SCRIPT_KEYWORDS = {"script"};
+
+    private static final int ALPHABET = 26;
+
+    // Trie: next[state * ALPHABET + letter] is the following state, 0 for none (root is never a target)
+    private static final int[] NEXT;
+    // Rule ending at each state, null if none
+    private static final Rule[] OUTPUT;
+    private static final String[] TERM;
+
+    static {
+        int states = 1;
+        for (String[] words : new String[][]{SQL_KEYWORDS, TAUTOLOGY_KEYWORDS, SCRIPT_KEYWORDS}) {
+            for (String word : words) {
+                states += word.length();
+            }
+        }
+        int[] next = new int[states * ALPHABET];
+        Rule[] output = new Rule[states];
+        String[] term = new String[states];
+        int used = 1;
+        Rule[] rules = {Rule.SQL_KEYWORD, Rule.SQL_TAUTOLOGY, Rule.SCRIPT_KEYWORD};
+        String[][] lists = {SQL_KEYWORDS, TAUTOLOGY_KEYWORDS, SCRIPT_KEYWORDS};
+        for (int r = 0; r < rules.length; r++) {
+            for (String word : lists[r]) {
+                int state = 0;
+                for (int i = 0; i < word.length(); i++) {
+                    int slot = state * ALPHABET + (word.charAt(i) - 'a');
+                    if (next[slot] == 0) {
+                        next[slot] = used++;
+                    }
+                    state = next[slot];
+                }
+                output[state] = rules[r];
+                term[state] = word;
+            }
+        }
+        NEXT = next;
+        OUTPUT = output;
+        TERM = term;
+    }
+
+    private RequestScanner() {
+    }
+
+    /**
+     * Scan every value of every parameter
+     * @param parameters Parameter map of the request
+     * @return First match, or null if all values are clean
+     */
+    public static Match scan(Map<String, String[]> parameters) {
+        for (Map.Entry<String, String[]> entry : parameters.entrySet()) {
+            String[] values = entry.getValue();
+            if (values == null) {
+                continue;
+            }
+            for (String value : values) {
+                Match match = scan(entry.getKey(), value);
+                if (match != null) {
+                    return match;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Scan one value
+     * @param parameter Parameter name, reported in the match
+     * @param value Value to scan, may be null
+     * @return Match, or null if the value is clean
+     */
+    public static Match scan(String parameter, String value) {
+        if (value == null) {
+            return null;
+        }
+        int length = value.length();
+        int i = 0;
+        while (i < length) {
+            // Skip to the start of the next word
+            while (i < length && !isWordChar(value.charAt(i))) {
+                i++;
+            }
+            int state = 0;
+            while (i < length) {
+                char c = value.charAt(i);
+                if (!isWordChar(c)) {
+                    break;
+                }
+                if (state >= 0) {
+                    int letter = lowerLetter(c);
+                    state = letter < 0 ? -1 : NEXT[state * ALPHABET + letter];
+                    if (state == 0) {
+                        state = -1;
+                    }
+                }
+                i++;
+            }
+            // A whole word ended at i
+            if (state > 0 && OUTPUT[state] != null) {
+                Rule rule = OUTPUT[state];
+                if (rule != Rule.SQL_TAUTOLOGY || isTautologyTail(value, i)) {
+                    return new Match(rule, TERM[state], parameter);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check for "\s+\d+\s*=\s*\d+" starting at from
+     */
+    private static boolean isTautologyTail(String value, int from) {
+        int i = skipSpaces(value, from);
+        if (i == from) {
+            return false;
+        }
+        int digits = skipDigits(value, i);
+        if (digits == i) {
+            return false;
+        }
+        i = skipSpaces(value, digits);
+        if (i >= value.length() || value.charAt(i) != '=') {
+            return false;
+        }
+        i = skipSpaces(value, i + 1);
+        return skipDigits(value, i) > i;
+    }
+
+    private static int skipSpaces(String value, int i) {
+        while (i < value.length() && isSpace(value.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipDigits(String value, int i) {
+        while (i < value.length() && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    // Same classes as java.util.regex: \s and \d are ASCII, \b uses letters, digits and '_'
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B;
+    }
+
+    private static boolean isWordChar(char c) {
+        if (c < 0x80) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+        }
+        return Character.isLetterOrDigit(c);
+    }
+
+    private static int lowerLetter(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        return -1;
+    }
+}
@@ -20,16 +20,6 @@ public class SecurityUtils {
         Pattern.CASE_INSENSITIVE | Pattern.DOTALL
     );
 
-    // SQL injection patterns
-    private static final Pattern SQL_INJECTION_PATTERN = Pattern.compile(
-        "(\\b(union|select|insert|delete|update|drop|create|alter|exec|execute)\\b)|" +
-        "(\\b(and|or)\\s+\\d+\\s*=\\s*\\d+)|" +
-        "(\\bscript\\b)|" +
-        "(\\bor\\s+\\d+\\s*=\\s*\\d+)|" +
-        "(\\band\\s+\\d+\\s*=\\s*\\d+)",
-        Pattern.CASE_INSENSITIVE
-    );
-
     // Email validation pattern
     private static final Pattern EMAIL_PATTERN = Pattern.compile(
         "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$"
@@ -76,7 +66,7 @@ public class SecurityUtils {
             return true;
         }
 
-        return !SQL_INJECTION_PATTERN.matcher(input).find();
+        return RequestScanner.scan(null, input) == null;
     }
 
     /**
@@ -163,17 +153,36 @@ public class SecurityUtils {
      */
     public static boolean validateRequestParameters(HttpServletRequest request, String... parameters) {
         for (String param : parameters) {
-            String value = request.getParameter(param);
-            if (value != null && !isSqlInjectionSafe(value)) {
-                LOGGER.log(Level.WARNING, "SQL injection attempt detected in parameter: {0}", param);
-                LoggingUtils.logSecurityEvent(LOGGER, request, "SQL_INJECTION_ATTEMPT",
-                                            "Parameter: " + param + ", Value: " + value);
+            RequestScanner.Match match = RequestScanner.scan(param, request.getParameter(param));
+            if (match != null) {
+                logInjectionAttempt(request, match);
                 return false;
             }
         }
         return true;
     }
 
+    /**
+     * Scan all values of all request parameters for SQL injection in one pass
+     * @param request HTTP request
+     * @return Rule that matched, or null if every parameter is safe
+     */
+    public static RequestScanner.Match scanRequestParameters(HttpServletRequest request) {
+        RequestScanner.Match match = RequestScanner.scan(request.getParameterMap());
+        if (match != null) {
+            logInjectionAttempt(request, match);
+        }
+        return match;
+    }
+
+    private static void logInjectionAttempt(HttpServletRequest request, RequestScanner.Match match) {
+        LOGGER.log(Level.WARNING, "SQL injection attempt detected: {0}", match);
+        LoggingUtils.logSecurityEvent(LOGGER, request, "SQL_INJECTION_ATTEMPT",
+                                    "Rule: " + match.getRule() + ", Term: " + match.getTerm()
+                                    + ", Parameter: " + match.getParameter()
+                                    + ", Value: " + request.getParameter(match.getParameter()));
+    }
+
     /**
      * Check for suspicious request patterns
      * @param request HTTP request
@@ -204,40 +213,6 @@ public class SecurityUtils {
         return false;
     }
 
-    /**
-     * Rate limiting check (simple implementation)
-     * @param session HTTP session
-     * @param action Action to rate limit
-     * @param maxRequests Maximum requests allowed
-     * @param timeWindowMs Time window in milliseconds
-     * @return true if within rate limit, false if exceeded
-     */
-    public static boolean checkRateLimit(HttpSession session, String action,
-                                       int maxRequests, long timeWindowMs) {
-        String key = "rate_limit_" + action;
-        Long lastRequestTime = (Long) session.getAttribute(key + "_time");
-        Integer requestCount = (Integer) session.getAttribute(key + "_count");
-
-        long currentTime = System.currentTimeMillis();
-
-        if (lastRequestTime == null || (currentTime - lastRequestTime) > timeWindowMs) {
-            // Reset or initialize rate limit
-            session.setAttribute(key + "_time", currentTime);
-            session.setAttribute(key + "_count", 1);
-            return true;
-        } else {
-            // Within time window, check count
-            if (requestCount < maxRequests) {
-                session.setAttribute(key + "_count", requestCount + 1);
-                return true;
-            } else {
-                // Rate limit exceeded
-                LOGGER.log(Level.WARNING, "Rate limit exceeded for action: {0}", action);
-                return false;
-            }
-        }
-    }
-
     /**
      * Validate file upload security
      * @param filename Original filename
@@ -278,7 +253,9 @@ public class SecurityUtils {
      * Hash password (simple implementation - in production use bcrypt or similar)
      * @param password Plain text password
      * @return Hashed password
+     * @deprecated Unsalted and fast; stored passwords use {@link perfumeshop.service.PasswordHashing}
      */
+    @Deprecated
     public static String hashPassword(String password) {
         if (password == null || password.trim().isEmpty()) {
             throw new IllegalArgumentException("Password cannot be null or empty");
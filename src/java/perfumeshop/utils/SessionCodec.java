@@ -0,0 +1,450 @@
+package perfumeshop.utils;
+
+import perfumeshop.model.Cart;
+import perfumeshop.model.Item;
+import perfumeshop.model.Product;
+import perfumeshop.model.User;
+import perfumeshop.model.Wallet;
+import perfumeshop.model.Wishlist;
+import perfumeshop.service.UserProfile;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of session attributes for the session store.
+ * <p>
+ * Layout: a format version, the attribute count, then per attribute its name, a one-byte
+ * type tag and the length of its payload, so a reader can skip tags it does not know.
+ * Integers are unsigned or zig-zag varints; prices that are whole cents (nearly all of
+ * them) are stored as a varint count of cents instead of an 8-byte double. A cart is its
+ * product IDs, quantities and captured prices only - products are resolved from the
+ * catalog after decoding, as they are in a live session - the account is stored
+ * without its password and the profile handle as its user name alone. Attributes of
+ * other types are left out; they are request-flow state that the pages rebuild.
+ * @author PerfumeShop Team
+ */
+public final class SessionCodec {
+
+    public static final int VERSION = 1;
+
+    private static final int TAG_STRING = 1;
+    private static final int TAG_INT = 2;
+    private static final int TAG_LONG = 3;
+    private static final int TAG_DOUBLE = 4;
+    private static final int TAG_BOOLEAN = 5;
+    private static final int TAG_STRING_MAP = 6;
+    private static final int TAG_CART = 7;
+    private static final int TAG_WISHLIST = 8;
+    private static final int TAG_USER = 9;
+    private static final int TAG_WALLET = 10;
+    private static final int TAG_PROFILE = 11;
+
+    private SessionCodec() {
+    }
+
+    /**
+     * Whether a value has an encoding
+     * @param value Attribute value
+     * @return true if {@link #encode} keeps it
+     */
+    public static boolean isSupported(Object value) {
+        return tagOf(value) != 0;
+    }
+
+    /**
+     * Encode the supported attributes of a session
+     * @param attributes Attribute names and values
+     * @return Encoded bytes
+     */
+    public static byte[] encode(Map<String, Object> attributes) {
+        Writer out = new Writer(64);
+        Writer payload = new Writer(32);
+        int count = 0;
+        for (Object value : attributes.values()) {
+            if (isSupported(value)) {
+                count++;
+            }
+        }
+        out.varint(VERSION);
+        out.varint(count);
+        for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+            int tag = tagOf(entry.getValue());
+            if (tag == 0) {
+                continue;
+            }
+            payload.reset();
+            writeValue(payload, tag, entry.getValue());
+            out.string(entry.getKey());
+            out.varint(tag);
+            out.varint(payload.size);
+            out.bytes(payload.buffer, payload.size);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode attributes written by {@link #encode}
+     * @param data Encoded bytes
+     * @return Attribute names and values in encoding order
+     * @throws IllegalArgumentException if the data is truncated or of an unknown version
+     */
+    public static Map<String, Object> decode(byte[] data) {
+        Reader in = new Reader(data);
+        int version = in.varint();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported session format version " + version);
+        }
+        int count = in.varint();
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = in.string();
+            int tag = in.varint();
+            int length = in.varint();
+            int end = in.position + length;
+            Object value = readValue(in, tag);
+            if (value != null) {
+                attributes.put(name, value);
+            }
+            // Also skips the payload of tags written by a newer version
+            in.seek(end);
+        }
+        return attributes;
+    }
+
+    private static int tagOf(Object value) {
+        if (value instanceof String) {
+            return TAG_STRING;
+        } else if (value instanceof Integer) {
+            return TAG_INT;
+        } else if (value instanceof Long) {
+            return TAG_LONG;
+        } else if (value instanceof Double) {
+            return TAG_DOUBLE;
+        } else if (value instanceof Boolean) {
+            return TAG_BOOLEAN;
+        } else if (value instanceof Cart) {
+            return TAG_CART;
+        } else if (value instanceof Wishlist) {
+            return TAG_WISHLIST;
+        } else if (value instanceof User) {
+            return TAG_USER;
+        } else if (value instanceof Wallet) {
+            return TAG_WALLET;
+        } else if (value instanceof UserProfile) {
+            return TAG_PROFILE;
+        } else if (value instanceof Map && isStringMap((Map<?, ?>) value)) {
+            return TAG_STRING_MAP;
+        }
+        return 0;
+    }
+
+    private static boolean isStringMap(Map<?, ?> map) {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!(entry.getKey() instanceof String) || !(entry.getValue() instanceof String)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeValue(Writer out, int tag, Object value) {
+        switch (tag) {
+            case TAG_STRING:
+                out.string((String) value);
+                break;
+            case TAG_INT:
+                out.varlong(zigzag((Integer) value));
+                break;
+            case TAG_LONG:
+                out.varlong(zigzag((Long) value));
+                break;
+            case TAG_DOUBLE:
+                out.price((Double) value);
+                break;
+            case TAG_BOOLEAN:
+                out.varint((Boolean) value ? 1 : 0);
+                break;
+            case TAG_STRING_MAP:
+                Map<?, ?> map = (Map<?, ?>) value;
+                out.varint(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    out.string((String) entry.getKey());
+                    out.string((String) entry.getValue());
+                }
+                break;
+            case TAG_CART:
+                writeCart(out, (Cart) value);
+                break;
+            case TAG_WISHLIST:
+                int[] ids = ((Wishlist) value).getProductIds();
+                out.varint(ids.length);
+                for (int id : ids) {
+                    out.varint(id);
+                }
+                break;
+            case TAG_USER:
+                writeUser(out, (User) value);
+                break;
+            case TAG_WALLET:
+                Wallet wallet = (Wallet) value;
+                out.string(wallet.getUserName());
+                out.price(wallet.getBalance());
+                break;
+            case TAG_PROFILE:
+                out.string(((UserProfile) value).getUserName());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown tag " + tag);
+        }
+    }
+
+    private static Object readValue(Reader in, int tag) {
+        switch (tag) {
+            case TAG_STRING:
+                return in.string();
+            case TAG_INT:
+                return (int) unzigzag(in.varlong());
+            case TAG_LONG:
+                return unzigzag(in.varlong());
+            case TAG_DOUBLE:
+                return in.price();
+            case TAG_BOOLEAN:
+                return in.varint() != 0;
+            case TAG_STRING_MAP:
+                int entries = in.varint();
+                Map<String, String> map = new LinkedHashMap<>();
+                for (int i = 0; i < entries; i++) {
+                    map.put(in.string(), in.string());
+                }
+                return map;
+            case TAG_CART:
+                return readCart(in);
+            case TAG_WISHLIST:
+                int[] ids = new int[in.varint()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = in.varint();
+                }
+                return new Wishlist(ids);
+            case TAG_USER:
+                return readUser(in);
+            case TAG_WALLET:
+                return new Wallet(in.string(), in.price());
+            case TAG_PROFILE:
+                return new UserProfile(in.string());
+            default:
+                return null;
+        }
+    }
+
+    private static void writeCart(Writer out, Cart cart) {
+        int[] ids = cart.getProductIds();
+        out.varint(ids.length);
+        for (int id : ids) {
+            out.varint(id);
+            out.varint(cart.getQuantityByID(id));
+            out.price(cart.getUnitPriceByID(id));
+            out.price(cart.getListPriceByID(id));
+        }
+    }
+
+    private static Cart readCart(Reader in) {
+        Cart cart = new Cart();
+        int lines = in.varint();
+        for (int i = 0; i < lines; i++) {
+            Product product = new Product();
+            product.setId(in.varint());
+            Item item = new Item();
+            item.setProduct(product);
+            item.setQuantity(in.varint());
+            item.setPrice(in.price());
+            product.setPrice(in.price());
+            // Re-adding recomputes the totals from the lines
+            cart.addItem(item);
+        }
+        return cart;
+    }
+
+    private static void writeUser(Writer out, User user) {
+        out.string(user.getUserName());
+        out.string(user.getFullName());
+        out.string(user.getAddress());
+        out.string(user.getPhone());
+        out.string(user.getEmail());
+        out.string(user.getImage());
+        out.varint(user.getRoleID());
+        // Epoch day shifted by one so that 0 means no birthdate
+        out.varlong(user.getBirthdate() != null ? zigzag(user.getBirthdate().toEpochDay()) + 1 : 0);
+    }
+
+    private static User readUser(Reader in) {
+        String userName = in.string();
+        String fullName = in.string();
+        String address = in.string();
+        String phone = in.string();
+        String email = in.string();
+        String image = in.string();
+        int roleId = in.varint();
+        long day = in.varlong();
+        LocalDate birthdate = day != 0 ? LocalDate.ofEpochDay(unzigzag(day - 1)) : null;
+        return new User(userName, fullName, null, address, phone, email, image, birthdate, roleId);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Growable output buffer
+     */
+    private static final class Writer {
+        byte[] buffer;
+        int size;
+
+        Writer(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        void byteValue(int b) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size * 2);
+            }
+            buffer[size++] = (byte) b;
+        }
+
+        void bytes(byte[] data, int length) {
+            if (size + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(size * 2, size + length));
+            }
+            System.arraycopy(data, 0, buffer, size, length);
+            size += length;
+        }
+
+        void varint(int value) {
+            varlong(value & 0xFFFFFFFFL);
+        }
+
+        void varlong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                byteValue((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            byteValue((int) value);
+        }
+
+        /**
+         * Length + 1 then UTF-8 bytes; a length of 0 is null
+         */
+        void string(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] data = value.getBytes(StandardCharsets.UTF_8);
+            varint(data.length + 1);
+            bytes(data, data.length);
+        }
+
+        /**
+         * Whole cents as an even varint, anything else as an odd marker and the raw double
+         */
+        void price(double value) {
+            long rounded = Math.round(value * 100);
+            if (Math.abs(rounded) < (1L << 52) && rounded / 100.0 == value) {
+                varlong(zigzag(rounded) << 1);
+            } else {
+                varlong(1);
+                long bits = Double.doubleToRawLongBits(value);
+                for (int i = 0; i < 8; i++) {
+                    byteValue((int) (bits >>> (8 * i)));
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    /**
+     * Bounds-checked input cursor
+     */
+    private static final class Reader {
+        final byte[] data;
+        int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int byteValue() {
+            if (position >= data.length) {
+                throw new IllegalArgumentException("Truncated session data");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        void seek(int target) {
+            if (target < position || target > data.length) {
+                throw new IllegalArgumentException("Corrupt session data");
+            }
+            position = target;
+        }
+
+        int varint() {
+            long value = varlong();
+            if (value > 0xFFFFFFFFL) {
+                throw new IllegalArgumentException("Corrupt session data");
+            }
+            return (int) value;
+        }
+
+        long varlong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = byteValue();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Corrupt session data");
+        }
+
+        String string() {
+            int length = varint();
+            if (length == 0) {
+                return null;
+            }
+            length--;
+            if (length > data.length - position) {
+                throw new IllegalArgumentException("Truncated session data");
+            }
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        double price() {
+            long value = varlong();
+            if ((value & 1) == 0) {
+                return unzigzag(value >>> 1) / 100.0;
+            }
+            long bits = 0;
+            for (int i = 0; i < 8; i++) {
+                bits |= (long) byteValue() << (8 * i);
+            }
+            return Double.longBitsToDouble(bits);
+        }
+    }
+}
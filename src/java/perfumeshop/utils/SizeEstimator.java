@@ -0,0 +1,182 @@
+package perfumeshop.utils;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Rough heap size of cached values, for sizing caches rather than exact accounting.
+ * <p>
+ * Assumes a 64-bit JVM with compressed references: 12-byte object headers, 4-byte
+ * references, 8-byte alignment. Application objects are walked field by field; strings,
+ * boxes, arrays and collections are sized from their length, with large collections and
+ * arrays extrapolated from their first {@link #SAMPLE} elements. JDK types other than those
+ * are counted by their own fields only, since their internals cannot be read. Objects
+ * reached twice are counted once; the walk stops {@link #MAX_DEPTH} references deep.
+ * @author PerfumeShop Team
+ */
+final class SizeEstimator {
+
+    private static final int HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int SAMPLE = 32;
+    private static final int MAX_DEPTH = 6;
+
+    // Per-element overhead of list and hash-based containers, beyond the elements themselves
+    private static final int LIST_SLOT = 6;
+    private static final int HASH_NODE = 40;
+
+    private static final ClassValue<Field[]> FIELDS = new ClassValue<>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            return instanceFields(type);
+        }
+    };
+
+    private final Map<Object, Boolean> visited = new IdentityHashMap<>();
+
+    private SizeEstimator() {
+    }
+
+    /**
+     * @param value Object graph root, may be null
+     * @return Estimated bytes
+     */
+    static long estimate(Object value) {
+        return new SizeEstimator().sizeOf(value, 0);
+    }
+
+    private long sizeOf(Object value, int depth) {
+        if (value == null || depth > MAX_DEPTH || visited.put(value, Boolean.TRUE) != null) {
+            return 0;
+        }
+        Class<?> type = value.getClass();
+        if (value instanceof String) {
+            // Compact strings: one byte per character for Latin-1 text
+            return align(HEADER + 12) + align(ARRAY_HEADER + ((String) value).length());
+        }
+        if (type.isArray()) {
+            return sizeOfArray(value, type.getComponentType(), depth);
+        }
+        if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            int slot = collection instanceof Set ? HASH_NODE : LIST_SLOT;
+            return align(HEADER + 24) + (long) collection.size() * slot + sampled(collection, depth);
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            return align(HEADER + 36) + (long) map.size() * HASH_NODE
+                    + sampled(map.keySet(), depth) + sampled(map.values(), depth);
+        }
+        return sizeOfObject(value, type, depth);
+    }
+
+    private long sizeOfArray(Object array, Class<?> component, int depth) {
+        int length = Array.getLength(array);
+        long size = align(ARRAY_HEADER + (long) length * slotSize(component));
+        if (component.isPrimitive() || length == 0) {
+            return size;
+        }
+        int sampled = Math.min(length, SAMPLE);
+        long elements = 0;
+        for (int i = 0; i < sampled; i++) {
+            elements += sizeOf(Array.get(array, i), depth + 1);
+        }
+        return size + elements * length / sampled;
+    }
+
+    private long sampled(Collection<?> collection, int depth) {
+        int size = collection.size();
+        if (size == 0) {
+            return 0;
+        }
+        long elements = 0;
+        int sampled = 0;
+        if (collection instanceof List && collection instanceof RandomAccess) {
+            List<?> list = (List<?>) collection;
+            for (; sampled < Math.min(size, SAMPLE); sampled++) {
+                elements += sizeOf(list.get(sampled), depth + 1);
+            }
+        } else {
+            Iterator<?> it = collection.iterator();
+            while (sampled < SAMPLE && it.hasNext()) {
+                elements += sizeOf(it.next(), depth + 1);
+                sampled++;
+            }
+        }
+        return sampled == 0 ? 0 : elements * size / sampled;
+    }
+
+    private long sizeOfObject(Object value, Class<?> type, int depth) {
+        long size = HEADER;
+        boolean walk = !isJdkType(type);
+        for (Field field : FIELDS.get(type)) {
+            Class<?> fieldType = field.getType();
+            size += slotSize(fieldType);
+            if (walk && !fieldType.isPrimitive()) {
+                try {
+                    size += sizeOf(field.get(value), depth + 1);
+                } catch (IllegalAccessException e) {
+                    // Counted as a reference only
+                }
+            }
+        }
+        return align(size);
+    }
+
+    private static Field[] instanceFields(Class<?> type) {
+        List<Field> fields = new ArrayList<>();
+        boolean accessible = !isJdkType(type);
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                if (accessible && !field.getType().isPrimitive()) {
+                    try {
+                        field.setAccessible(true);
+                    } catch (RuntimeException e) {
+                        // Sized as a reference without following it
+                    }
+                }
+                fields.add(field);
+            }
+        }
+        return fields.toArray(new Field[0]);
+    }
+
+    private static boolean isJdkType(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.")
+                || name.startsWith("sun.") || name.startsWith("jakarta.");
+    }
+
+    private static int slotSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,87 @@
+package perfumeshop.service;
+
+import perfumeshop.exception.ValidationException;
+import perfumeshop.model.Order;
+import perfumeshop.service.OrderAnalyticsStore.GroupBy;
+import perfumeshop.service.OrderAnalyticsStore.Report;
+import perfumeshop.utils.OrderEvents;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link OrderAnalyticsStore}
+ * @author PerfumeShop Team
+ */
+public class OrderAnalyticsStoreTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2024, 3, 10, 12, 0);
+
+    private OrderAnalyticsStore store;
+
+    @Before
+    public void setUp() {
+        store = new OrderAnalyticsStore();
+        // Stored orders 1 and 3; order 2 committed late and arrives as an event later
+        store.load(handler -> {
+            handler.handle(new Order(1, DAY, "alice", 10, false));
+            handler.handle(new Order(3, DAY, "bob", 30, false));
+        });
+    }
+
+    @After
+    public void tearDown() {
+        OrderEvents.unregister(store);
+    }
+
+    @Test
+    public void deliveredOrdersAppendedOutOfIdOrderAreFound() {
+        store.orderCreated(new Order(5, DAY, "carol", 50, false), 1);
+        store.orderCreated(new Order(2, DAY, "dave", 20, false), 1);
+        store.orderCreated(new Order(4, DAY, "erin", 40, false), 1);
+
+        store.orderDelivered(2);
+        store.orderDelivered(4);
+        store.orderDelivered(1);
+
+        Report report = store.report(DAY.toLocalDate(), DAY.toLocalDate().plusDays(1), GroupBy.STATUS);
+        assertEquals(70.0, report.getRevenue(OrderAnalyticsStore.STATUS_DELIVERED), 0.001);
+        assertEquals(3, report.getOrderCount(OrderAnalyticsStore.STATUS_DELIVERED));
+        assertEquals(80.0, report.getRevenue(OrderAnalyticsStore.STATUS_PENDING), 0.001);
+    }
+
+    @Test
+    public void orderSeenTwiceIsCountedOnce() {
+        store.orderCreated(new Order(3, DAY, "bob", 30, false), 1);
+
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    public void userReportHasABucketPerUserSeen() {
+        store.orderCreated(new Order(5, DAY, "carol", 50, false), 1);
+        store.orderCreated(new Order(6, DAY, "alice", 15, false), 1);
+
+        Report report = store.report(DAY.toLocalDate(), DAY.toLocalDate().plusDays(1), GroupBy.USER);
+        assertEquals(3, report.getBucketCount());
+        assertEquals("carol", report.getBucketKey(2));
+        assertEquals(25.0, report.getRevenue(0), 0.001);
+        assertEquals(2, report.getOrderCount(0));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void dailyReportOverLongRangeIsRejected() {
+        LocalDate from = LocalDate.of(2000, 1, 1);
+        store.report(from, from.plusDays(OrderAnalyticsStore.MAX_DAYS_BY_DAY + 1), GroupBy.DAY);
+    }
+
+    @Test
+    public void totalOverHugeRangeUsesNoBuckets() {
+        Report report = store.report(LocalDate.MIN, LocalDate.MAX, GroupBy.NONE);
+
+        assertEquals(40.0, report.getTotalRevenue(), 0.001);
+    }
+}
@@ -70,9 +70,9 @@
                     <li class="header_wishlist">
                         <a href="viewwishlist">
                             <i class="fa fa-heart-o"></i>
-                            <c:if test="${sessionScope.wishList != null && sessionScope.wishListSize != 0}" >
+                            <c:if test="${sessionScope.wishlist != null && sessionScope.wishlist.size != 0}" >
                                 <span class="item_count">
-                                    ${sessionScope.wishListSize}
+                                    ${sessionScope.wishlist.size}
                                 </span>
                             </c:if>
                         </a>
@@ -87,17 +87,17 @@
                     <li id="productsCart" class="mini_cart_wrapper">
                         <a href="javascript:void(0)" >
                             <i class="fa fa-shopping-cart"></i>
-                            <c:if test="${sessionScope.cart != null && sessionScope.cartSize != 0}" >
+                            <c:if test="${sessionScope.cart != null && sessionScope.cart.productCount != 0}" >
                                 <span class="item_count">
-                                    ${sessionScope.cartSize}
+                                    ${sessionScope.cart.productCount}
                                 </span>
                             </c:if>
                         </a>
                         <div class="mini_cart mini_cart2">
                             <div class="cart_gallery" style="max-height: 250px; overflow-y: auto;">
                                 <div >
-                                    <c:if test="${sessionScope.cart != null && sessionScope.cartSize != 0}">
-                                        <c:forEach items="${sessionScope.listItemsInCart}" var="p">
+                                    <c:if test="${sessionScope.cart != null && sessionScope.cart.productCount != 0}">
+                                        <c:forEach items="${sessionScope.cart.listItems}" var="p">
                                             <div class="cart_item">
                                                 <div class="cart_img">
                                                     <a href="#"><img src="${p.product.image[0]}"
@@ -121,7 +121,7 @@
 
                                 </div>
 
-                                <c:if test="${sessionScope.cart == null || sessionScope.cartSize == 0}">
+                                <c:if test="${sessionScope.cart == null || sessionScope.cart.productCount == 0}">
                                     <span class="header__cart-list--no-cart-msg">Nothing now!</span>
                                     <img src="images/emptycart.png" alt="Emptycart" style=" width: 60%;">
                                 </c:if>
@@ -130,7 +130,7 @@
                                 <div class="cart_table_border">
                                     <div class="cart_total">
                                         <span>Sub Total :</span>
-                                        <span class="price" style="color:grey">Rs.${sessionScope.cart.getTotalPriceWithOutDiscount()}</span>
+                                        <span class="price" style="color:grey">Rs.${sessionScope.cart.getTotalPriceWithoutDiscount()}</span>
                                     </div>
 
                                     <div class="cart_total mt-10">
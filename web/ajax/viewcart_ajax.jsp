@@ -22,10 +22,10 @@
                 <h2 style="color: red; text-align: center">${requestScope.message1}</h2>
                 <h4 style="color: red; text-align: center">${requestScope.message2}</h4>
             </c:if>
-            <c:if test="${sessionScope.listItemsInCart == null || sessionScope.cartSize == 0}">
+            <c:if test="${sessionScope.cart.listItems == null || sessionScope.cart.productCount == 0}">
                 <<img src="images/emptycart1.png" width="400px"  alt="Emptycart"/>
             </c:if>
-            <c:if test="${sessionScope.cartSize != 0}">
+            <c:if test="${sessionScope.cart.productCount != 0}">
                 <div class="row d-flex justify-content-center">
                     <div class="col-4">
                         <h4 class="heading">Shopping Bag</h4>
@@ -47,7 +47,7 @@
                         </div>
                     </div>
                 </div>
-                <c:forEach items="${sessionScope.listItemsInCart}" var="item">
+                <c:forEach items="${sessionScope.cart.listItems}" var="item">
                     <div class="row d-flex justify-content-center border-top">
                         <div class="col-4">
                             <div class="row">
@@ -98,12 +98,12 @@
                                 <div class="row d-flex justify-content-between px-4">
 
                                     <p class="mb-1 text-left">Shipping</p>
-                                    <h6 class="mb-1 text-right">$${sessionScope.cart == null || sessionScope.cartSize == 0 ? '0' : '3'}</h6>
+                                    <h6 class="mb-1 text-right">$${sessionScope.cart == null || sessionScope.cart.productCount == 0 ? '0' : '3'}</h6>
                                 </div>
                                 <div class="row d-flex justify-content-between px-4" id="tax">
                                     <p class="mb-1 text-left">Total (tax included)</p>
                                     <h6 class="mb-1 text-right" style="font-size: 18px; font-weight: bold;">
-                                        $${sessionScope.cart == null || sessionScope.cartSize == 0 ? '0' : sessionScope.cart.getTotalMoney() + 3}
+                                        $${sessionScope.cart == null || sessionScope.cart.productCount == 0 ? '0' : sessionScope.cart.getTotalMoney() + 3}
                                     </h6>
                                 </div>
                                 <span>
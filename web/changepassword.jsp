@@ -116,7 +116,7 @@
     </head>
     <body>
         <c:set var="user" value="${sessionScope.account}"/>
-        <c:set var="imageSession" value="${sessionScope.imageUser}"/>
+        <c:set var="imageSession" value="${sessionScope.account.image}"/>
         <header style="background-color: rgba(0, 0, 0, 0.7); color: white; padding: 10px 0; font-family: Lato, sans-serif">
             <div class="row align-items-center" style="margin: 0">
                 <div class="col-lg-2" style="padding: 0px">
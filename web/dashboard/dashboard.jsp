@@ -102,7 +102,7 @@
                                             <div style="text-align: end">
                                                 <h4 style="color: #1B813A">Total Products</h4>
                                                 <p class="mb-0"></p>
-                                                <h2 class="h1 mb-0">${requestScope.countProduct}</h2>
+                                                <h2 class="h1 mb-0" id="countProduct">${requestScope.countProduct}</h2>
                                         </div>
                                     </div>
                                 </div>
@@ -120,7 +120,7 @@
                                         <div style="text-align: end"> 
                                             <h4 style="color: #06439F;">Number of products sold</h4>
                                             <p class="mb-0"></p>
-                                            <h2 class="h1 mb-0">${requestScope.sumquantitySold}</h2> 
+                                            <h2 class="h1 mb-0" id="sumquantitySold">${requestScope.sumquantitySold}</h2> 
                                         </div>
                                     </div>
                                 </div>
@@ -140,7 +140,7 @@
                                         <div style="text-align: end">
                                             <h4 style="color: #E94644;">Total Sales</h4>
                                             <p class="mb-0"></p>
-                                            <h2 class="h1 mb-0">${requestScope.totalmoneyAll}$</h2>
+                                            <h2 class="h1 mb-0"><span id="totalmoneyAll">${requestScope.totalmoneyAll}</span>$</h2>
                                         </div>
                                     </div>
                                 </div>
@@ -286,5 +286,21 @@
             });
         </script>
         <script type="text/javascript" src="https://mdbootstrap.com/wp-content/themes/mdbootstrap4/js/plugins/mdb-plugins-gathered.min.js"></script>
+        <script>// Live order activity
+            if (window.EventSource) {
+                var feed = new EventSource("dashboardfeed");
+                feed.addEventListener("orders", function (e) {
+                    var delta = JSON.parse(e.data);
+                    var add = function (id, value, decimals) {
+                        var el = document.getElementById(id);
+                        var total = parseFloat(el.textContent) + value;
+                        el.textContent = decimals ? total.toFixed(decimals) : total;
+                    };
+                    add("countProduct", -delta.itemsSold);
+                    add("sumquantitySold", delta.itemsSold);
+                    add("totalmoneyAll", delta.revenue, 2);
+                });
+            }
+        </script>
     </body>
 </html>
\ No newline at end of file
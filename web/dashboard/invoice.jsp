@@ -117,6 +117,10 @@
                                 <h3 class="mb-0 text-center" id="">
                                     <strong>Invoice</strong>
                                 </h3>
+                                <div class="text-center" style="margin-top: 10px">
+                                    <a href="exportinvoice" class="btn btn-primary btn-sm">Export CSV</a>
+                                    <a href="exportinvoice?gzip=true" class="btn btn-outline-primary btn-sm">Export CSV (gzip)</a>
+                                </div>
                             </div>
                         </div>
                         <div class="card-body">
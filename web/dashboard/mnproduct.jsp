@@ -181,6 +181,7 @@
                                                 <td class="text_page">
                                                     <a href="updateproduct?pid=${o.id}"><button type="button" class="btn btn-warning"><i class="fa-solid fa-pen"></i></button></a>
                                                     <a href="deleteproduct?pid=${o.id}"><button type="button" class="btn btn-danger"><i class="fa-solid fa-trash"></i></button></a>
+                                                    <a href="flashsale?pid=${o.id}" title="${flashSale.isEnabled(o.id) ? 'Disable flash sale' : 'Enable flash sale'}"><button type="button" class="btn ${flashSale.isEnabled(o.id) ? 'btn-success' : 'btn-secondary'}"><i class="fa-solid fa-bolt"></i></button></a>
                                                 </td>
                                             </tr>
                                         </c:forEach>
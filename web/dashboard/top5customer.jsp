@@ -104,9 +104,16 @@
                     <section class="mb-4">
                         <div class="card">
                             <div class="card-header py-3">
-                                <h3 class="mb-0 text-center"><strong>Top 5 Spending Customer</strong></h3>
+                                <h3 class="mb-0 text-center"><strong>Top ${n} Spending Customer</strong></h3>
                             </div>
 
+                        <form action="top5khachhang" method="get" class="d-flex justify-content-center gap-2 pt-3">
+                            <input type="number" name="n" min="1" max="100" value="${n}" class="form-control w-auto">
+                            <input type="date" name="from" value="${from}" class="form-control w-auto">
+                            <input type="date" name="to" value="${to}" class="form-control w-auto">
+                            <button type="submit" class="btn btn-primary">Filter</button>
+                        </form>
+
                         <c:if test="${mess!=null }">
                             <div class="alert alert-success" role="alert">
                                 ${mess}
@@ -126,18 +133,12 @@
                                     </thead>
                                     <tbody>
                                         <c:forEach items="${listTop5Spending}" var="t">
-                                            <c:forEach items="${listAllAccount}" var="o">
-                                                <c:if test="${t.user.userName==o.userName}">
-                                                    <c:if test="${t.totalSpending!=0.0 }">
-                                                        <tr>
-                                                            <td class="text_page">${o.fullName}</td>
-                                                            <td class="text_page">${o.userName}</td>
-                                                            <td class="text_page">${o.phone}</td>
-                                                            <td class="text_page">${t.totalSpending}</td>    
-                                                        </tr>
-                                                    </c:if>
-                                                </c:if>
-                                            </c:forEach>
+                                            <tr>
+                                                <td class="text_page">${t.user.fullName}</td>
+                                                <td class="text_page">${t.user.userName}</td>
+                                                <td class="text_page">${t.user.phone}</td>
+                                                <td class="text_page">${t.totalSpending}</td>    
+                                            </tr>
                                         </c:forEach>
                                     </tbody>
                                 </table>
@@ -71,9 +71,9 @@
                         <li class="header_wishlist">
                             <a href="viewwishlist">
                                 <i class="fa fa-heart-o"></i>
-                                <c:if test="${sessionScope.wishList != null && sessionScope.wishListSize != 0}" >
+                                <c:if test="${sessionScope.wishlist != null && sessionScope.wishlist.size != 0}" >
                                     <span class="item_count">
-                                        ${sessionScope.wishListSize}
+                                        ${sessionScope.wishlist.size}
                                     </span>
                                 </c:if>
                             </a>
@@ -88,17 +88,17 @@
                         <li id="productsCart" class="mini_cart_wrapper">
                             <a href="javascript:void(0)" >
                                 <i class="fa fa-shopping-cart"></i>
-                                <c:if test="${sessionScope.cart != null && sessionScope.cartSize != 0}" >
+                                <c:if test="${sessionScope.cart != null && sessionScope.cart.productCount != 0}" >
                                     <span class="item_count">
-                                        ${sessionScope.cartSize}
+                                        ${sessionScope.cart.productCount}
                                     </span>
                                 </c:if>
                             </a>
                             <div class="mini_cart mini_cart2">
                                 <div class="cart_gallery" style="max-height: 250px; overflow-y: auto;">
                                     <div >
-                                        <c:if test="${sessionScope.cart != null && sessionScope.cartSize != 0}">
-                                            <c:forEach items="${sessionScope.listItemsInCart}" var="p">
+                                        <c:if test="${sessionScope.cart != null && sessionScope.cart.productCount != 0}">
+                                            <c:forEach items="${sessionScope.cart.listItems}" var="p">
                                                 <div class="cart_item">
                                                     <div class="cart_img">
                                                         <a href="#">
@@ -122,7 +122,7 @@
                                             </c:forEach>
                                         </c:if>
                                     </div>
-                                    <c:if test="${sessionScope.cart == null || sessionScope.cartSize == 0}">
+                                    <c:if test="${sessionScope.cart == null || sessionScope.cart.productCount == 0}">
                                         <span style="color: black" class="header__cart-list--no-cart-msg">Nothing now!</span>
                                         <img src="images/emptycart.png" alt="Emptycart" style=" width: 60%;">
                                     </c:if>
@@ -131,7 +131,7 @@
                                     <div class="cart_table_border">
                                         <div class="cart_total">
                                             <span style="color: black">Sub Total :</span>
-                                            <span class="price" style="color:grey">Rs.${sessionScope.cart.getTotalPriceWithOutDiscount()}</span>
+                                            <span class="price" style="color:grey">Rs.${sessionScope.cart.getTotalPriceWithoutDiscount()}</span>
                                         </div>
 
                                         <div class="cart_total mt-10">
@@ -163,7 +163,7 @@
                         </li>
                         <c:if test="${sessionScope.account!=null}">
                             <li onclick="change()" style="position: relative; cursor: pointer;">
-                                <img src="${sessionScope.imageUser}" width="40px" style="color: white; border-radius: 50% ;border: 2px solid white;">
+                                <img src="${sessionScope.account.image}" width="40px" style="color: white; border-radius: 50% ;border: 2px solid white;">
                                 <ul id="avt" class="header_avt" style="margin-top:25px;
                                     position: absolute;
                                     left: -96px ;
@@ -168,8 +168,8 @@
                                                                 </a>
                                                             </li>
                                                             <li class="wishlist">
-                                                                <a href="#" onclick="toggleWishlist(${p.id})" title="Add to Wishlist">
-                                                                    <i style="color: #f6692a" class="fa-solid fa-heart"></i>
+                                                                <a href="#" onclick="toggleWishlist(${p.id}, this)" title="Add to Wishlist">
+                                                                    <i style="color: #f6692a" class="${sessionScope.wishlist.contains(p.id) ? 'fa-solid' : 'fa-regular'} fa-heart"></i>
                                                                 </a>
                                                             </li>
                                                             <li class="quick_button" 
@@ -323,8 +323,8 @@
                                                                     </a>
                                                                 </li>
                                                                 <li class="wishlist">
-                                                                    <a href="#" onclick="toggleWishlist(${hotDeal.id})" title="Add to Wishlist">
-                                                                        <i style="color: #f6692a" class="fa-solid fa-heart"></i>
+                                                                    <a href="#" onclick="toggleWishlist(${hotDeal.id}, this)" title="Add to Wishlist">
+                                                                        <i style="color: #f6692a" class="${sessionScope.wishlist.contains(hotDeal.id) ? 'fa-solid' : 'fa-regular'} fa-heart"></i>
                                                                     </a>
                                                                 </li>
                                                                 <li class="quick_button" >
@@ -550,8 +550,8 @@
                                                                         </a>
                                                                     </li>
                                                                     <li class="wishlist">
-                                                                        <a href="#" onclick="toggleWishlist(${t.id})" title="Add to Wishlist">
-                                                                            <i style="color: #f6692a" class="fa-solid fa-heart"></i>
+                                                                        <a href="#" onclick="toggleWishlist(${t.id}, this)" title="Add to Wishlist">
+                                                                            <i style="color: #f6692a" class="${sessionScope.wishlist.contains(t.id) ? 'fa-solid' : 'fa-regular'} fa-heart"></i>
                                                                         </a>
                                                                     </li>
                                                                     <li class="quick_button" 
@@ -662,8 +662,8 @@
                                                                     </a>
                                                                 </li>
                                                                 <li class="wishlist">
-                                                                    <a href="#" onclick="toggleWishlist(${i.id})" title="Add to Wishlist">
-                                                                        <i style="color: #f6692a" class="fa-solid fa-heart"></i>
+                                                                    <a href="#" onclick="toggleWishlist(${i.id}, this)" title="Add to Wishlist">
+                                                                        <i style="color: #f6692a" class="${sessionScope.wishlist.contains(i.id) ? 'fa-solid' : 'fa-regular'} fa-heart"></i>
                                                                     </a>
                                                                 </li>
                                                                 <li class="quick_button" 
@@ -284,23 +284,21 @@ function reloadPriceViewCart(id) {
     });
 }
 
-function toggleWishlist(id) {
+function toggleWishlist(id, link) {
     event.preventDefault();
-    var role = "add"; // Default to add
-    // You might need to add logic here to check if the item is already in the wishlist
-    // If it is, set role to "remove"
-    // For now, I'll just assume it's always "add" for simplicity or rely on servlet logic
-
     $.ajax({
         url: contextPath + "/wishlist",
         type: "get",
         data: {
             id: id,
-            role: role
+            role: "toggle"
         },
         success: function (data) {
             var row = document.getElementById("header_right");
             row.innerHTML = data;
+            if (link) {
+                $(link).find("i").toggleClass("fa-solid fa-regular");
+            }
         },
         error: function (xhr) {
         }
@@ -29,6 +29,7 @@
                         </div>
                         <div class="fxt-form">
                             <h2 style="color: red">Choose a new password</h2>
+                            <h5 style="color: red">${requestScope.error}</h5>
                             <p id="rule" style="font-size: 14px">A strong password is a combination of letters and punctuation marks. Its must be at least 6 characters long.</p>
                             <form id="f1" action="confirmpass" method="post">
                                 <input name="userName" value="${requestScope.uName}" type="hidden">
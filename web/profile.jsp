@@ -139,7 +139,7 @@
     </head>
     <body>
         <c:set var="user" value="${sessionScope.account}"/>
-        <c:set var="imageSession" value="${sessionScope.imageUser}"/>
+        <c:set var="imageSession" value="${sessionScope.account.image}"/>
         <header style="background-color: rgba(0, 0, 0, 0.7); color: white; padding: 10px 0; font-family: Lato, sans-serif">
             <div class="row align-items-center" style="margin: 0">
                 <div class="col-lg-2" style="padding: 0px">
@@ -216,9 +216,9 @@
                                 </div>
                                 <div class="card-bottom pt-3 px-3 mb-2" style="padding: 10px">
                                     <div class="d-flex flex-row justify-content-between text-align-center">
-                                        <div class="d-flex flex-column"><span>Balance amount</span><p>&euro; <span class="text-white">${sessionScope.wallet.balance}</span></p></div>
+                                        <div class="d-flex flex-column"><span>Balance amount</span><p>&euro; <span class="text-white">${sessionScope.profile.wallet.balance}</span></p></div>
                                         <button class="btn btn-secondary" data-toggle="modal" data-target="#modal_box" onclick="modalOpen2('modal_box', '${user.userName}',
-                                                        '${imageSession}',${sessionScope.wallet.balance})">
+                                                        '${imageSession}',${sessionScope.profile.wallet.balance})">
                                             <i class="fas fa-plus text-white"></i>
                                         </button>
                                     </div>
@@ -239,8 +239,8 @@
                                 </div>
                                 <div class="gx-3 mb-3">
                                     <label class="mb-1" for="inputFirstName">Full name</label>
-                                    <c:if test="${sessionScope.name!=null}">
-                                        <input class="form-control acceptEdit" readonly  name="name" id="inputFirstName" type="text" placeholder="Full Name" value="${sessionScope.name}">
+                                    <c:if test="${sessionScope.account.fullName!=null}">
+                                        <input class="form-control acceptEdit" readonly  name="name" id="inputFirstName" type="text" placeholder="Full Name" value="${sessionScope.account.fullName}">
                                     </c:if>
                                 </div>
 
@@ -258,16 +258,16 @@
 
                                     <div class="col-md-6">
                                         <label class="mb-1" for="inputLocation">Address</label>
-                                        <c:if test="${sessionScope.address!=null}">
-                                            <input class="form-control acceptEdit" readonly name="address" id="inputFirstName"  type="text" placeholder="Address" value="${sessionScope.address}">
+                                        <c:if test="${sessionScope.account.address!=null}">
+                                            <input class="form-control acceptEdit" readonly name="address" id="inputFirstName"  type="text" placeholder="Address" value="${sessionScope.account.address}">
                                         </c:if>
                                     </div>
                                 </div>
 
                                 <div class="mb-3">
                                     <label class="mb-1" for="inputEmailAddress">Email address</label>
-                                    <c:if test="${sessionScope.email!=null}">
-                                        <input class="form-control acceptEdit" readonly  name="email" id="inputFirstName"  type="text" placeholder="Email" value="${sessionScope.email}">
+                                    <c:if test="${sessionScope.account.email!=null}">
+                                        <input class="form-control acceptEdit" readonly  name="email" id="inputFirstName"  type="text" placeholder="Email" value="${sessionScope.account.email}">
                                     </c:if>
                                 </div>
 
@@ -275,15 +275,15 @@
 
                                     <div class="col-md-6">
                                         <label class="mb-1" for="inputPhone">Phone number</label>
-                                        <c:if test="${sessionScope.phone!=null}">
-                                            <input class="form-control acceptEdit" readonly name="phone" id="inputFirstName"  type="text" placeholder="Phone" value="${sessionScope.phone}">
+                                        <c:if test="${sessionScope.account.phone!=null}">
+                                            <input class="form-control acceptEdit" readonly name="phone" id="inputFirstName"  type="text" placeholder="Phone" value="${sessionScope.account.phone}">
                                         </c:if>
                                     </div>
 
                                     <div class="col-md-6">
                                         <label class="mb-1" for="inputBirthday">Birthdate</label>
-                                        <c:if test="${sessionScope.birthdate!=null}">
-                                            <input class="form-control acceptEdit" readonly name="birthday" id="inputFirstName"  type="text" placeholder="Birthdate" value="${sessionScope.birthdate}">
+                                        <c:if test="${sessionScope.account.birthdate!=null}">
+                                            <input class="form-control acceptEdit" readonly name="birthday" id="inputFirstName"  type="text" placeholder="Birthdate" value="${sessionScope.account.birthdate}">
                                         </c:if>
                                     </div>
                                 </div>
@@ -291,8 +291,8 @@
                                                                     </a>
                                                                 </li>
                                                                 <li class="wishlist">
-                                                                    <a href="#" onclick="toggleWishlist(${i.id})" title="Add to Wishlist">
-                                                                        <i style="color: #f6692a" class="fa-solid fa-heart"></i>
+                                                                    <a href="#" onclick="toggleWishlist(${i.id}, this)" title="Add to Wishlist">
+                                                                        <i style="color: #f6692a" class="${sessionScope.wishlist.contains(i.id) ? 'fa-solid' : 'fa-regular'} fa-heart"></i>
                                                                     </a>
                                                                 </li>
                                                                 <li style="border-color: orange" class="quick_button"
@@ -202,10 +202,10 @@
             <jsp:include page="header_right.jsp"></jsp:include>
             </header>
             <div class="container px-4 py-5 mx-auto text-center">
-            <c:if test="${sessionScope.listItemsInWishList == null || sessionScope.wishListSize == 0}">
+            <c:if test="${sessionScope.wishlist == null || sessionScope.wishlist.size == 0}">
                 <<img src="images/emptycart2.png" width="600px"  alt="Emptycart" />
             </c:if>
-            <c:if test="${sessionScope.wishListSize != 0}">
+            <c:if test="${sessionScope.wishlist.size != 0}">
                 <div class="row d-flex justify-content-center">
                     <div class="col-4">
                         <h4 class="heading">Wish List</h4>
@@ -224,7 +224,7 @@
                         </div>
                     </div>
                 </div>
-                <c:forEach items="${sessionScope.listItemsInWishList}" var="item">
+                <c:forEach items="${sessionScope.wishlist.listItems}" var="item">
                     <c:set var="p" value="${item.product}" />
                     <div class="row d-flex justify-content-center border-top">
                         <div class="col-4">
@@ -205,7 +205,7 @@
                     <h5><i class="fa fa-shopping-cart"></i> Chi tiết đơn hàng</h5>
                     <div class="row">
                         <div class="col-sm-6">
-                            <p><strong>Số lượng sản phẩm:</strong> ${sessionScope.cartSize}</p>
+                            <p><strong>Số lượng sản phẩm:</strong> ${sessionScope.cart.productCount}</p>
                         </div>
                         <div class="col-sm-6">
                             <p><strong>Phí vận chuyển:</strong> $3</p>